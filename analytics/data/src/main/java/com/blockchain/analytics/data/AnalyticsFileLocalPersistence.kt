@@ -4,6 +4,7 @@ import android.content.Context
 import com.blockchain.analytics.AnalyticsLocalPersistence
 import com.blockchain.analytics.NabuAnalyticsEvent
 import com.blockchain.nabu.filesystem.QueueFile
+import com.blockchain.nabu.filesystem.SegmentedQueueFile
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Single
 import java.io.File
@@ -11,6 +12,7 @@ import java.io.IOException
 import kotlinx.serialization.decodeFromString
 import kotlinx.serialization.encodeToString
 import kotlinx.serialization.json.Json
+import timber.log.Timber
 
 class AnalyticsFileLocalPersistence(context: Context) : AnalyticsLocalPersistence {
 
@@ -19,9 +21,11 @@ class AnalyticsFileLocalPersistence(context: Context) : AnalyticsLocalPersistenc
         ignoreUnknownKeys = true
     }
 
-    private val queueFile: QueueFile by lazy {
+    private val queueFile: SegmentedQueueFile by lazy {
         val folder: File = context.getDir(DIR_NAME, Context.MODE_PRIVATE)
-        createQueueFile(folder) ?: throw IllegalStateException("File system failed to initialised")
+        createQueueFile(folder)?.also {
+            migrateLegacyQueueFile(File(folder, FILE_NAME), it)
+        } ?: throw IllegalStateException("File system failed to initialised")
     }
 
     override fun size(): Single<Long> = Single.just(queueFile.size())
@@ -58,20 +62,35 @@ class AnalyticsFileLocalPersistence(context: Context) : AnalyticsLocalPersistenc
         }
     }
 
-    private fun createQueueFile(folder: File): QueueFile? {
+    private fun createQueueFile(folder: File): SegmentedQueueFile? {
         createDirectory(folder)
-        val file = File(folder, FILE_NAME)
+        val directory = File(folder, SEGMENTS_DIR_NAME)
         return try {
-            QueueFile(file)
+            SegmentedQueueFile(directory)
         } catch (e: IOException) {
-            if (file.delete()) {
-                QueueFile(file)
+            if (directory.deleteRecursively()) {
+                SegmentedQueueFile(directory)
             } else {
                 null
             }
         }
     }
 
+    // Events saved by versions of the app using a single QueueFile are moved over at most once: the legacy file is
+    // deleted before they are copied, so dying half way loses them rather than uploading them twice
+    private fun migrateLegacyQueueFile(file: File, queueFile: SegmentedQueueFile) {
+        if (!file.exists()) return
+        try {
+            val events = QueueFile(file).use { legacy -> legacy.read(legacy.size()) }
+            if (file.delete()) {
+                queueFile.addAll(events.map { it.toByteArray() })
+            }
+        } catch (e: IOException) {
+            Timber.e(e, "Dropping analytics events that could not be migrated")
+            file.delete()
+        }
+    }
+
     private fun createDirectory(location: File) {
         if (!(location.exists() || location.mkdirs() || location.isDirectory)) {
             throw IOException("Could not create directory at $location")
@@ -81,5 +100,6 @@ class AnalyticsFileLocalPersistence(context: Context) : AnalyticsLocalPersistenc
     companion object {
         private const val DIR_NAME = "analytics-disk-queue"
         private const val FILE_NAME = "analytics.json"
+        private const val SEGMENTS_DIR_NAME = "segments"
     }
 }
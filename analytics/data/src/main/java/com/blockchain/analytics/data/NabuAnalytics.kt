@@ -18,12 +18,21 @@ import com.blockchain.utils.emptySubscribe
 import com.blockchain.utils.then
 import com.blockchain.utils.toJsonElement
 import com.blockchain.utils.toUtcIso8601
+import io.reactivex.rxjava3.core.BackpressureStrategy
 import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Flowable
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.disposables.CompositeDisposable
 import io.reactivex.rxjava3.kotlin.plusAssign
 import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.subjects.PublishSubject
 import java.util.Date
 import java.util.Locale
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 import kotlinx.coroutines.rx3.rxSingle
 import kotlinx.serialization.json.JsonElement
 import kotlinx.serialization.json.JsonPrimitive
@@ -36,15 +45,42 @@ class NabuAnalytics(
     private val remoteLogger: RemoteLogger,
     lifecycleObservable: LifecycleObservable,
     private val analyticsContextProvider: AnalyticsContextProvider,
-    private val tokenStore: NabuSessionTokenStore
+    private val tokenStore: NabuSessionTokenStore,
+    private val gzipRequests: Boolean = false,
+    private val scheduler: Scheduler = Schedulers.computation()
 ) : Analytics, AppStartUpFlushable {
     private val compositeDisposable = CompositeDisposable()
 
+    // Events saved since the last upload started
+    private val unsentEvents = AtomicInteger()
+    private val uploading = AtomicBoolean()
+    private val flushRequests = PublishSubject.create<Unit>().toSerialized()
+
+    // Arms the flush timer when the first unsent event is saved, and cancels it when an upload starts
+    private val flushTimer = PublishSubject.create<Boolean>().toSerialized()
+
     init {
+        // Requests made while an upload is running are folded into a single one run right after it
+        compositeDisposable += flushRequests.toFlowable(BackpressureStrategy.LATEST)
+            .concatMapCompletable(
+                {
+                    flush()
+                        .doOnError {
+                            remoteLogger.logException(it, "Error sending batched analytics")
+                        }
+                        .onErrorComplete()
+                },
+                1
+            ).emptySubscribe()
+
         compositeDisposable += lifecycleObservable.onStateUpdated.filter { it == AppState.BACKGROUNDED }
-            .flatMapCompletable {
-                flush().onErrorComplete()
-            }.emptySubscribe()
+            .subscribe { requestFlush() }
+
+        compositeDisposable += flushTimer
+            .switchMap { armed ->
+                if (armed) Observable.timer(FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS, scheduler) else Observable.empty()
+            }
+            .subscribe { requestFlush() }
     }
 
     private val id: String by lazy {
@@ -56,13 +92,18 @@ class NabuAnalytics(
         logEventInTerminal(analyticsEvent)
 
         compositeDisposable += localAnalyticsPersistence.save(nabuEvent)
-            .subscribeOn(Schedulers.computation())
+            .subscribeOn(scheduler)
             .doOnError {
                 remoteLogger.logException(it)
             }
             .onErrorComplete()
-            .then {
-                sendToApiAndFlushIfNeeded()
+            .doOnComplete {
+                val unsent = unsentEvents.incrementAndGet()
+                if (unsent >= BATCH_SIZE) {
+                    requestFlush()
+                } else if (unsent == 1) {
+                    flushTimer.onNext(true)
+                }
             }
             .emptySubscribe()
     }
@@ -80,51 +121,65 @@ class NabuAnalytics(
         )
     }
 
-    private fun sendToApiAndFlushIfNeeded(): Completable {
-        return localAnalyticsPersistence.size().flatMapCompletable {
-            if (it >= BATCH_SIZE) {
-                batchToApiAndFlush()
-                    .doOnError {
-                        remoteLogger.logException(it, "Error sending batched analytics")
-                    }
-                    .onErrorComplete()
-            } else {
-                Completable.complete()
-            }
-        }
+    private fun requestFlush() {
+        flushRequests.onNext(Unit)
     }
 
     override val tag: String
         get() = "nabu_analytics_flush"
 
-    override fun flush(): Completable {
-        return localAnalyticsPersistence.getAllItems().flatMapCompletable { events ->
-            // Whats happening here is that we split the retrieved items into sublists of size = BATCH_SIZE
-            // and then each one of these sublists is converted to the corresponding completable that actually is the
-            // api request.
-            val listOfSublists = mutableListOf<List<NabuAnalyticsEvent>>()
-            for (i in events.indices step BATCH_SIZE) {
-                listOfSublists.add(
-                    events.subList(i, (i + BATCH_SIZE).coerceAtMost(events.size))
-                )
-            }
+    /**
+     * Uploads everything saved, a window of [WINDOW_SIZE] events at a time so that memory use doesn't depend on how
+     * many events are waiting. Batches are sent in order and each one is removed as soon as it has been accepted, so a
+     * failure part way through a window never sends the batches before it again.
+     */
+    override fun flush(): Completable = Completable.defer {
+        // The upload already running sends the events this one would have
+        if (uploading.compareAndSet(false, true)) {
+            upload().doFinally { uploading.set(false) }
+        } else {
+            Completable.complete()
+        }
+    }
 
-            val completables = listOfSublists.map { list ->
-                postEvents(list).then {
-                    localAnalyticsPersistence.removeOldestItems(list.size)
-                }
+    private fun upload(): Completable {
+        return Single.defer {
+            // Cancelled before the count is reset, so an event counted after the reset arms a new timer
+            flushTimer.onNext(false)
+            unsentEvents.set(0)
+            uploadOldestWindow()
+        }.repeat()
+            .takeUntil { uploaded -> uploaded < WINDOW_SIZE }
+            .ignoreElements()
+    }
+
+    private fun uploadOldestWindow(): Single<Int> {
+        return localAnalyticsPersistence.getOldestItems(WINDOW_SIZE).flatMap { events ->
+            if (events.isEmpty()) {
+                Single.just(0)
+            } else {
+                Flowable.fromIterable(events.chunked(BATCH_SIZE))
+                    .concatMapCompletable { batch ->
+                        postEventsWithBackoff(batch).then {
+                            localAnalyticsPersistence.removeOldestItems(batch.size)
+                        }
+                    }
+                    .toSingleDefault(events.size)
             }
-            Completable.concat(completables)
         }
     }
 
-    private fun batchToApiAndFlush(): Completable {
-        return localAnalyticsPersistence.getOldestItems(BATCH_SIZE).flatMapCompletable {
-            postEvents(it)
-        }.then {
-            localAnalyticsPersistence.removeOldestItems(BATCH_SIZE)
+    private fun postEventsWithBackoff(events: List<NabuAnalyticsEvent>): Completable =
+        postEvents(events).retryWhen { errors ->
+            errors.zipWith(Flowable.range(1, MAX_RETRIES + 1)) { error, attempt -> error to attempt }
+                .flatMap { (error, attempt) ->
+                    if (attempt > MAX_RETRIES) {
+                        Flowable.error(error)
+                    } else {
+                        Flowable.timer(INITIAL_BACKOFF_SECONDS shl (attempt - 1), TimeUnit.SECONDS, scheduler)
+                    }
+                }
         }
-    }
 
     private fun postEvents(events: List<NabuAnalyticsEvent>): Completable =
         rxSingle {
@@ -137,7 +192,8 @@ class NabuAnalytics(
                     analyticsContext = context,
                     platform = "WALLET",
                     device = "APP-Android",
-                    authorization = if (it is Optional.Some) it.element.authHeader else null
+                    authorization = if (it is Optional.Some) it.element.authHeader else null,
+                    gzip = gzipRequests
                 )
             }
         }
@@ -148,6 +204,11 @@ class NabuAnalytics(
 
     companion object {
         private const val BATCH_SIZE = 30
+        private const val BATCHES_PER_WINDOW = 3
+        private const val WINDOW_SIZE = BATCH_SIZE * BATCHES_PER_WINDOW
+        private const val FLUSH_INTERVAL_SECONDS = 60L
+        private const val MAX_RETRIES = 3
+        private const val INITIAL_BACKOFF_SECONDS = 2L
     }
 }
 
@@ -2,6 +2,7 @@ package com.blockchain.analytics.data
 
 import com.blockchain.analytics.AnalyticsContext
 import com.blockchain.analytics.AnalyticsContextProvider
+import com.blockchain.analytics.AnalyticsEvent
 import com.blockchain.analytics.AnalyticsLocalPersistence
 import com.blockchain.analytics.NabuAnalyticsEvent
 import com.blockchain.api.services.AnalyticsService
@@ -13,16 +14,22 @@ import com.blockchain.preferences.SessionPrefs
 import com.blockchain.utils.Optional
 import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.anyOrNull
+import com.nhaarman.mockitokotlin2.eq
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.timeout
 import com.nhaarman.mockitokotlin2.times
 import com.nhaarman.mockitokotlin2.whenever
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import java.io.Serializable
+import java.util.concurrent.TimeUnit
 import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.runTest
-import org.junit.Ignore
+import org.junit.Before
 import org.junit.Test
 import org.mockito.Mockito
 
@@ -55,14 +62,23 @@ import org.mockito.Mockito
         on { onStateUpdated }.thenReturn(Observable.just(AppState.FOREGROUNDED))
     }
 
+    private val scheduler = TestScheduler()
+
     private val subject = NabuAnalytics(
         localAnalyticsPersistence = localAnalyticsPersistence, prefs = prefs,
         remoteLogger = mock(), analyticsService = analyticsService, tokenStore = tokenStore,
         analyticsContextProvider = analyticsContextProvider,
-        lifecycleObservable = lifecycleObservable
+        lifecycleObservable = lifecycleObservable,
+        scheduler = scheduler
     )
 
-    @Ignore
+    @Before
+    fun setUp() {
+        runBlocking {
+            whenever(analyticsContextProvider.context()).thenReturn(mockedContext)
+        }
+    }
+
     @Test
     fun flushIsWorking() = runTest {
         whenever(analyticsContextProvider.context()).thenReturn(mockedContext)
@@ -74,17 +90,19 @@ import org.mockito.Mockito
                 analyticsContext = analyticsContextProvider.context(),
                 platform = any(),
                 device = any(),
-                authorization = anyOrNull()
+                authorization = anyOrNull(),
+                gzip = any()
             )
         ).thenReturn(Completable.complete())
 
-        whenever(localAnalyticsPersistence.getAllItems()).thenReturn(Single.just(randomListOfEventsWithSize(84)))
+        whenever(localAnalyticsPersistence.getOldestItems(any()))
+            .thenReturn(Single.just(randomListOfEventsWithSize(84)))
         whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
         val testSubscriber = subject.flush().test()
 
-        testSubscriber.assertComplete()
+        testSubscriber.await().assertComplete()
         Mockito.verify(analyticsService, times(3))
-            .postEvents(any(), any(), analyticsContextProvider.context(), any(), any(), anyOrNull())
+            .postEvents(any(), any(), analyticsContextProvider.context(), any(), any(), anyOrNull(), any())
 
         Mockito.verify(localAnalyticsPersistence, times(2)).removeOldestItems(30)
         Mockito.verify(localAnalyticsPersistence).removeOldestItems(24)
@@ -99,17 +117,18 @@ import org.mockito.Mockito
                 analyticsContext = any(),
                 platform = any(),
                 device = any(),
-                authorization = anyOrNull()
+                authorization = anyOrNull(),
+                gzip = any()
             )
         ).thenReturn(Completable.complete())
 
-        whenever(localAnalyticsPersistence.getAllItems()).thenReturn(Single.just(randomListOfEventsWithSize(0)))
+        whenever(localAnalyticsPersistence.getOldestItems(any())).thenReturn(Single.just(randomListOfEventsWithSize(0)))
         whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
         val testSubscriber = subject.flush().test()
 
-        testSubscriber.assertComplete()
+        testSubscriber.await().assertComplete()
         Mockito.verify(analyticsService, never())
-            .postEvents(any(), any(), any(), any(), any(), anyOrNull())
+            .postEvents(any(), any(), any(), any(), any(), anyOrNull(), any())
 
         Mockito.verify(localAnalyticsPersistence, never()).removeOldestItems(any())
     }
@@ -123,15 +142,172 @@ import org.mockito.Mockito
                 analyticsContext = any(),
                 platform = any(),
                 device = any(),
-                authorization = anyOrNull()
+                authorization = anyOrNull(),
+                gzip = any()
             )
         ).thenReturn(Completable.error(Throwable()))
 
-        whenever(localAnalyticsPersistence.getAllItems()).thenReturn(Single.just(randomListOfEventsWithSize(10)))
+        whenever(localAnalyticsPersistence.getOldestItems(any()))
+            .thenReturn(Single.just(randomListOfEventsWithSize(10)))
         whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
         val testSubscriber = subject.flush().test()
 
-        testSubscriber.assertNotComplete()
+        // Retried with backoff before giving up
+        listOf(2L, 4L, 8L).forEachIndexed { retry, backoff ->
+            Mockito.verify(analyticsService, timeout(1000).times(retry + 1))
+                .postEvents(any(), any(), any(), any(), any(), anyOrNull(), any())
+            testSubscriber.assertNotComplete()
+            scheduler.advanceTimeBy(backoff, TimeUnit.SECONDS)
+        }
+
+        testSubscriber.await().assertError(Throwable::class.java)
+        Mockito.verify(analyticsService, times(4))
+            .postEvents(any(), any(), any(), any(), any(), anyOrNull(), any())
+        Mockito.verify(localAnalyticsPersistence, never()).removeOldestItems(any())
+    }
+
+    @Test
+    fun largeBacklogIsUploadedInWindows() {
+        givenPostsSucceed()
+        whenever(localAnalyticsPersistence.getOldestItems(any())).thenReturn(
+            Single.just(randomListOfEventsWithSize(90)),
+            Single.just(randomListOfEventsWithSize(90)),
+            Single.just(randomListOfEventsWithSize(20))
+        )
+        whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
+
+        subject.flush().test().await().assertComplete()
+
+        Mockito.verify(localAnalyticsPersistence, times(3)).getOldestItems(90)
+        Mockito.verify(localAnalyticsPersistence, never()).getAllItems()
+        Mockito.verify(analyticsService, times(7))
+            .postEvents(any(), any(), any(), any(), any(), anyOrNull(), any())
+        Mockito.verify(localAnalyticsPersistence, times(6)).removeOldestItems(30)
+        Mockito.verify(localAnalyticsPersistence).removeOldestItems(20)
+    }
+
+    @Test
+    fun acceptedBatchesAreNotSentAgainWhenALaterOneFails() {
+        givenPostsSucceed()
+        val events = (0 until 90).map {
+            NabuAnalyticsEvent(name = "name$it", type = "EVENT", originalTimestamp = "", properties = emptyMap())
+        }
+        val (first, second, third) = events.chunked(30)
+        whenever(
+            analyticsService.postEvents(eq(second), any(), anyOrNull(), any(), any(), anyOrNull(), any())
+        ).thenReturn(
+            Completable.error(Throwable()),
+            Completable.error(Throwable()),
+            Completable.error(Throwable()),
+            Completable.error(Throwable()),
+            Completable.complete()
+        )
+        whenever(localAnalyticsPersistence.getOldestItems(any()))
+            .thenReturn(Single.just(events), Single.just(second + third))
+        whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
+
+        val failed = subject.flush().test()
+        listOf(2L, 4L, 8L).forEachIndexed { retry, backoff ->
+            Mockito.verify(analyticsService, timeout(1000).times(retry + 1))
+                .postEvents(eq(second), any(), any(), any(), any(), anyOrNull(), any())
+            scheduler.advanceTimeBy(backoff, TimeUnit.SECONDS)
+        }
+        failed.await().assertError(Throwable::class.java)
+        Mockito.verify(localAnalyticsPersistence).removeOldestItems(30)
+
+        subject.flush().test().await().assertComplete()
+
+        Mockito.verify(analyticsService)
+            .postEvents(eq(first), any(), any(), any(), any(), anyOrNull(), any())
+        Mockito.verify(analyticsService, times(5))
+            .postEvents(eq(second), any(), any(), any(), any(), anyOrNull(), any())
+        Mockito.verify(analyticsService)
+            .postEvents(eq(third), any(), any(), any(), any(), anyOrNull(), any())
+        Mockito.verify(localAnalyticsPersistence, times(3)).removeOldestItems(30)
+    }
+
+    @Test
+    fun eventsAreNotUploadedOneByOne() {
+        givenPostsSucceed()
+        whenever(localAnalyticsPersistence.save(any())).thenReturn(Completable.complete())
+
+        repeat(29) { subject.logEvent(TestEvent) }
+        scheduler.triggerActions()
+
+        Mockito.verify(localAnalyticsPersistence, never()).getOldestItems(any())
+        Mockito.verify(localAnalyticsPersistence, never()).size()
+    }
+
+    @Test
+    fun aFullBatchIsUploaded() {
+        givenPostsSucceed()
+        whenever(localAnalyticsPersistence.save(any())).thenReturn(Completable.complete())
+        whenever(localAnalyticsPersistence.getOldestItems(any()))
+            .thenReturn(Single.just(randomListOfEventsWithSize(30)))
+        whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
+
+        repeat(30) { subject.logEvent(TestEvent) }
+        scheduler.triggerActions()
+
+        Mockito.verify(localAnalyticsPersistence, timeout(1000)).removeOldestItems(30)
+    }
+
+    @Test
+    fun pendingEventsAreUploadedPeriodically() {
+        givenPostsSucceed()
+        whenever(localAnalyticsPersistence.save(any())).thenReturn(Completable.complete())
+        whenever(localAnalyticsPersistence.getOldestItems(any())).thenReturn(Single.just(randomListOfEventsWithSize(1)))
+        whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
+
+        subject.logEvent(TestEvent)
+        scheduler.triggerActions()
+        Mockito.verify(localAnalyticsPersistence, never()).getOldestItems(any())
+
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES)
+
+        Mockito.verify(localAnalyticsPersistence, timeout(1000)).removeOldestItems(1)
+    }
+
+    @Test
+    fun noTimerIsArmedWithoutPendingEvents() {
+        scheduler.advanceTimeBy(1, TimeUnit.HOURS)
+
+        Mockito.verify(localAnalyticsPersistence, never()).getOldestItems(any())
+    }
+
+    @Test
+    fun startingAnUploadCancelsThePendingTimer() {
+        givenPostsSucceed()
+        whenever(localAnalyticsPersistence.save(any())).thenReturn(Completable.complete())
+        whenever(localAnalyticsPersistence.getOldestItems(any())).thenReturn(Single.just(randomListOfEventsWithSize(1)))
+        whenever(localAnalyticsPersistence.removeOldestItems(any())).thenReturn(Completable.complete())
+
+        subject.logEvent(TestEvent)
+        scheduler.triggerActions()
+        subject.flush().test().await().assertComplete()
+
+        scheduler.advanceTimeBy(1, TimeUnit.HOURS)
+
+        Mockito.verify(localAnalyticsPersistence, times(1)).getOldestItems(any())
+    }
+
+    private fun givenPostsSucceed() {
+        whenever(
+            analyticsService.postEvents(
+                events = any(),
+                id = any(),
+                analyticsContext = anyOrNull(),
+                platform = any(),
+                device = any(),
+                authorization = anyOrNull(),
+                gzip = any()
+            )
+        ).thenReturn(Completable.complete())
+    }
+
+    private object TestEvent : AnalyticsEvent {
+        override val event: String = "test_event"
+        override val params: Map<String, Serializable> = emptyMap()
     }
 
     private fun randomListOfEventsWithSize(i: Int): List<NabuAnalyticsEvent> {
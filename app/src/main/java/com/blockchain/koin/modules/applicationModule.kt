@@ -13,6 +13,7 @@ import com.blockchain.biometrics.BiometricDataRepository
 import com.blockchain.biometrics.CryptographyManager
 import com.blockchain.biometrics.CryptographyManagerImpl
 import com.blockchain.commonarch.presentation.base.AppUtilAPI
+import com.blockchain.commonarch.presentation.mvi.MviModelMetrics
 import com.blockchain.componentlib.theme.AppThemeProvider
 import com.blockchain.core.access.PinRepository
 import com.blockchain.core.auth.metadata.WalletCredentialsMetadataUpdater
@@ -46,7 +47,10 @@ import com.blockchain.lifecycle.LifecycleInterestedComponent
 import com.blockchain.lifecycle.LifecycleObservable
 import com.blockchain.logging.DigitalTrust
 import com.blockchain.nabu.datamanagers.custodialwalletimpl.PaymentAccountMapper
+import com.blockchain.network.metrics.EndpointMetrics
+import com.blockchain.network.websocket.ExponentialBackoff
 import com.blockchain.network.websocket.Options
+import com.blockchain.network.websocket.WebSocketMetrics
 import com.blockchain.network.websocket.autoRetry
 import com.blockchain.network.websocket.debugLog
 import com.blockchain.network.websocket.newBlockchainWebSocket
@@ -175,6 +179,13 @@ val applicationModule = module {
 
     single(applicationScope) { CoroutineScope(SupervisorJob()) }
 
+    // Installed as the instrumentation monitors in debug builds, see BlockchainApplication
+    single { EndpointMetrics() }
+
+    single { WebSocketMetrics() }
+
+    single { MviModelMetrics() }
+
     factory { OSUtil(get()) }
 
     factory { StringUtils(get()) }
@@ -282,9 +293,9 @@ val applicationModule = module {
         }.bind(PaymentAccountMapper::class)
 
         factory {
-            OkHttpClient()
+            get<OkHttpClient>()
                 .newBlockchainWebSocket(options = Options(url = BuildConfig.COINS_WEBSOCKET_URL))
-                .autoRetry()
+                .autoRetry(policy = ExponentialBackoff.withJitter(), name = "COIN_SOCKET")
                 .debugLog("COIN_SOCKET")
         }
 
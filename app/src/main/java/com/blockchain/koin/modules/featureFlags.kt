@@ -8,6 +8,7 @@ import com.blockchain.koin.backupPhraseFeatureFlag
 import com.blockchain.koin.bindFeatureFlag
 import com.blockchain.koin.blockchainCardFeatureFlag
 import com.blockchain.koin.blockchainMembershipsFeatureFlag
+import com.blockchain.koin.branchAndBoundCoinSelectionFeatureFlag
 import com.blockchain.koin.buyRefreshQuoteFeatureFlag
 import com.blockchain.koin.cardPaymentAsyncFeatureFlag
 import com.blockchain.koin.coinNetworksFeatureFlag
@@ -329,6 +330,15 @@ val featureFlagsModule = module {
             )
         )
     }.bind(FeatureFlag::class)
+
+    single(branchAndBoundCoinSelectionFeatureFlag) {
+        IntegratedFeatureFlag(
+            remoteFlag = get<RemoteConfigService>().featureFlag(
+                "android_ff_branch_and_bound_coin_selection",
+                "BTC changeless (branch and bound) coin selection"
+            )
+        )
+    }.bind(FeatureFlag::class)
 }
 
 fun getFeatureFlags(): List<FeatureFlag> {
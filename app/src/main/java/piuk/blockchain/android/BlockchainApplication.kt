@@ -15,6 +15,10 @@ import com.android.installreferrer.api.InstallReferrerClient
 import com.android.installreferrer.api.InstallReferrerStateListener
 import com.blockchain.analytics.Analytics
 import com.blockchain.analytics.events.AppLaunchEvent
+import com.blockchain.commonarch.presentation.mvi.MviModelInstrumentation
+import com.blockchain.commonarch.presentation.mvi.MviModelMetrics
+import com.blockchain.commonarch.presentation.mvi_v2.ViewStateInstrumentation
+import com.blockchain.commonarch.presentation.mvi_v2.ViewStateMonitor
 import com.blockchain.core.connectivity.ConnectionEvent
 import com.blockchain.core.connectivity.SSLPinningObservable
 import com.blockchain.enviroment.EnvironmentConfig
@@ -22,6 +26,10 @@ import com.blockchain.koin.KoinStarter
 import com.blockchain.lifecycle.LifecycleInterestedComponent
 import com.blockchain.logging.MomentEvent
 import com.blockchain.logging.RemoteLogger
+import com.blockchain.network.metrics.EndpointMetrics
+import com.blockchain.network.metrics.HttpInstrumentation
+import com.blockchain.network.websocket.WebSocketInstrumentation
+import com.blockchain.network.websocket.WebSocketMetrics
 import com.blockchain.preferences.AppInfoPrefs
 import com.blockchain.preferences.AppInfoPrefs.Companion.DEFAULT_APP_VERSION_CODE
 import com.facebook.stetho.Stetho
@@ -37,6 +45,8 @@ import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.kotlin.subscribeBy
 import io.reactivex.rxjava3.plugins.RxJavaPlugins
 import io.reactivex.rxjava3.schedulers.Schedulers
+import java.util.concurrent.TimeUnit
+import org.koin.android.ext.android.get
 import org.koin.android.ext.android.inject
 import piuk.blockchain.android.fraud.domain.service.FraudService
 import piuk.blockchain.android.identity.SiftDigitalTrust
@@ -85,6 +95,9 @@ open class BlockchainApplication : Application() {
 
         // Build the DI graphs:
         KoinStarter.start(this)
+        if (BuildConfig.DEBUG) {
+            installDebugInstrumentation()
+        }
         initRemoteLogger()
         initLifecycleListener()
         initFraudService()
@@ -126,6 +139,14 @@ open class BlockchainApplication : Application() {
         ).checkForPotentialNewInstallOrUpdate()
     }
 
+    // Debug builds keep per endpoint, socket and intent metrics, which can be read back from Koin
+    private fun installDebugInstrumentation() {
+        HttpInstrumentation.monitor = get<EndpointMetrics>()
+        WebSocketInstrumentation.monitor = get<WebSocketMetrics>()
+        MviModelInstrumentation.monitor = get<MviModelMetrics>()
+        ViewStateInstrumentation.monitor = SlowReduceLogger
+    }
+
     private fun onAppUpdated(updateInfo: AppUpdateInfo) {
         analytics.logEvent(
             AppAnalytics.AppUpdated(
@@ -407,3 +428,16 @@ data class AppUpdateInfo(
     val previousVersionCode: Int?,
     val installedVersionName: String
 )
+
+// Logs the view states which took longer than a frame to reduce, as those are the screens which jank
+private object SlowReduceLogger : ViewStateMonitor {
+    private val FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16)
+
+    override fun onReduce(viewModel: String, durationNanos: Long) {
+        if (durationNanos > FRAME_NANOS) {
+            Timber.w("%s took %dms to reduce", viewModel, TimeUnit.NANOSECONDS.toMillis(durationNanos))
+        }
+    }
+
+    override fun onEmissionRate(viewModel: String, emissionsPerSecond: Double) {}
+}
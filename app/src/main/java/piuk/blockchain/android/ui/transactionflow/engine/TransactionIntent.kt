@@ -383,6 +383,10 @@ sealed class TransactionIntent : MviIntent<TransactionState> {
                 nextEnabled = false,
                 setMax = false
             ).updateBackstack(oldState)
+
+        // Only the latest amount typed matters, the transaction is updated with it either way
+        override fun isSupersededBy(nextIntent: MviIntent<TransactionState>): Boolean =
+            nextIntent is AmountChanged
     }
 
     class UpdatePrefillAmount(
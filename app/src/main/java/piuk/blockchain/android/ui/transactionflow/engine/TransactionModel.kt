@@ -262,7 +262,8 @@ class TransactionModel(
     initialState,
     mainScheduler,
     environmentConfig,
-    remoteLogger
+    remoteLogger,
+    conflateIntents = true
 ) {
 
     override fun performAction(previousState: TransactionState, intent: TransactionIntent): Disposable? {
@@ -0,0 +1,96 @@
+package piuk.blockchain.android.ui.transactionflow.engine
+
+import com.blockchain.android.testutils.rxInit
+import com.blockchain.enviroment.EnvironmentConfig
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.verify
+import info.blockchain.balance.CryptoCurrency
+import info.blockchain.balance.CryptoValue
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+
+class TransactionModelTest {
+
+    // Intents are queued on the ui scheduler straight away, but only processed when this one is triggered
+    private val ioScheduler = TestScheduler()
+
+    @get:Rule
+    val rx = rxInit {
+        mainTrampoline()
+        io(ioScheduler)
+        computationTrampoline()
+    }
+
+    private val environmentConfig: EnvironmentConfig = mock {
+        on { isRunningInDebugMode() }.thenReturn(false)
+    }
+
+    private val interactor: TransactionInteractor = mock {
+        on { updateTransactionAmount(any()) }.thenReturn(Completable.complete())
+        on { validateTransaction() }.thenReturn(Completable.complete())
+    }
+
+    private lateinit var model: TransactionModel
+
+    @Before
+    fun setUp() {
+        model = TransactionModel(
+            initialState = TransactionState(),
+            mainScheduler = Schedulers.trampoline(),
+            interactor = interactor,
+            walletModeService = mock(),
+            errorLogger = mock(),
+            environmentConfig = environmentConfig,
+            remoteLogger = mock()
+        )
+        ioScheduler.triggerActions()
+    }
+
+    @Test
+    fun `a burst of amount changes updates the transaction once with the last amount`() {
+        val amounts = (1..10).map { CryptoValue.fromMinor(CryptoCurrency.BTC, it.toBigInteger()) }
+
+        amounts.forEach { model.process(TransactionIntent.AmountChanged(it)) }
+        ioScheduler.triggerActions()
+
+        verify(interactor).updateTransactionAmount(amounts.last())
+        amounts.dropLast(1).forEach {
+            verify(interactor, never()).updateTransactionAmount(it)
+        }
+    }
+
+    @Test
+    fun `intents which are not superseded are all processed`() {
+        val first = CryptoValue.fromMinor(CryptoCurrency.BTC, 1.toBigInteger())
+        val second = CryptoValue.fromMinor(CryptoCurrency.BTC, 2.toBigInteger())
+
+        model.process(TransactionIntent.AmountChanged(first))
+        model.process(TransactionIntent.ValidateTransaction)
+        model.process(TransactionIntent.AmountChanged(second))
+        ioScheduler.triggerActions()
+
+        verify(interactor).updateTransactionAmount(first)
+        verify(interactor).validateTransaction()
+        verify(interactor).updateTransactionAmount(second)
+    }
+
+    @Test
+    fun `amount changes processed one at a time are not skipped`() {
+        val amounts = (1..3).map { CryptoValue.fromMinor(CryptoCurrency.BTC, it.toBigInteger()) }
+
+        amounts.forEach {
+            model.process(TransactionIntent.AmountChanged(it))
+            ioScheduler.triggerActions()
+        }
+
+        amounts.forEach {
+            verify(interactor).updateTransactionAmount(it)
+        }
+    }
+}
@@ -4,58 +4,11 @@ import com.blockchain.utils.tryParseBigDecimal
 import java.math.BigDecimal
 import java.math.BigInteger
 import java.math.RoundingMode
-import java.text.DecimalFormat
-import java.text.NumberFormat
 import java.util.Currency
 import java.util.Locale
-import java.util.concurrent.ConcurrentHashMap
 import kotlinx.serialization.Contextual
 import kotlinx.serialization.Serializable
 
-private data class Key(
-    val locale: Locale,
-    val value: Money,
-    val currencyCode: String,
-    val includeSymbol: Boolean,
-    val includeDecimalsWhenWhole: Boolean = true
-)
-
-private object FiatFormat {
-
-    private val cache: MutableMap<Key, NumberFormat> = ConcurrentHashMap()
-
-    operator fun get(key: Key) = cache.getOrPut(key) {
-        val currencyInstance = Currency.getInstance(key.currencyCode)
-        val fmt = NumberFormat.getCurrencyInstance(key.locale) as DecimalFormat
-        fmt.apply {
-            decimalFormatSymbols =
-                decimalFormatSymbols.apply {
-                    currency = currencyInstance
-                    if (!key.includeSymbol) {
-                        currencySymbol = ""
-                    }
-                }
-            val amount = key.value
-            // In order to avoid losing values of cryptocurrencies denominated in fiat, we need to use the scale
-            // as a guide for fractional digits for values below the penny threshold. Of course we still need to limit
-            // the maximum in order to prevent content overflow on small screen.
-            minimumFractionDigits = when {
-                amount.isPositive && amount.toFloat() < FiatValue.PENNY_THRESHOLD -> amount.toBigDecimal().scale()
-                key.includeDecimalsWhenWhole || !key.value.valueIsWholeNumber() ->
-                    currencyInstance.defaultFractionDigits
-                else -> 0
-            }
-            maximumFractionDigits = when {
-                amount.isPositive && amount.toFloat() < FiatValue.PENNY_THRESHOLD -> FiatValue.MAX_FRACTION_DIGITS
-                key.includeDecimalsWhenWhole || !key.value.valueIsWholeNumber() ->
-                    currencyInstance.defaultFractionDigits
-                else -> 0
-            }
-            roundingMode = RoundingMode.DOWN
-        }
-    }
-}
-
 @Serializable
 class FiatValue private constructor(
     override val currency: FiatCurrency,
@@ -87,31 +40,19 @@ class FiatValue private constructor(
         toBigDecimal().toFloat()
 
     override fun toStringWithSymbol(includeDecimalsWhenWhole: Boolean): String =
-        FiatFormat[
-            Key(
-                locale = Locale.getDefault(),
-                currencyCode = currencyCode,
-                value = this,
-                includeSymbol = true,
-                includeDecimalsWhenWhole = includeDecimalsWhenWhole
-            )
-        ].format(amount)
+        MoneyFormat.formatFiat(
+            locale = Locale.getDefault(),
+            value = this,
+            includeSymbol = true,
+            includeDecimalsWhenWhole = includeDecimalsWhenWhole
+        )
 
     override fun toStringWithoutSymbol(): String =
-        FiatFormat[
-            Key(
-                locale = Locale.getDefault(),
-                currencyCode = currencyCode,
-                includeSymbol = false,
-                value = this
-            )
-        ]
-            .format(amount)
+        MoneyFormat.formatFiat(Locale.getDefault(), value = this, includeSymbol = false)
             .trim()
 
     override fun toNetworkString(): String =
-        FiatFormat[Key(Locale.US, value = this, currencyCode, includeSymbol = false)]
-            .format(amount)
+        MoneyFormat.formatFiat(Locale.US, value = this, includeSymbol = false)
             .trim()
             .removeComma()
 
@@ -54,8 +54,7 @@ abstract class Money : Serializable, Comparable<Money> {
      */
     fun toStringParts() =
         toStringWithoutSymbol().let {
-            val decimalSeparator = LocaleDecimalFormat[Locale.getDefault()].decimalFormatSymbols.decimalSeparator
-            val groupingSeparator = LocaleDecimalFormat[Locale.getDefault()].decimalFormatSymbols.groupingSeparator
+            val (decimalSeparator, groupingSeparator) = MoneyFormat.separators(Locale.getDefault())
 
             val index = it.lastIndexOf(decimalSeparator)
             if (index != -1) {
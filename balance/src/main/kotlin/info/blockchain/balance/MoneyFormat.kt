@@ -0,0 +1,154 @@
+package info.blockchain.balance
+
+import java.math.BigDecimal
+import java.math.RoundingMode
+import java.text.DecimalFormat
+import java.text.NumberFormat
+import java.util.Currency
+import java.util.Locale
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Formats [Money] for display and the network.
+ *
+ * A [DecimalFormat] is costly to build and isn't thread safe, so one is built per template - the locale, currency
+ * and number of fraction digits, never the amount - and each thread formats with its own copy of it. The amounts
+ * themselves are formatted from their [BigDecimal], so no precision is lost on the way.
+ */
+internal object MoneyFormat {
+
+    private data class FiatTemplate(
+        val locale: Locale,
+        val currencyCode: String,
+        val includeSymbol: Boolean,
+        val minFractionDigits: Int,
+        val maxFractionDigits: Int
+    )
+
+    private data class CryptoTemplate(
+        val locale: Locale,
+        val maxFractionDigits: Int
+    )
+
+    private val fiatFormats = FormatCache<FiatTemplate> { template ->
+        (NumberFormat.getCurrencyInstance(template.locale) as DecimalFormat).apply {
+            decimalFormatSymbols = decimalFormatSymbols.apply {
+                currency = Currency.getInstance(template.currencyCode)
+                if (!template.includeSymbol) {
+                    currencySymbol = ""
+                }
+            }
+            minimumFractionDigits = template.minFractionDigits
+            maximumFractionDigits = template.maxFractionDigits
+            roundingMode = RoundingMode.DOWN
+        }
+    }
+
+    private val cryptoFormats = FormatCache<CryptoTemplate> { template ->
+        (NumberFormat.getInstance(template.locale) as DecimalFormat).apply {
+            minimumFractionDigits = 1
+            maximumFractionDigits = template.maxFractionDigits
+            roundingMode = RoundingMode.DOWN
+        }
+    }
+
+    private val separators: MutableMap<Locale, Separators> = ConcurrentHashMap()
+
+    val templateCount: Int
+        get() = fiatFormats.size + cryptoFormats.size
+
+    fun formatFiat(
+        locale: Locale,
+        value: FiatValue,
+        includeSymbol: Boolean,
+        includeDecimalsWhenWhole: Boolean = true
+    ): String {
+        val amount = value.toBigDecimal()
+        val defaultFractionDigits = Currency.getInstance(value.currencyCode).defaultFractionDigits
+        // In order to avoid losing values of cryptocurrencies denominated in fiat, we need to use the scale
+        // as a guide for fractional digits for values below the penny threshold. Of course we still need to limit
+        // the maximum in order to prevent content overflow on small screen.
+        val (minFractionDigits, maxFractionDigits) = when {
+            value.isPositive && value.toFloat() < FiatValue.PENNY_THRESHOLD ->
+                amount.scale().coerceIn(0, FiatValue.MAX_FRACTION_DIGITS) to FiatValue.MAX_FRACTION_DIGITS
+            includeDecimalsWhenWhole || !value.valueIsWholeNumber() ->
+                defaultFractionDigits to defaultFractionDigits
+            else -> 0 to 0
+        }
+        return fiatFormats[
+            FiatTemplate(locale, value.currencyCode, includeSymbol, minFractionDigits, maxFractionDigits)
+        ].format(amount)
+    }
+
+    /**
+     * Negative amounts are formatted as zero.
+     */
+    fun formatCrypto(
+        locale: Locale,
+        value: CryptoValue,
+        precision: FormatPrecision,
+        includeDecimalsWhenWhole: Boolean = true
+    ): String {
+        val maxFractionDigits = when {
+            includeDecimalsWhenWhole || !value.valueIsWholeNumber() -> when (precision) {
+                FormatPrecision.Short -> CryptoValue.DISPLAY_DP
+                FormatPrecision.Full -> value.currency.precisionDp
+            }
+            else -> 0
+        }
+        return cryptoFormats[CryptoTemplate(locale, maxFractionDigits)]
+            .format(value.toBigDecimal().max(BigDecimal.ZERO))
+            .toWebZero()
+    }
+
+    fun separators(locale: Locale): Separators =
+        separators.getOrPut(locale) {
+            (NumberFormat.getCurrencyInstance(locale) as DecimalFormat).decimalFormatSymbols.let {
+                Separators(decimal = it.decimalSeparator, grouping = it.groupingSeparator)
+            }
+        }
+
+    data class Separators(val decimal: Char, val grouping: Char)
+
+    /**
+     * Replace 0.0 with 0 to match web
+     */
+    private fun String.toWebZero() = if (this == "0.0" || this == "0,0" || this == "0.00") "0" else this
+}
+
+/**
+ * Holds one [DecimalFormat] per template, which is only ever copied, and a copy of it for every thread that has
+ * formatted with that template. There are few enough templates for them to be kept for the life of the app, but
+ * should that stop being true the cache is dropped and rebuilt rather than allowed to grow.
+ */
+internal class FormatCache<T : Any>(
+    private val maxSize: Int = DEFAULT_MAX_SIZE,
+    private val create: (T) -> DecimalFormat
+) {
+    private val templates: MutableMap<T, DecimalFormat> = ConcurrentHashMap()
+
+    private val threadFormats = object : ThreadLocal<MutableMap<T, DecimalFormat>>() {
+        override fun initialValue(): MutableMap<T, DecimalFormat> = HashMap()
+    }
+
+    operator fun get(template: T): DecimalFormat {
+        val formats = threadFormats.get()!!
+        return formats[template] ?: run {
+            if (formats.size >= maxSize) formats.clear()
+            (prototype(template).clone() as DecimalFormat).also { formats[template] = it }
+        }
+    }
+
+    val size: Int
+        get() = templates.size
+
+    private fun prototype(template: T): DecimalFormat =
+        templates[template] ?: create(template).also {
+            if (templates.size >= maxSize) templates.clear()
+            templates[template] = it
+        }
+
+    companion object {
+        private const val DEFAULT_MAX_SIZE = 256
+    }
+}
@@ -0,0 +1,90 @@
+package info.blockchain.balance
+
+import com.blockchain.testutils.bitcoin
+import com.blockchain.testutils.cad
+import com.blockchain.testutils.usd
+import java.math.BigDecimal
+import java.math.BigInteger
+import java.util.Locale
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import org.amshove.kluent.`should be equal to`
+import org.junit.Before
+import org.junit.Test
+
+class MoneyFormatTest {
+
+    @Before
+    fun setLocale() {
+        Locale.setDefault(Locale.US)
+    }
+
+    @Test
+    fun `amounts beyond double precision are formatted exactly`() {
+        CryptoValue(CryptoCurrency.ETHER, BigInteger("123456789123456789123456789"))
+            .formatWithUnit(Locale.US, FormatPrecision.Full) `should be equal to`
+            "123,456,789.123456789123456789 ETH"
+    }
+
+    @Test
+    fun `negative crypto amounts are formatted as zero`() {
+        (-1).bitcoin().toStringWithoutSymbol() `should be equal to` "0"
+    }
+
+    @Test
+    fun `sub penny fiat keeps its scale`() {
+        FiatValue.fromMajor(FiatCurrency.fromCurrencyCode("USD"), BigDecimal("0.00123"))
+            .toStringWithSymbol() `should be equal to` "$0.00123"
+    }
+
+    @Test
+    fun `parts use the separators of the default locale`() {
+        Locale.setDefault(Locale.GERMANY)
+
+        1234.5.cad().toStringParts().run {
+            decimalSeparator `should be equal to` ','
+            groupingSeparator `should be equal to` '.'
+            major `should be equal to` "1.234"
+            minor `should be equal to` "50"
+        }
+    }
+
+    @Test
+    fun `formatting from many threads gives the same results as formatting from one`() {
+        val amounts = (0 until 10_000).map { it.toBigDecimal().movePointLeft(2) }
+        val expected = amounts.map { it.usd().toStringWithSymbol() }
+        val executor = Executors.newFixedThreadPool(THREADS)
+
+        val results = List(THREADS) {
+            executor.submit(Callable { amounts.map { it.usd().toStringWithSymbol() } })
+        }.map { it.get() }
+        executor.shutdown()
+
+        results.forEach { it `should be equal to` expected }
+    }
+
+    /**
+     * Formatters used to be cached by amount, so every distinct amount formatted stayed in memory for good.
+     */
+    @Test
+    fun `formatting distinct amounts does not grow the cache`() {
+        repeat(100) { formatDistinct(it) }
+        val templates = MoneyFormat.templateCount
+
+        repeat(10_000) { formatDistinct(it) }
+
+        MoneyFormat.templateCount `should be equal to` templates
+    }
+
+    private fun formatDistinct(i: Int) {
+        val amount = BigDecimal.valueOf(i.toLong(), 2)
+        amount.usd().toStringWithSymbol()
+        amount.usd().toStringWithoutSymbol()
+        CryptoValue(CryptoCurrency.BTC, i.toBigInteger()).toStringWithSymbol()
+        CryptoValue(CryptoCurrency.BTC, i.toBigInteger()).toStringParts()
+    }
+
+    companion object {
+        private const val THREADS = 4
+    }
+}
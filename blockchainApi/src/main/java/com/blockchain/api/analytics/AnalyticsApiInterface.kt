@@ -4,6 +4,7 @@ import com.blockchain.analytics.AnalyticsContext
 import com.blockchain.analytics.NabuAnalyticsEvent
 import io.reactivex.rxjava3.core.Completable
 import kotlinx.serialization.Serializable
+import okhttp3.RequestBody
 import retrofit2.http.Body
 import retrofit2.http.Header
 import retrofit2.http.POST
@@ -14,6 +15,13 @@ interface AnalyticsApiInterface {
         @Header("authorization") authorization: String?,
         @Body body: AnalyticsRequestBody
     ): Completable
+
+    @POST("events/publish")
+    fun postAnalyticsCompressed(
+        @Header("authorization") authorization: String?,
+        @Header("Content-Encoding") contentEncoding: String,
+        @Body body: RequestBody
+    ): Completable
 }
 
 @Serializable
@@ -89,10 +89,13 @@ import com.blockchain.koin.kotlinXApiRetrofit
 import com.blockchain.koin.kotlinXCoinApiRetrofit
 import com.blockchain.koin.payloadScopeQualifier
 import com.blockchain.network.modules.OkHttpLoggingInterceptors
+import com.blockchain.network.websocket.ChannelSubscription
+import com.blockchain.network.websocket.ExponentialBackoff
 import com.blockchain.network.websocket.Options
 import com.blockchain.network.websocket.autoRetry
 import com.blockchain.network.websocket.debugLog
 import com.blockchain.network.websocket.newBlockchainWebSocket
+import com.blockchain.network.websocket.resubscribeOnReconnect
 import com.blockchain.network.websocket.toJsonSocket
 import com.blockchain.serializers.BigDecimalSerializer
 import com.blockchain.serializers.BigIntSerializer
@@ -317,7 +320,8 @@ val blockchainApiModule = module {
     factory {
         val api = get<Retrofit>(blockchainApi).create(AnalyticsApiInterface::class.java)
         AnalyticsService(
-            api
+            api = api,
+            json = get()
         )
     }
 
@@ -489,13 +493,16 @@ val blockchainApiModule = module {
                 .newBlockchainWebSocket(
                     options = Options(url = getBaseUrl("unified-activity-ws"))
                 )
-                .autoRetry()
+                .autoRetry(policy = ExponentialBackoff.withJitter(), name = "ACTIVITY")
                 .debugLog("ACTIVITY_LOG")
                 .toJsonSocket(
                     json = get(),
                     outgoingAdapter = ActivityRequest.serializer(),
                     incomingAdapter = ActivityResponse.serializer()
                 )
+                .resubscribeOnReconnect { request ->
+                    ChannelSubscription(channel = request.channel, subscribe = request.action == "subscribe")
+                }
             ActivityWebSocketService(
                 webSocket = webSocket,
                 activityCacheService = get(),
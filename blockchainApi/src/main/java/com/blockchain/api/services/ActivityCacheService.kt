@@ -4,5 +4,11 @@ import com.blockchain.api.selfcustody.activity.ActivityResponse
 
 interface ActivityCacheService {
     fun addOrUpdateActivityItems(items: ActivityResponse)
+
+    /**
+     * Adds or updates the items of several frames at once, implementations should write them in a single transaction
+     */
+    fun addOrUpdateActivityItems(batch: List<ActivityResponse>) = batch.forEach { addOrUpdateActivityItems(it) }
+
     fun clearActivityCache()
 }
@@ -6,6 +6,10 @@ import com.blockchain.api.selfcustody.activity.ActivityRequestParams
 import com.blockchain.api.selfcustody.activity.ActivityResponse
 import com.blockchain.network.websocket.ConnectionEvent
 import com.blockchain.network.websocket.WebSocket
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.schedulers.Schedulers
+import java.util.concurrent.TimeUnit
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.flow.collect
@@ -13,11 +17,18 @@ import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.rx3.asFlow
 
+/**
+ * Frames received within [BATCH_WINDOW_MILLIS] of each other are coalesced and written to the cache together, so that
+ * a burst of frames results in a single write and a single update of the activity list. A batch is written once the
+ * socket has been quiet for [BATCH_WINDOW_MILLIS], [MAX_BATCH_FRAMES] frames have arrived, or [MAX_BATCH_MILLIS] after
+ * its first frame, whichever comes first. Timers are only armed by incoming frames, so an idle socket never wakes up.
+ */
 class ActivityWebSocketService(
     private val webSocket: WebSocket<ActivityRequest, ActivityResponse>,
     private val activityCacheService: ActivityCacheService,
     private val credentials: SelfCustodyServiceAuthCredentials,
-    private val wsScope: CoroutineScope
+    private val wsScope: CoroutineScope,
+    private val batchScheduler: Scheduler = Schedulers.computation()
 ) {
     private var isActive: Boolean = false
     private var activityJob: Job? = null
@@ -30,7 +41,25 @@ class ActivityWebSocketService(
                         ConnectionEvent.Connected -> {
                             isActive = true
                             activityJob = wsScope.launch {
-                                webSocket.responses.asFlow()
+                                webSocket.responses
+                                    .publish { frames ->
+                                        frames.window(
+                                            Observable.merge(
+                                                frames.debounce(
+                                                    BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS, batchScheduler
+                                                ),
+                                                // Closes a window at the latest MAX_BATCH_MILLIS after its first frame
+                                                frames
+                                                    .throttleFirst(
+                                                        MAX_BATCH_MILLIS, TimeUnit.MILLISECONDS, batchScheduler
+                                                    )
+                                                    .delay(MAX_BATCH_MILLIS, TimeUnit.MILLISECONDS, batchScheduler)
+                                            )
+                                        )
+                                    }
+                                    .concatMap { it.buffer(MAX_BATCH_FRAMES) }
+                                    .filter { it.isNotEmpty() }
+                                    .asFlow()
                                     .collect {
                                         activityCacheService.addOrUpdateActivityItems(it)
                                     }
@@ -79,5 +108,8 @@ class ActivityWebSocketService(
     companion object {
         private const val UNIFIED_ACTIVITY_WS_ACTION = "subscribe"
         private const val UNIFIED_ACTIVITY_WS_CHANNEL = "activity"
+        private const val BATCH_WINDOW_MILLIS = 250L
+        private const val MAX_BATCH_MILLIS = 1_000L
+        private const val MAX_BATCH_FRAMES = 50
     }
 }
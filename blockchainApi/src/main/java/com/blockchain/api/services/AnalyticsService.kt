@@ -8,10 +8,17 @@ import com.blockchain.api.analytics.AnalyticsApiInterface
 import com.blockchain.api.analytics.AnalyticsRequestBody
 import com.blockchain.serializers.BigDecimalSerializer
 import io.reactivex.rxjava3.core.Completable
+import java.io.ByteArrayOutputStream
+import java.util.zip.GZIPOutputStream
 import kotlinx.serialization.UseSerializers
+import kotlinx.serialization.json.Json
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.RequestBody
+import okhttp3.RequestBody.Companion.toRequestBody
 
 class AnalyticsService internal constructor(
-    private val api: AnalyticsApiInterface
+    private val api: AnalyticsApiInterface,
+    private val json: Json
 ) {
     fun postEvents(
         events: List<NabuAnalyticsEvent>,
@@ -19,18 +26,37 @@ class AnalyticsService internal constructor(
         analyticsContext: AnalyticsContext,
         platform: String,
         device: String,
-        authorization: String?
+        authorization: String?,
+        gzip: Boolean = false
     ): Completable {
 
-        return api.postAnalytics(
-            authorization,
-            AnalyticsRequestBody(
-                id = id,
-                device = device,
-                platform = platform,
-                events = events,
-                context = analyticsContext
-            )
+        val body = AnalyticsRequestBody(
+            id = id,
+            device = device,
+            platform = platform,
+            events = events,
+            context = analyticsContext
         )
+
+        return if (gzip) {
+            Completable.defer {
+                api.postAnalyticsCompressed(authorization, GZIP_ENCODING, body.gzipped())
+            }
+        } else {
+            api.postAnalytics(authorization, body)
+        }
+    }
+
+    private fun AnalyticsRequestBody.gzipped(): RequestBody {
+        val bytes = ByteArrayOutputStream()
+        GZIPOutputStream(bytes).use {
+            it.write(json.encodeToString(AnalyticsRequestBody.serializer(), this).toByteArray())
+        }
+        return bytes.toByteArray().toRequestBody(JSON_MEDIA_TYPE)
+    }
+
+    companion object {
+        private const val GZIP_ENCODING = "gzip"
+        private val JSON_MEDIA_TYPE = "application/json".toMediaType()
     }
 }
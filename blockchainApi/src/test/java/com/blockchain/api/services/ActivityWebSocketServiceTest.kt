@@ -0,0 +1,112 @@
+package com.blockchain.api.services
+
+import com.blockchain.api.selfcustody.activity.ActivityRequest
+import com.blockchain.api.selfcustody.activity.ActivityResponse
+import com.blockchain.network.websocket.ConnectionEvent
+import com.blockchain.network.websocket.WebSocket
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.never
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.verifyNoMoreInteractions
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import io.reactivex.rxjava3.subjects.PublishSubject
+import java.util.concurrent.TimeUnit
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.cancel
+import org.junit.After
+import org.junit.Test
+
+class ActivityWebSocketServiceTest {
+
+    private val connectionEventsSubject = PublishSubject.create<ConnectionEvent>()
+    private val responsesSubject = PublishSubject.create<ActivityResponse>()
+    private val webSocket: WebSocket<ActivityRequest, ActivityResponse> = mock {
+        on { connectionEvents } doReturn connectionEventsSubject
+        on { responses } doReturn responsesSubject
+    }
+    private val activityCacheService: ActivityCacheService = mock()
+    private val scheduler = TestScheduler()
+    private val wsScope = CoroutineScope(Dispatchers.Unconfined)
+
+    init {
+        ActivityWebSocketService(webSocket, activityCacheService, mock(), wsScope, scheduler)
+        connectionEventsSubject.onNext(ConnectionEvent.Connected)
+    }
+
+    @After
+    fun tearDown() {
+        wsScope.cancel()
+    }
+
+    @Test
+    fun `frames received within the batch window are written together`() {
+        val frames = (1..3).map { mock<ActivityResponse>() }
+
+        frames.forEach { responsesSubject.onNext(it) }
+        verify(activityCacheService, never()).addOrUpdateActivityItems(any<List<ActivityResponse>>())
+        scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS)
+
+        verify(activityCacheService).addOrUpdateActivityItems(frames)
+    }
+
+    @Test
+    fun `a batch is written once the socket goes quiet`() {
+        val frames = (1..3).map { mock<ActivityResponse>() }
+
+        frames.forEach {
+            responsesSubject.onNext(it)
+            scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS)
+        }
+        verify(activityCacheService, never()).addOrUpdateActivityItems(any<List<ActivityResponse>>())
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS)
+
+        verify(activityCacheService).addOrUpdateActivityItems(frames)
+    }
+
+    @Test
+    fun `a steady trickle of frames is written a second after its first frame`() {
+        val frames = (1..10).map { mock<ActivityResponse>() }
+
+        frames.forEach {
+            verify(activityCacheService, never()).addOrUpdateActivityItems(any<List<ActivityResponse>>())
+            responsesSubject.onNext(it)
+            scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS)
+        }
+
+        verify(activityCacheService).addOrUpdateActivityItems(frames)
+    }
+
+    @Test
+    fun `idle sockets are not written`() {
+        val frame = mock<ActivityResponse>()
+
+        responsesSubject.onNext(frame)
+        scheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+
+        verify(activityCacheService).addOrUpdateActivityItems(listOf(frame))
+        verifyNoMoreInteractions(activityCacheService)
+    }
+
+    @Test
+    fun `full batches are written straight away`() {
+        val frames = (1..50).map { mock<ActivityResponse>() }
+
+        frames.forEach { responsesSubject.onNext(it) }
+
+        verify(activityCacheService).addOrUpdateActivityItems(frames)
+    }
+
+    @Test
+    fun `frames after a full batch are written when the socket goes quiet`() {
+        val frames = (1..52).map { mock<ActivityResponse>() }
+
+        frames.forEach { responsesSubject.onNext(it) }
+        scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS)
+
+        verify(activityCacheService).addOrUpdateActivityItems(frames.take(50))
+        verify(activityCacheService).addOrUpdateActivityItems(frames.drop(50))
+    }
+}
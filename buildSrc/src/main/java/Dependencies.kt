@@ -262,6 +262,7 @@ object Libraries {
     const val okHttpInterceptor = "com.squareup.okhttp3:logging-interceptor:${Versions.okHttp}"
     const val gson = "com.google.code.gson:gson:${Versions.gson}"
     const val kotlinJson = "org.jetbrains.kotlinx:kotlinx-serialization-json:${Versions.kotlinJson}"
+    const val kotlinCbor = "org.jetbrains.kotlinx:kotlinx-serialization-cbor:${Versions.kotlinJson}"
 
     // SqlDelight
     const val sqlDelight = "com.squareup.sqldelight:android-driver:${Versions.sqlDelight}"
@@ -0,0 +1,99 @@
+package com.blockchain.coincore
+
+import info.blockchain.balance.ExchangeRate
+import info.blockchain.balance.Money
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.schedulers.Schedulers
+import java.util.concurrent.TimeUnit
+
+/**
+ * Keeps the fiat total of a group of accounts up to date as their balances change. Each new balance replaces the
+ * previous contribution of its account in running totals, so a balance update costs the same however many accounts
+ * there are, where summing every account again made loading a large group quadratic.
+ *
+ * Not thread safe, every update must come from the same stream.
+ */
+internal class AccountBalanceAggregator {
+
+    private class Contribution(
+        val total: Money,
+        val withdrawable: Money,
+        val pending: Money,
+        val dashboardDisplay: Money
+    )
+
+    private val contributions = HashMap<BlockchainAccount, Contribution>()
+    private var totals: Contribution? = null
+
+    fun update(account: BlockchainAccount, balance: AccountBalance): AccountBalance {
+        val contribution = balance.toContribution()
+        val previous = contributions.put(account, contribution)
+        val current = totals
+        val updated = when {
+            current == null -> contribution
+            previous == null -> current + contribution
+            else -> current - previous + contribution
+        }
+        totals = updated
+
+        // A single account keeps its own balance and rate, as the group's balance always has
+        return if (contributions.size == 1) {
+            balance
+        } else {
+            AccountBalance(
+                total = updated.total,
+                withdrawable = updated.withdrawable,
+                pending = updated.pending,
+                dashboardDisplay = updated.dashboardDisplay,
+                exchangeRate = ExchangeRate.identityExchangeRate(updated.total.currency)
+            )
+        }
+    }
+
+    private fun AccountBalance.toContribution() =
+        Contribution(
+            total = exchangeRate.convert(total),
+            withdrawable = exchangeRate.convert(withdrawable),
+            pending = exchangeRate.convert(pending),
+            dashboardDisplay = exchangeRate.convert(dashboardDisplay)
+        )
+
+    private operator fun Contribution.plus(other: Contribution) =
+        Contribution(
+            total = total + other.total,
+            withdrawable = withdrawable + other.withdrawable,
+            pending = pending + other.pending,
+            dashboardDisplay = dashboardDisplay + other.dashboardDisplay
+        )
+
+    private operator fun Contribution.minus(other: Contribution) =
+        Contribution(
+            total = total - other.total,
+            withdrawable = withdrawable - other.withdrawable,
+            pending = pending - other.pending,
+            dashboardDisplay = dashboardDisplay - other.dashboardDisplay
+        )
+
+    companion object {
+        // Fast enough to look live, slow enough that a group loading hundreds of balances doesn't redraw for each
+        private const val EMIT_INTERVAL_MILLIS = 100L
+
+        /**
+         * The total balance of [accounts], emitted at most once every [intervalMillis] with the latest total.
+         */
+        fun balanceOf(
+            accounts: List<BlockchainAccount>,
+            intervalMillis: Long = EMIT_INTERVAL_MILLIS,
+            scheduler: Scheduler = Schedulers.computation()
+        ): Observable<AccountBalance> =
+            Observable.defer {
+                val aggregator = AccountBalanceAggregator()
+                Observable.fromIterable(accounts).flatMap { account ->
+                    account.balanceRx.map { balance -> account to balance }
+                }.map { (account, balance) ->
+                    aggregator.update(account, balance)
+                }
+            }.throttleLatest(intervalMillis, TimeUnit.MILLISECONDS, scheduler, true)
+    }
+}
@@ -88,8 +88,6 @@ class Coincore internal constructor(
     fun validateSecondPassword(secondPassword: String) =
         payloadManager.validateSecondPassword(secondPassword)
 
-    private fun allLoadedAssets() = assetLoader.loadedAssets
-
     fun allWallets(includeArchived: Boolean = false): Single<AccountGroup> =
         walletsWithFilter(includeArchived, AssetFilter.All).map { list ->
             AllWalletsAccount(list, defaultLabels, currencyPrefs.selectedFiatCurrency)
@@ -136,17 +134,19 @@ class Coincore internal constructor(
         }
 
     private fun walletsWithFilter(includeArchived: Boolean = false, filter: AssetFilter): Single<List<SingleAccount>> =
-        Maybe.concat(
-            allLoadedAssets().map {
-                it.accountGroup(filter).map { grp -> grp.accounts }
-                    .map { list ->
-                        list.filter { account ->
-                            (includeArchived || account !is CryptoAccount) || !account.isArchived
+        assetLoader.walletAssets(filter.walletMode()).asObservable().firstOrError().flatMap { assets ->
+            Maybe.concat(
+                assets.map {
+                    it.accountGroup(filter).map { grp -> grp.accounts }
+                        .map { list ->
+                            list.filter { account ->
+                                (includeArchived || account !is CryptoAccount) || !account.isArchived
+                            }
                         }
-                    }
-            }
-        ).reduce { a, l -> a + l }
-            .toSingle()
+                }
+            ).reduce { a, l -> a + l }
+                .toSingle()
+        }
 
     private fun allCustodialWallets(): Single<AccountGroup> =
         walletsWithFilter(filter = AssetFilter.Custodial).map { list ->
@@ -327,6 +327,16 @@ class Coincore internal constructor(
             }
         }
 
+    private fun AssetFilter.walletMode(): WalletMode =
+        when (this) {
+            AssetFilter.All -> WalletMode.UNIVERSAL
+            AssetFilter.NonCustodial -> WalletMode.NON_CUSTODIAL_ONLY
+            AssetFilter.Trading,
+            AssetFilter.Interest,
+            AssetFilter.Staking,
+            AssetFilter.Custodial -> WalletMode.CUSTODIAL_ONLY
+        }
+
     private fun BlockchainAccount.isSameType(other: BlockchainAccount): Boolean {
         if (this is CustodialTradingAccount && other is CustodialTradingAccount) return true
         if (this is NonCustodialAccount && other is NonCustodialAccount) return true
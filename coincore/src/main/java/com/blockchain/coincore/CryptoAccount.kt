@@ -256,26 +256,7 @@ interface MultipleCurrenciesAccountGroup : AccountGroup {
             if (accounts.isEmpty())
                 Observable.just(AccountBalance.zero(baseCurrency))
             else
-                Single.just(accounts).flattenAsObservable { it }.flatMap { account ->
-                    account.balanceRx.map { balance ->
-                        mapOf(account to balance)
-                    }
-                }.scan { a, v ->
-                    a + v
-                }.map {
-                    it.values.reduce { a, v ->
-                        AccountBalance(
-                            total = a.exchangeRate.convert(a.total) + v.exchangeRate.convert(v.total),
-                            withdrawable = a.exchangeRate.convert(a.withdrawable) + v.exchangeRate.convert(
-                                v.withdrawable
-                            ),
-                            pending = a.exchangeRate.convert(a.pending) + v.exchangeRate.convert(v.pending),
-                            dashboardDisplay = a.exchangeRate.convert(a.dashboardDisplay) +
-                                v.exchangeRate.convert(v.dashboardDisplay),
-                            exchangeRate = ExchangeRate.identityExchangeRate(a.exchangeRate.to)
-                        )
-                    }
-                }
+                AccountBalanceAggregator.balanceOf(accounts)
 
     /**
      * Balance is calculated in the selected fiat currency
@@ -22,6 +22,8 @@ import com.blockchain.core.chains.bitcoin.SendDataManager
 import com.blockchain.core.fees.FeeDataManager
 import com.blockchain.core.limits.TxLimits
 import com.blockchain.core.payload.PayloadDataManager
+import com.blockchain.featureflag.FeatureFlag
+import com.blockchain.koin.branchAndBoundCoinSelectionFeatureFlag
 import com.blockchain.logging.RemoteLogger
 import com.blockchain.nabu.datamanagers.TransactionError
 import com.blockchain.preferences.WalletStatusPrefs
@@ -37,6 +39,7 @@ import info.blockchain.wallet.api.data.FeeOptions
 import info.blockchain.wallet.api.dust.data.DustInput
 import info.blockchain.wallet.payload.data.XPubs
 import info.blockchain.wallet.payload.model.Utxo
+import info.blockchain.wallet.payment.CoinSelectionMode
 import info.blockchain.wallet.payment.Payment
 import info.blockchain.wallet.payment.SpendableUnspentOutputs
 import info.blockchain.wallet.util.FormatsUtil
@@ -101,6 +104,8 @@ class BtcOnChainTxEngine(
     private val sourceAssetInfo: AssetInfo
         get() = sourceAsset.asAssetInfoOrThrow()
 
+    private val branchAndBoundFlag: FeatureFlag by inject(branchAndBoundCoinSelectionFeatureFlag)
+
     override fun doInitialiseTx(): Single<PendingTx> =
         Single.just(
             PendingTx(
@@ -126,15 +131,17 @@ class BtcOnChainTxEngine(
         Single.zip(
             sourceAccount.balanceRx.firstOrError().map { it.total as CryptoValue },
             getDynamicFeesPerKb(pendingTx),
-            getUnspentApiResponse(btcSource.xpubs)
-        ) { total, optionsAndFeesPerKb, coins ->
+            getUnspentApiResponse(btcSource.xpubs),
+            branchAndBoundFlag.enabled.onErrorReturnItem(false)
+        ) { total, optionsAndFeesPerKb, coins, branchAndBound ->
             updatePendingTxFromAmount(
                 amount as CryptoValue,
                 total,
                 pendingTx,
                 optionsAndFeesPerKb.second,
                 optionsAndFeesPerKb.first,
-                coins
+                coins,
+                if (branchAndBound) CoinSelectionMode.BranchAndBound() else CoinSelectionMode.Accumulative
             )
         }.onErrorReturnItem(
             pendingTx.copy(
@@ -182,7 +189,8 @@ class BtcOnChainTxEngine(
         pendingTx: PendingTx,
         feesPerKb: Map<FeeLevel, Money>,
         feeOptions: FeeOptions,
-        coins: List<Utxo>
+        coins: List<Utxo>,
+        coinSelectionMode: CoinSelectionMode
     ): PendingTx {
         val regularFee = feesPerKb[FeeLevel.Regular]
         val priorityFee = feesPerKb[FeeLevel.Priority]
@@ -208,7 +216,8 @@ class BtcOnChainTxEngine(
             targetOutputType = targetOutputType,
             changeOutputType = changeOutputType,
             paymentAmount = amount,
-            feePerKb = regularFee
+            feePerKb = regularFee,
+            coinSelectionMode = coinSelectionMode
         )
 
         val coinsSelectedForPriorityFee = sendDataManager.getSpendableCoins(
@@ -216,7 +225,8 @@ class BtcOnChainTxEngine(
             targetOutputType = targetOutputType,
             changeOutputType = changeOutputType,
             paymentAmount = amount,
-            feePerKb = priorityFee
+            feePerKb = priorityFee,
+            coinSelectionMode = coinSelectionMode
         )
 
         val utxoBundle = when (selectedFeeLevel) {
@@ -227,7 +237,8 @@ class BtcOnChainTxEngine(
                 targetOutputType = targetOutputType,
                 changeOutputType = changeOutputType,
                 paymentAmount = amount,
-                feePerKb = feeForLevel
+                feePerKb = feeForLevel,
+                coinSelectionMode = coinSelectionMode
             )
         }
 
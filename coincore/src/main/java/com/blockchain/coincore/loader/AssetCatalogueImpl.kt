@@ -5,10 +5,8 @@ import info.blockchain.balance.AssetCatalogue
 import info.blockchain.balance.AssetInfo
 import info.blockchain.balance.Currency
 import info.blockchain.balance.FiatCurrency
-import info.blockchain.balance.isCustodial
 import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.kotlin.zipWith
-import java.util.Locale
 import java.util.concurrent.atomic.AtomicReference
 
 class AssetCatalogueImpl internal constructor(
@@ -16,41 +14,35 @@ class AssetCatalogueImpl internal constructor(
     private val assetsDataManager: DynamicAssetsDataManager,
 ) : AssetCatalogue {
 
-    private val fullAssetLookup: AtomicReference<Map<String, Currency>> = AtomicReference(emptyMap())
+    private val snapshot: AtomicReference<AssetCatalogueSnapshot> = AtomicReference(AssetCatalogueSnapshot.EMPTY)
 
     fun initialise(): Single<Set<Currency>> =
-        if (fullAssetLookup.get().isNotEmpty()) {
-            Single.just(fullAssetLookup.get().values.toSet())
+        if (!snapshot.get().isEmpty()) {
+            Single.just(snapshot.get().all)
         } else {
             assetsService.availableCryptoAssets().zipWith(assetsDataManager.availableFiatAssets())
                 .map { (cryptos, fiats) ->
-                    cryptos.plus(fiats)
+                    AssetCatalogueSnapshot(cryptos.plus(fiats))
                 }.doOnSuccess { enabledAssets ->
-                    fullAssetLookup.set(
-                        enabledAssets.associateBy { it.networkTicker.uppercase(Locale.ROOT) }
-                    )
+                    snapshot.set(enabledAssets)
                 }.map {
-                    fullAssetLookup.get().values.toSet()
+                    it.all
                 }
         }
 
-    // Brute force impl for now, but this will operate from a downloaded cache ultimately
     override fun fromNetworkTicker(symbol: String): Currency? =
-        fullAssetLookup.get()[symbol.uppercase()]
+        snapshot.get().fromNetworkTicker(symbol)
 
     override fun fiatFromNetworkTicker(symbol: String): FiatCurrency? =
-        fullAssetLookup.get()[symbol.uppercase()]?.asFiatCurrencyOrNull()
+        snapshot.get().fromNetworkTicker(symbol)?.asFiatCurrencyOrNull()
 
     override fun assetInfoFromNetworkTicker(symbol: String): AssetInfo? =
-        fullAssetLookup.get()[symbol.uppercase()]?.asAssetInfoOrNull()
+        snapshot.get().fromNetworkTicker(symbol)?.asAssetInfoOrNull()
 
     override fun assetFromL1ChainByContractAddress(
         l1chain: String,
         contractAddress: String
-    ): AssetInfo? = fullAssetLookup.get().values.filterIsInstance<AssetInfo>().firstOrNull { asset ->
-        asset.l1chainTicker == l1chain &&
-            asset.l2identifier?.equals(contractAddress, ignoreCase = true) == true
-    }
+    ): AssetInfo? = snapshot.get().assetFromL1ChainByContractAddress(l1chain, contractAddress)
 
     private fun Currency.asAssetInfoOrNull(): AssetInfo? {
         return (this as? AssetInfo)
@@ -61,16 +53,16 @@ class AssetCatalogueImpl internal constructor(
     }
 
     override val supportedCryptoAssets: List<AssetInfo>
-        get() = fullAssetLookup.get().values.filterIsInstance<AssetInfo>().toList()
+        get() = snapshot.get().cryptoAssets
 
     override val supportedCustodialAssets: List<AssetInfo>
-        get() = supportedCryptoAssets.filter { it.isCustodial }
+        get() = snapshot.get().custodialAssets
 
     override val supportedFiatAssets: List<FiatCurrency>
-        get() = fullAssetLookup.get().values.filterIsInstance<FiatCurrency>().toList()
+        get() = snapshot.get().fiatAssets
 
     override fun supportedL2Assets(chain: AssetInfo): List<AssetInfo> =
-        supportedCryptoAssets.filter { it.l1chainTicker == chain.networkTicker }
+        snapshot.get().l2Assets(chain.networkTicker)
 
     override fun availableL1Assets(): Single<List<AssetInfo>> = assetsService.availableL1Assets()
 
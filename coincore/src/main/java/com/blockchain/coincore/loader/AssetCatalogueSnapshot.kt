@@ -0,0 +1,74 @@
+package com.blockchain.coincore.loader
+
+import info.blockchain.balance.AssetInfo
+import info.blockchain.balance.Currency
+import info.blockchain.balance.FiatCurrency
+import info.blockchain.balance.isCustodial
+import java.util.Locale
+import java.util.TreeMap
+
+/**
+ * Immutable view of every currency the catalogue knows about, indexed once so that lookups never scan or filter
+ * the whole catalogue. Where several currencies share a ticker the last one wins, as it did when the catalogue was
+ * a single map; every other index keeps the first match.
+ */
+internal class AssetCatalogueSnapshot(currencies: List<Currency>) {
+
+    // Keyed by the uppercased network ticker
+    private val byTicker: Map<String, Currency>
+
+    // Keyed by l1 chain ticker, then by contract address ignoring case
+    private val byContractAddress: Map<String, Map<String, AssetInfo>>
+    private val l2sByChain: Map<String, List<AssetInfo>>
+
+    val all: Set<Currency>
+    val cryptoAssets: List<AssetInfo>
+    val custodialAssets: List<AssetInfo>
+    val fiatAssets: List<FiatCurrency>
+
+    init {
+        byTicker = currencies.associateBy { it.networkTicker.uppercase(Locale.ROOT) }
+        all = byTicker.values.toSet()
+
+        val cryptos = mutableListOf<AssetInfo>()
+        val fiats = mutableListOf<FiatCurrency>()
+        val contracts = mutableMapOf<String, TreeMap<String, AssetInfo>>()
+        val l2s = mutableMapOf<String, MutableList<AssetInfo>>()
+        byTicker.values.forEach { currency ->
+            when (currency) {
+                is AssetInfo -> {
+                    cryptos += currency
+                    currency.l1chainTicker?.let { chain ->
+                        l2s.getOrPut(chain) { mutableListOf() } += currency
+                        currency.l2identifier?.let { contractAddress ->
+                            contracts.getOrPut(chain) { TreeMap(String.CASE_INSENSITIVE_ORDER) }
+                                .putIfAbsent(contractAddress, currency)
+                        }
+                    }
+                }
+                is FiatCurrency -> fiats += currency
+            }
+        }
+        cryptoAssets = cryptos
+        custodialAssets = cryptos.filter { it.isCustodial }
+        fiatAssets = fiats
+        byContractAddress = contracts
+        l2sByChain = l2s
+    }
+
+    fun isEmpty(): Boolean = byTicker.isEmpty()
+
+    // Tickers almost always arrive uppercased already, so only allocate an uppercased copy when they don't
+    fun fromNetworkTicker(symbol: String): Currency? =
+        byTicker[symbol] ?: byTicker[symbol.uppercase(Locale.ROOT)]
+
+    fun assetFromL1ChainByContractAddress(l1chain: String, contractAddress: String): AssetInfo? =
+        byContractAddress[l1chain]?.get(contractAddress)
+
+    fun l2Assets(l1chain: String): List<AssetInfo> =
+        l2sByChain[l1chain].orEmpty()
+
+    companion object {
+        val EMPTY = AssetCatalogueSnapshot(emptyList())
+    }
+}
@@ -13,9 +13,9 @@ internal interface AssetLoader {
     // Portfolio screen.
     fun activeAssets(walletMode: WalletMode): Flow<List<Asset>>
 
-    // The assets which have been loaded so far. On startup we load the L1s, the assets with Custodial support and
-    // the active assets. This list is used for Swap targets.
-    val loadedAssets: List<Asset>
+    // The assets whose accounts make up the wallet: those created so far plus those with balances. On startup we only
+    // create the L1s, so the assets nobody holds aren't created just to list their empty accounts.
+    fun walletAssets(walletMode: WalletMode): Flow<List<Asset>>
 
     operator fun get(asset: Currency): Asset
 }
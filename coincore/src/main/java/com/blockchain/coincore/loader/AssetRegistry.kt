@@ -0,0 +1,37 @@
+package com.blockchain.coincore.loader
+
+import com.blockchain.coincore.Asset
+import info.blockchain.balance.Currency
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Holds every [Asset] created so far, creating each one the first time it's asked for. It's safe to look assets up
+ * from any thread, and each one is only ever created once.
+ */
+internal class AssetRegistry(
+    private val createAsset: (Currency) -> Asset
+) {
+    private val assets = ConcurrentHashMap<Currency, Asset>()
+
+    // Replaced, never mutated, so it can be read without locking. [all] lists these first, in this order
+    @Volatile
+    private var preloaded: List<Currency> = emptyList()
+
+    operator fun get(currency: Currency): Asset =
+        assets[currency] ?: assets.computeIfAbsent(currency) { createAsset(it) }
+
+    /**
+     * Registers assets that have already been created. If an asset has been created for the same currency, the
+     * one already registered is kept.
+     */
+    fun putAll(loaded: Collection<Asset>) {
+        loaded.forEach { assets.putIfAbsent(it.currency, it) }
+        preloaded = preloaded + loaded.map { it.currency }
+    }
+
+    /**
+     * The assets created so far.
+     */
+    val all: List<Asset>
+        get() = (preloaded + assets.keys).distinct().mapNotNull { assets[it] }
+}
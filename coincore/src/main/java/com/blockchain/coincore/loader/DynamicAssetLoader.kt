@@ -58,6 +58,7 @@ import kotlinx.coroutines.flow.emitAll
 import kotlinx.coroutines.flow.filterIsInstance
 import kotlinx.coroutines.flow.flatMapConcat
 import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.rx3.await
 import timber.log.Timber
 
@@ -90,9 +91,10 @@ internal class DynamicAssetLoader(
     private val walletModeService: WalletModeService
 ) : AssetLoader {
 
-    private val assetMap = mutableMapOf<Currency, Asset>()
-    override operator fun get(asset: Currency): Asset =
-        assetMap[asset] ?: attemptLoadAsset(asset)
+    private val assets = AssetRegistry(::attemptLoadAsset)
+    private val startupTracer = StartupTracer()
+
+    override operator fun get(asset: Currency): Asset = assets[asset]
 
     private fun attemptLoadAsset(currency: Currency): Asset =
         when {
@@ -101,9 +103,6 @@ internal class DynamicAssetLoader(
             (currency as? AssetInfo)?.isDelegatedNonCustodial == true -> loadSelfCustodialAsset(currency)
             currency is FiatCurrency -> FiatAsset(currency)
             else -> throw IllegalStateException("Unknown asset type enabled: ${currency.networkTicker}")
-        }.also {
-            check(currency !in assetMap.keys) { "Asset already loaded" }
-            assetMap[currency] = it
         }
 
     private val enabledEvmL1Assets: Single<Set<CryptoAsset>>
@@ -187,22 +186,16 @@ internal class DynamicAssetLoader(
     * */
     override fun initAndPreload(): Completable {
         return Singles.zip(
-            assetCatalogue.initialise(),
-            enabledEvmL1Assets
+            startupTracer.trace("assetCatalogue.initialise", assetCatalogue.initialise()),
+            startupTracer.trace("enabledEvmL1Assets", enabledEvmL1Assets)
         )
             .doOnSubscribe { remoteLogger.logEvent("Coincore init started") }
-            .flatMap { (supportedAssets, supportedEvmL1Assets) ->
-                initNonCustodialAssets(nonCustodialAssets.plus(supportedEvmL1Assets)).toSingle {
-                    loadErc20AndCustodialAssets(
-                        allAssets = supportedAssets
-                    )
-                }.map { loadedAssets ->
-                    nonCustodialAssets + supportedEvmL1Assets + loadedAssets
-                }
+            .flatMap { (_, supportedEvmL1Assets) ->
+                val l1Assets = nonCustodialAssets + supportedEvmL1Assets
+                startupTracer.trace("initNonCustodialAssets", initNonCustodialAssets(l1Assets)).toSingle { l1Assets }
             }
-            .doOnSuccess {
-                assetList ->
-                assetList.map { it.currency.networkTicker }.let { ids ->
+            .doOnSuccess { l1Assets ->
+                l1Assets.map { it.currency.networkTicker }.let { ids ->
                     /**
                      * checking that values here are unique
                      */
@@ -211,10 +204,8 @@ internal class DynamicAssetLoader(
                 /**
                  * Persisting to loaded any custodial+the standardL1s
                  */
-                assetMap.putAll(
-                    assetList.filter { it.currency.isCustodial || it is StandardL1Asset }
-                        .associateBy { it.currency }
-                )
+                assets.putAll(l1Assets.filter { it.currency.isCustodial || it is StandardL1Asset })
+                Timber.d(startupTracer.summary())
             }
             .doOnError { Timber.e("init failed") }
             .ignoreElement()
@@ -236,16 +227,6 @@ internal class DynamicAssetLoader(
             }
         }.zipSingles().subscribeOn(Schedulers.io()).ignoreElement()
 
-    private fun loadErc20AndCustodialAssets(allAssets: Set<Currency>): List<Asset> =
-        allAssets.mapNotNull { currency ->
-            when {
-                currency.isErc20() -> loadErc20Asset(currency)
-                currency is AssetInfo && currency.isCustodialOnly -> loadCustodialOnlyAsset(currency)
-                currency is FiatCurrency -> FiatAsset(currency)
-                else -> null
-            }
-        }
-
     /**
      * We need to request:
      * - All erc20 with balance.
@@ -441,6 +422,8 @@ internal class DynamicAssetLoader(
         }
     }
 
-    override val loadedAssets: List<Asset>
-        get() = assetMap.values.toList()
+    override fun walletAssets(walletMode: WalletMode): Flow<List<Asset>> =
+        activeAssets(walletMode).map { active ->
+            (assets.all.map { it.currency } + active.map { it.currency }).distinct().map { this[it] }
+        }
 }
@@ -0,0 +1,50 @@
+package com.blockchain.coincore.loader
+
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Single
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Records how long each phase of start up takes, from subscription until it completes or fails, so that changes
+ * to the time it takes to start the app can be measured. Phases may run concurrently.
+ */
+internal class StartupTracer(
+    private val nanoTime: () -> Long = System::nanoTime
+) {
+    private val durations = ConcurrentHashMap<String, Long>()
+
+    fun <T : Any> trace(phase: String, single: Single<T>): Single<T> =
+        Single.defer {
+            val start = nanoTime()
+            single.doFinally { record(phase, start) }
+        }
+
+    fun trace(phase: String, completable: Completable): Completable =
+        Completable.defer {
+            val start = nanoTime()
+            completable.doFinally { record(phase, start) }
+        }
+
+    fun <T> trace(phase: String, block: () -> T): T {
+        val start = nanoTime()
+        return try {
+            block()
+        } finally {
+            record(phase, start)
+        }
+    }
+
+    // The latest duration of every phase, in millis
+    fun phases(): Map<String, Long> =
+        durations.mapValues { (_, nanos) -> TimeUnit.NANOSECONDS.toMillis(nanos) }
+
+    fun summary(): String =
+        phases().entries
+            .sortedByDescending { it.value }
+            .joinToString(prefix = "Coincore init phases: ") { (phase, millis) -> "$phase ${millis}ms" }
+
+    private fun record(phase: String, start: Long) {
+        durations[phase] = nanoTime() - start
+    }
+}
@@ -0,0 +1,137 @@
+package com.blockchain.coincore
+
+import com.blockchain.testutils.USD
+import com.blockchain.testutils.bitcoin
+import com.blockchain.testutils.ether
+import com.blockchain.testutils.usd
+import com.nhaarman.mockitokotlin2.mock
+import info.blockchain.balance.CryptoCurrency
+import info.blockchain.balance.ExchangeRate
+import info.blockchain.balance.Money
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import io.reactivex.rxjava3.subjects.PublishSubject
+import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class AccountBalanceAggregatorTest {
+
+    private val scheduler = TestScheduler()
+
+    @Test
+    fun `balances are converted to fiat and summed`() {
+        val btc = PublishSubject.create<AccountBalance>()
+        val eth = PublishSubject.create<AccountBalance>()
+
+        val test = AccountBalanceAggregator.balanceOf(listOf(account(btc), account(eth)), 100, scheduler).test()
+        btc.onNext(balance(1.bitcoin(), BTC_TO_USD))
+        eth.onNext(balance(2.ether(), ETH_TO_USD))
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS)
+
+        test.values().last().run {
+            total `should be equal to` 24_000.usd()
+            withdrawable `should be equal to` 24_000.usd()
+            pending `should be equal to` 0.usd()
+            exchangeRate `should be equal to` ExchangeRate.identityExchangeRate(USD)
+        }
+    }
+
+    @Test
+    fun `a new balance replaces the previous balance of its account`() {
+        val btc = PublishSubject.create<AccountBalance>()
+        val eth = PublishSubject.create<AccountBalance>()
+
+        val test = AccountBalanceAggregator.balanceOf(listOf(account(btc), account(eth)), 100, scheduler).test()
+        btc.onNext(balance(1.bitcoin(), BTC_TO_USD))
+        eth.onNext(balance(2.ether(), ETH_TO_USD))
+        btc.onNext(balance(0.5.bitcoin(), BTC_TO_USD))
+        eth.onNext(balance(1.ether(), ETH_TO_USD))
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS)
+
+        test.values().last().total `should be equal to` 12_000.usd()
+    }
+
+    @Test
+    fun `a single account keeps its own balance`() {
+        val btc = PublishSubject.create<AccountBalance>()
+        val balance = balance(1.bitcoin(), BTC_TO_USD)
+
+        val test = AccountBalanceAggregator.balanceOf(listOf(account(btc)), 100, scheduler).test()
+        btc.onNext(balance)
+
+        test.assertValue(balance)
+    }
+
+    @Test
+    fun `bursts of balances are conflated to the latest total`() {
+        val btc = PublishSubject.create<AccountBalance>()
+
+        val test = AccountBalanceAggregator.balanceOf(
+            listOf(account(btc), account(Observable.just(balance(1.ether(), ETH_TO_USD)))),
+            100,
+            scheduler
+        ).test()
+        (1..10).forEach { btc.onNext(balance(it.bitcoin(), BTC_TO_USD)) }
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS)
+
+        // The first balance goes straight through, the rest of the burst is a single update
+        test.valueCount() `should be equal to` 2
+        test.values().last().total `should be equal to` 202_000.usd()
+    }
+
+    @Test
+    fun `the total of many accounts ticking independently is the sum of their latest balances`() {
+        val accounts = 100
+        val random = Random(42)
+        val updates = List(accounts * 10) { random.nextInt(accounts) to random.nextInt(1, 1_000) }
+        var total: Money? = null
+
+        tick(accounts, updates) { group ->
+            AccountBalanceAggregator.balanceOf(group, 100, scheduler)
+                .doOnNext { total = it.total }
+                .test()
+        }
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS)
+
+        total `should be equal to` expectedTotal(accounts, updates)
+    }
+
+    private fun tick(
+        accounts: Int,
+        updates: List<Pair<Int, Int>>,
+        subscribe: (List<BlockchainAccount>) -> Unit
+    ) {
+        val subjects = List(accounts) { PublishSubject.create<AccountBalance>() }
+        subscribe(subjects.map { account(it) })
+        subjects.forEach { it.onNext(balance(1.bitcoin(), BTC_TO_USD)) }
+        updates.forEach { (account, amount) -> subjects[account].onNext(balance(amount.bitcoin(), BTC_TO_USD)) }
+    }
+
+    private fun expectedTotal(accounts: Int, updates: List<Pair<Int, Int>>): Money {
+        val latest = IntArray(accounts) { 1 }
+        updates.forEach { (account, amount) -> latest[account] = amount }
+        return (latest.sum().toLong() * BTC_PRICE).usd()
+    }
+
+    private fun account(balances: Observable<AccountBalance>): BlockchainAccount =
+        mock {
+            on { balanceRx }.thenReturn(balances)
+        }
+
+    private fun balance(amount: Money, rate: ExchangeRate) =
+        AccountBalance(
+            total = amount,
+            withdrawable = amount,
+            pending = amount.toZero(),
+            dashboardDisplay = amount,
+            exchangeRate = rate
+        )
+
+    companion object {
+        private const val BTC_PRICE = 20_000
+        private val BTC_TO_USD = ExchangeRate(BTC_PRICE.toBigDecimal(), CryptoCurrency.BTC, USD)
+        private val ETH_TO_USD = ExchangeRate(2_000.toBigDecimal(), CryptoCurrency.ETHER, USD)
+    }
+}
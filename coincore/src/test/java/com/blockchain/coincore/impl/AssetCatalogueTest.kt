@@ -6,8 +6,11 @@ import com.blockchain.coincore.testutil.CoincoreTestBase
 import com.blockchain.core.dynamicassets.DynamicAssetsDataManager
 import com.blockchain.utils.emptySubscribe
 import com.nhaarman.mockitokotlin2.mock
+import info.blockchain.balance.AssetCategory
 import info.blockchain.balance.CryptoCurrency
+import info.blockchain.balance.FiatCurrency
 import io.reactivex.rxjava3.core.Single
+import org.amshove.kluent.`should be equal to`
 import org.amshove.kluent.`should be`
 import org.junit.Before
 import org.junit.Test
@@ -16,11 +19,13 @@ class AssetCatalogueTest : CoincoreTestBase() {
 
     private val assetList = listOf(
         TEST_ASSET,
-        SECONDARY_TEST_ASSET
+        SECONDARY_TEST_ASSET,
+        ERC20_ASSET,
+        NON_CUSTODIAL_ERC20_ASSET
     )
 
     private val assetsManager: DynamicAssetsDataManager = mock {
-        on { availableFiatAssets() }.thenReturn(Single.just(emptyList()))
+        on { availableFiatAssets() }.thenReturn(Single.just(listOf(FiatCurrency.Dollars)))
     }
 
     private val assetsService: DynamicAssetsService = mock {
@@ -105,4 +110,84 @@ class AssetCatalogueTest : CoincoreTestBase() {
     fun `not recognised should return null`() {
         subject.fromNetworkTicker("NONE") `should be` null
     }
+
+    @Test
+    fun `contract addresses are matched on their chain ignoring case`() {
+        subject.assetFromL1ChainByContractAddress(
+            CryptoCurrency.ETHER.networkTicker, ERC20_CONTRACT.uppercase()
+        ) `should be` ERC20_ASSET
+        subject.assetFromL1ChainByContractAddress(CryptoCurrency.XLM.networkTicker, ERC20_CONTRACT) `should be` null
+    }
+
+    @Test
+    fun `assets are listed by category and chain`() {
+        val l1s = listOf(
+            CryptoCurrency.BTC,
+            CryptoCurrency.BCH,
+            CryptoCurrency.ETHER,
+            CryptoCurrency.XLM
+        )
+        subject.supportedCryptoAssets `should be equal to` l1s + assetList
+        subject.supportedCustodialAssets `should be equal to` l1s + listOf(
+            TEST_ASSET,
+            SECONDARY_TEST_ASSET,
+            ERC20_ASSET
+        )
+        subject.supportedFiatAssets `should be equal to` listOf(FiatCurrency.Dollars)
+        subject.supportedL2Assets(CryptoCurrency.ETHER) `should be equal to` listOf(
+            ERC20_ASSET,
+            NON_CUSTODIAL_ERC20_ASSET
+        )
+        subject.fiatFromNetworkTicker("usd") `should be` FiatCurrency.Dollars
+        subject.assetInfoFromNetworkTicker("usd") `should be` null
+    }
+
+    @Test
+    fun `every asset of a large catalogue can be looked up`() {
+        val assets = (0 until 500).map { erc20("TKN$it", "0x${it.toString(16).padStart(40, 'a')}") }
+        val catalogue = AssetCatalogueImpl(
+            assetsService = mock {
+                on { availableCryptoAssets() }.thenReturn(Single.just(listOf(CryptoCurrency.ETHER) + assets))
+            },
+            assetsDataManager = assetsManager
+        )
+        catalogue.initialise().test().assertComplete()
+
+        assets.forEach { asset ->
+            catalogue.assetFromL1ChainByContractAddress(
+                asset.l1chainTicker!!,
+                asset.l2identifier!!.uppercase()
+            ) `should be` asset
+            catalogue.fromNetworkTicker(asset.networkTicker) `should be` asset
+        }
+        catalogue.supportedL2Assets(CryptoCurrency.ETHER).size `should be equal to` assets.size
+    }
+
+    companion object {
+        private const val ERC20_CONTRACT = "0xdac17f958d2ee523a2206206994597c13d831ec7"
+
+        private fun erc20(
+            ticker: String,
+            contractAddress: String,
+            categories: Set<AssetCategory> = setOf(AssetCategory.CUSTODIAL, AssetCategory.NON_CUSTODIAL)
+        ) = object : CryptoCurrency(
+            displayTicker = ticker,
+            networkTicker = ticker,
+            name = ticker,
+            categories = categories,
+            precisionDp = 18,
+            requiredConfirmations = 12,
+            l1chainTicker = CryptoCurrency.ETHER.networkTicker,
+            l2identifier = contractAddress,
+            colour = "000000",
+            isErc20 = true
+        ) {}
+
+        private val ERC20_ASSET = erc20("USDT", ERC20_CONTRACT)
+        private val NON_CUSTODIAL_ERC20_ASSET = erc20(
+            "NCT",
+            "0x9e46a38f5daabe8683e10793b06749eef7d733d1",
+            setOf(AssetCategory.NON_CUSTODIAL)
+        )
+    }
 }
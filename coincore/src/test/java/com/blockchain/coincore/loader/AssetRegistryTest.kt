@@ -0,0 +1,66 @@
+package com.blockchain.coincore.loader
+
+import com.blockchain.coincore.Asset
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import info.blockchain.balance.CryptoCurrency
+import info.blockchain.balance.Currency
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import org.amshove.kluent.`should be equal to`
+import org.amshove.kluent.`should be`
+import org.junit.Test
+
+class AssetRegistryTest {
+
+    private val created = AtomicInteger()
+    private val subject = AssetRegistry { currency ->
+        created.incrementAndGet()
+        asset(currency)
+    }
+
+    @Test
+    fun `assets are created on first access only`() {
+        val first = subject[CryptoCurrency.BTC]
+
+        subject[CryptoCurrency.BTC] `should be` first
+        created.get() `should be equal to` 1
+    }
+
+    @Test
+    fun `preloaded assets are kept and listed first`() {
+        val btc = asset(CryptoCurrency.BTC)
+        subject[CryptoCurrency.BCH]
+
+        subject.putAll(listOf(btc))
+
+        subject[CryptoCurrency.BTC] `should be` btc
+        subject.all.map { it.currency } `should be equal to` listOf(CryptoCurrency.BTC, CryptoCurrency.BCH)
+    }
+
+    @Test
+    fun `assets requested concurrently are created once`() {
+        val threads = 8
+        val executor = Executors.newFixedThreadPool(threads)
+        val start = CountDownLatch(1)
+        val results = List(threads) {
+            executor.submit<Asset> {
+                start.await()
+                subject[CryptoCurrency.ETHER]
+            }
+        }
+
+        start.countDown()
+        val assets = results.map { it.get(10, TimeUnit.SECONDS) }
+        executor.shutdown()
+
+        assets.distinct().size `should be equal to` 1
+        created.get() `should be equal to` 1
+    }
+
+    private fun asset(currency: Currency): Asset = mock {
+        on { this.currency } doReturn currency
+    }
+}
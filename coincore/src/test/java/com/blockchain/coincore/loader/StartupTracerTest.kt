@@ -0,0 +1,23 @@
+package com.blockchain.coincore.loader
+
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Single
+import java.util.concurrent.TimeUnit
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class StartupTracerTest {
+
+    @Test
+    fun `startup phases are traced`() {
+        var now = 0L
+        val tracer = StartupTracer(nanoTime = { now })
+
+        tracer.trace("single", Single.fromCallable { now += TimeUnit.MILLISECONDS.toNanos(30) }).test()
+        tracer.trace("completable", Completable.fromAction { now += TimeUnit.MILLISECONDS.toNanos(20) }).test()
+        tracer.trace("block") { now += TimeUnit.MILLISECONDS.toNanos(10) }
+
+        tracer.phases() `should be equal to` mapOf("single" to 30L, "completable" to 20L, "block" to 10L)
+        tracer.summary() `should be equal to` "Coincore init phases: single 30ms, completable 20ms, block 10ms"
+    }
+}
@@ -4,6 +4,7 @@ import com.blockchain.android.testutils.rxInit
 import com.blockchain.api.selfcustody.BalancesResponse
 import com.blockchain.core.price.ExchangeRatesDataManager
 import com.blockchain.featureflag.FeatureFlag
+import com.blockchain.koin.branchAndBoundCoinSelectionFeatureFlag
 import com.blockchain.koin.payloadScopeQualifier
 import com.blockchain.koin.unifiedBalancesFlag
 import com.blockchain.logging.RemoteLogger
@@ -91,6 +92,12 @@ open class CoincoreTestBase {
                     }
                 }.bind(FeatureFlag::class)
 
+                factory(branchAndBoundCoinSelectionFeatureFlag) {
+                    mock<FeatureFlag> {
+                        on { enabled }.thenReturn(Single.just(false))
+                    }
+                }.bind(FeatureFlag::class)
+
                 factory {
                     balancesStore
                 }.bind(Store::class)
@@ -38,6 +38,7 @@ val blockchainMembershipsFeatureFlag = StringQualifier("ff_bcdc_memberships")
 val improvedPaymentUxFeatureFlag = StringQualifier("ff_improved_payment_ux")
 val earnTabFeatureFlag = StringQualifier("ff_earn_tab_nav")
 val exchangeWAPromptFeatureFlag = StringQualifier("exchange_wa_prompt")
+val branchAndBoundCoinSelectionFeatureFlag = StringQualifier("ff_branch_and_bound_coin_selection")
 val nabu = StringQualifier("nabu")
 val status = StringQualifier("status")
 val authOkHttpClient = StringQualifier("authOkHttpClient")
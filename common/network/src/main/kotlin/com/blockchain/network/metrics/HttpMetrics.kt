@@ -0,0 +1,138 @@
+package com.blockchain.network.metrics
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+enum class CacheResult {
+    HIT,
+
+    /** Served from the cache after the server confirmed it was still valid */
+    CONDITIONAL_HIT,
+    MISS
+}
+
+/**
+ * What one HTTP call spent its time on. Phases the call didn't go through, such as DNS and connecting when a pooled
+ * connection was reused, are 0. [cacheResult] is null for calls which didn't consult the cache.
+ */
+data class HttpCallMetrics(
+    val endpoint: String,
+    val dnsNanos: Long,
+    val connectNanos: Long,
+    val tlsNanos: Long,
+    val timeToFirstByteNanos: Long,
+    val bodyNanos: Long,
+    val totalNanos: Long,
+    val cacheResult: CacheResult?,
+    val bytesSent: Long,
+    val bytesReceived: Long,
+    val failed: Boolean
+)
+
+interface HttpCallMonitor {
+    fun onCallEnded(metrics: HttpCallMetrics)
+}
+
+object HttpInstrumentation {
+    @Volatile
+    var monitor: HttpCallMonitor? = null
+}
+
+/**
+ * A [HttpCallMonitor] which keeps counts and totals per endpoint until [reset].
+ */
+class EndpointMetrics : HttpCallMonitor {
+
+    private val endpoints = ConcurrentHashMap<String, EndpointCounters>()
+
+    override fun onCallEnded(metrics: HttpCallMetrics) {
+        endpoints.getOrPut(metrics.endpoint) { EndpointCounters() }.record(metrics)
+    }
+
+    fun snapshot(): List<EndpointStats> =
+        endpoints.map { (endpoint, counters) -> counters.stats(endpoint) }
+            .sortedBy { it.endpoint }
+
+    fun reset() {
+        endpoints.clear()
+    }
+
+    private class EndpointCounters {
+        val calls = AtomicLong()
+        val failures = AtomicLong()
+        val cacheHits = AtomicLong()
+        val cacheMisses = AtomicLong()
+        val newConnections = AtomicLong()
+        val bytesSent = AtomicLong()
+        val bytesReceived = AtomicLong()
+        val dnsNanos = AtomicLong()
+        val connectNanos = AtomicLong()
+        val tlsNanos = AtomicLong()
+        val timeToFirstByteNanos = AtomicLong()
+        val bodyNanos = AtomicLong()
+        val totalNanos = AtomicLong()
+
+        fun record(metrics: HttpCallMetrics) {
+            calls.incrementAndGet()
+            if (metrics.failed) failures.incrementAndGet()
+            when (metrics.cacheResult) {
+                CacheResult.HIT, CacheResult.CONDITIONAL_HIT -> cacheHits.incrementAndGet()
+                CacheResult.MISS -> cacheMisses.incrementAndGet()
+                null -> {}
+            }
+            if (metrics.connectNanos > 0) newConnections.incrementAndGet()
+            bytesSent.addAndGet(metrics.bytesSent)
+            bytesReceived.addAndGet(metrics.bytesReceived)
+            dnsNanos.addAndGet(metrics.dnsNanos)
+            connectNanos.addAndGet(metrics.connectNanos)
+            tlsNanos.addAndGet(metrics.tlsNanos)
+            timeToFirstByteNanos.addAndGet(metrics.timeToFirstByteNanos)
+            bodyNanos.addAndGet(metrics.bodyNanos)
+            totalNanos.addAndGet(metrics.totalNanos)
+        }
+
+        fun stats(endpoint: String): EndpointStats {
+            val count = calls.get()
+            return EndpointStats(
+                endpoint = endpoint,
+                calls = count,
+                failures = failures.get(),
+                cacheHits = cacheHits.get(),
+                cacheMisses = cacheMisses.get(),
+                newConnections = newConnections.get(),
+                bytesSent = bytesSent.get(),
+                bytesReceived = bytesReceived.get(),
+                meanDnsMillis = dnsNanos.meanMillis(count),
+                meanConnectMillis = connectNanos.meanMillis(count),
+                meanTlsMillis = tlsNanos.meanMillis(count),
+                meanTimeToFirstByteMillis = timeToFirstByteNanos.meanMillis(count),
+                meanBodyMillis = bodyNanos.meanMillis(count),
+                meanTotalMillis = totalNanos.meanMillis(count)
+            )
+        }
+
+        private fun AtomicLong.meanMillis(count: Long) =
+            if (count == 0L) 0.0 else get() / count / NANOS_PER_MILLI
+    }
+
+    companion object {
+        private const val NANOS_PER_MILLI = 1_000_000.0
+    }
+}
+
+data class EndpointStats(
+    val endpoint: String,
+    val calls: Long,
+    val failures: Long,
+    val cacheHits: Long,
+    val cacheMisses: Long,
+    val newConnections: Long,
+    val bytesSent: Long,
+    val bytesReceived: Long,
+    val meanDnsMillis: Double,
+    val meanConnectMillis: Double,
+    val meanTlsMillis: Double,
+    val meanTimeToFirstByteMillis: Double,
+    val meanBodyMillis: Double,
+    val meanTotalMillis: Double
+)
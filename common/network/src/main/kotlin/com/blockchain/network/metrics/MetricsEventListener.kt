@@ -0,0 +1,167 @@
+package com.blockchain.network.metrics
+
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Proxy
+import okhttp3.Call
+import okhttp3.EventListener
+import okhttp3.Handshake
+import okhttp3.Protocol
+import okhttp3.Request
+import okhttp3.Response
+import retrofit2.Invocation
+
+/**
+ * Times each phase of a call and reports it to [HttpInstrumentation.monitor] when the call ends. OkHttp creates one
+ * listener per call and delivers its events one after another, so the fields need no locking.
+ */
+class MetricsEventListener private constructor(
+    private val endpoint: String,
+    private val clock: () -> Long
+) : EventListener() {
+
+    private var callStart = NOT_SET
+    private var dnsStart = NOT_SET
+    private var connectStart = NOT_SET
+    private var tlsStart = NOT_SET
+    private var requestEnd = NOT_SET
+    private var responseBodyStart = NOT_SET
+
+    private var dnsNanos = 0L
+    private var connectNanos = 0L
+    private var tlsNanos = 0L
+    private var timeToFirstByteNanos = 0L
+    private var bodyNanos = 0L
+    private var bytesSent = 0L
+    private var bytesReceived = 0L
+    private var cacheResult: CacheResult? = null
+
+    override fun callStart(call: Call) {
+        callStart = clock()
+    }
+
+    override fun dnsStart(call: Call, domainName: String) {
+        dnsStart = clock()
+    }
+
+    override fun dnsEnd(call: Call, domainName: String, inetAddressList: List<InetAddress>) {
+        dnsNanos += since(dnsStart)
+    }
+
+    override fun connectStart(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy) {
+        connectStart = clock()
+    }
+
+    override fun secureConnectStart(call: Call) {
+        tlsStart = clock()
+    }
+
+    override fun secureConnectEnd(call: Call, handshake: Handshake?) {
+        tlsNanos += since(tlsStart)
+    }
+
+    override fun connectEnd(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy, protocol: Protocol?) {
+        connectNanos += since(connectStart)
+    }
+
+    override fun connectFailed(
+        call: Call,
+        inetSocketAddress: InetSocketAddress,
+        proxy: Proxy,
+        protocol: Protocol?,
+        ioe: IOException
+    ) {
+        connectNanos += since(connectStart)
+    }
+
+    override fun requestHeadersEnd(call: Call, request: Request) {
+        requestEnd = clock()
+    }
+
+    override fun requestBodyEnd(call: Call, byteCount: Long) {
+        requestEnd = clock()
+        bytesSent += byteCount
+    }
+
+    override fun responseHeadersStart(call: Call) {
+        if (requestEnd != NOT_SET) {
+            timeToFirstByteNanos += since(requestEnd)
+        }
+    }
+
+    override fun responseBodyStart(call: Call) {
+        responseBodyStart = clock()
+    }
+
+    override fun responseBodyEnd(call: Call, byteCount: Long) {
+        bodyNanos += since(responseBodyStart)
+        bytesReceived += byteCount
+    }
+
+    override fun cacheHit(call: Call, response: Response) {
+        cacheResult = CacheResult.HIT
+    }
+
+    override fun cacheConditionalHit(call: Call, cachedResponse: Response) {
+        cacheResult = CacheResult.CONDITIONAL_HIT
+    }
+
+    override fun cacheMiss(call: Call) {
+        cacheResult = CacheResult.MISS
+    }
+
+    override fun callEnd(call: Call) {
+        report(failed = false)
+    }
+
+    override fun callFailed(call: Call, ioe: IOException) {
+        report(failed = true)
+    }
+
+    private fun since(start: Long) =
+        if (start == NOT_SET) 0L else clock() - start
+
+    private fun report(failed: Boolean) {
+        HttpInstrumentation.monitor?.onCallEnded(
+            HttpCallMetrics(
+                endpoint = endpoint,
+                dnsNanos = dnsNanos,
+                connectNanos = connectNanos,
+                tlsNanos = tlsNanos,
+                timeToFirstByteNanos = timeToFirstByteNanos,
+                bodyNanos = bodyNanos,
+                totalNanos = since(callStart),
+                cacheResult = cacheResult,
+                bytesSent = bytesSent,
+                bytesReceived = bytesReceived,
+                failed = failed
+            )
+        )
+    }
+
+    class Factory(
+        private val clock: () -> Long = System::nanoTime
+    ) : EventListener.Factory {
+
+        override fun create(call: Call): EventListener =
+            if (HttpInstrumentation.monitor == null) {
+                NONE
+            } else {
+                MetricsEventListener(endpointOf(call.request()), clock)
+            }
+    }
+
+    companion object {
+        private const val NOT_SET = Long.MIN_VALUE
+
+        /**
+         * Names a call after the Retrofit method which made it, or after the host for calls made without Retrofit,
+         * so that the number of endpoints stays bounded whatever the paths and queries are.
+         */
+        fun endpointOf(request: Request): String =
+            request.tag(Invocation::class.java)?.method()?.let { method ->
+                "${method.declaringClass.simpleName}.${method.name}"
+            } ?: "${request.method} ${request.url.host}"
+    }
+}
@@ -5,11 +5,13 @@ import com.blockchain.koin.authOkHttpClient
 import com.blockchain.network.TLSSocketFactory
 import com.blockchain.network.interceptor.RequestCacheInterceptor
 import com.blockchain.network.interceptor.ResponseCacheInterceptor
+import com.blockchain.network.metrics.MetricsEventListener
 import java.io.File
 import java.util.concurrent.TimeUnit
 import okhttp3.Cache
 import okhttp3.ConnectionSpec
 import okhttp3.OkHttpClient
+import org.koin.core.qualifier.StringQualifier
 import org.koin.dsl.module
 
 private const val API_TIMEOUT = 30L
@@ -20,8 +22,11 @@ private const val HTTP_CACHE_SIZE = 5 * 1024 * 1024.toLong()
 private fun cache(dir: File): Cache =
     Cache(dir, HTTP_CACHE_SIZE)
 
+// Every client is derived from this one, so they all share its connection pool, dispatcher and disk cache
+private val sharedOkHttpClient = StringQualifier("sharedOkHttpClient")
+
 val okHttpModule = module {
-    factory {
+    single(sharedOkHttpClient) {
         val appInfo: AppInfo = get()
         val builder = OkHttpClient.Builder()
             .connectionSpecs(listOf(ConnectionSpec.MODERN_TLS))
@@ -33,6 +38,7 @@ val okHttpModule = module {
             .certificatePinner(get())
             .cache(cache(appInfo.cacheDir))
             .addNetworkInterceptor(ResponseCacheInterceptor())
+            .eventListenerFactory(MetricsEventListener.Factory())
 
         get<OkHttpInterceptors>().forEach {
             builder.addInterceptor(it)
@@ -47,7 +53,11 @@ val okHttpModule = module {
             builder.sslSocketFactory(it, it.systemDefaultTrustManager())
         }
 
-        builder
+        builder.build()
+    }
+
+    factory {
+        get<OkHttpClient>(sharedOkHttpClient).newBuilder()
     }
 
     single(authOkHttpClient) {
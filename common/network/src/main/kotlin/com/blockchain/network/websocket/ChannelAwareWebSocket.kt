@@ -27,6 +27,11 @@ fun StringWebSocket.channelAware(): ChannelAwareWebSocket = WebSocketChannelAdap
 
 private class WebSocketChannelAdapter(private val underlingSocket: StringWebSocket) : ChannelAwareWebSocket {
 
+    // Every channel reads every frame, so the channel and event of each frame are decoded once and shared
+    private val messages: Observable<ChannelMessage> by lazy {
+        underlingSocket.responses.toChannelMessages().share()
+    }
+
     override fun openChannel(name: String, params: JsonSerializable?): WebSocketChannel<String> {
         underlingSocket.send(
             json.encodeToString(
@@ -35,38 +40,34 @@ private class WebSocketChannelAdapter(private val underlingSocket: StringWebSock
                 )
             )
         )
-        return underlingSocket.asChannel(name)
+        return channel(name)
     }
-}
-
-class ErrorFromServer(val fullJson: String) : Exception("Server returned error")
-
-private fun StringWebSocket.asChannel(
-    name: String
-): WebSocketChannel<String> {
 
-    return object : WebSocketChannel<String> {
+    private fun channel(name: String): WebSocketChannel<String> {
 
-        val channelMessageFilter = this@asChannel.channelMessageFilter(name, throwErrors = true)
+        return object : WebSocketChannel<String> {
 
-        private val closed = PublishSubject.create<Any>()
+            private val closed = PublishSubject.create<Any>()
 
-        override fun close(params: JsonSerializable?) {
-            this@asChannel.send(
-                json.encodeToString(
-                    SubscribeUnsubscribeJson(
-                        action = "unsubscribe", channel = name, params = params
+            override fun close(params: JsonSerializable?) {
+                underlingSocket.send(
+                    json.encodeToString(
+                        SubscribeUnsubscribeJson(
+                            action = "unsubscribe", channel = name, params = params
+                        )
                     )
                 )
-            )
-            closed.onNext(Any())
-        }
+                closed.onNext(Any())
+            }
 
-        override val responses: Observable<String>
-            get() = channelMessageFilter.responses.takeUntil(closed)
+            override val responses: Observable<String>
+                get() = messages.forChannel(name, throwErrors = true).takeUntil(closed)
+        }
     }
 }
 
+class ErrorFromServer(val fullJson: String) : Exception("Server returned error")
+
 /**
  * Filters messages to those that match the channel name and are not subscribe/unsubscribe messages.
  */
@@ -75,23 +76,30 @@ fun WebSocketReceive<String>.channelMessageFilter(name: String, throwErrors: Boo
     return object : WebSocketReceive<String> {
 
         override val responses: Observable<String>
-            get() = this@channelMessageFilter.responses.filter { jsonString ->
-                json.decodeFromString(IncomingMessage.serializer(), jsonString)
-                    .let {
-                        it.channel == name &&
-                            it.event != "subscribed" &&
-                            it.event != "unsubscribed" &&
-                            !handleError(it, jsonString)
-                    }
-            }
+            get() = this@channelMessageFilter.responses.toChannelMessages().forChannel(name, throwErrors)
+    }
+}
 
-        private fun handleError(message: IncomingMessage, json: String): Boolean {
-            return when {
-                message.event != "error" -> false
-                throwErrors -> throw ErrorFromServer(json)
-                else -> true
-            }
-        }
+private class ChannelMessage(val message: IncomingMessage, val json: String)
+
+private fun Observable<String>.toChannelMessages(): Observable<ChannelMessage> =
+    map { jsonString ->
+        ChannelMessage(json.decodeFromString(IncomingMessage.serializer(), jsonString), jsonString)
+    }
+
+private fun Observable<ChannelMessage>.forChannel(name: String, throwErrors: Boolean): Observable<String> =
+    filter {
+        it.message.channel == name &&
+            it.message.event != "subscribed" &&
+            it.message.event != "unsubscribed" &&
+            !handleError(it, throwErrors)
+    }.map { it.json }
+
+private fun handleError(message: ChannelMessage, throwErrors: Boolean): Boolean {
+    return when {
+        message.message.event != "error" -> false
+        throwErrors -> throw ErrorFromServer(message.json)
+        else -> true
     }
 }
 
@@ -1,45 +1,101 @@
 package com.blockchain.network.websocket
 
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy
+import io.reactivex.rxjava3.core.BackpressureStrategy
 import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.schedulers.Schedulers
 import kotlinx.serialization.KSerializer
 import kotlinx.serialization.json.Json
 
 inline fun <reified OUTGOING : Any, reified INCOMING : Any> WebSocket<String, String>.toJsonSocket(
     json: Json,
     outgoingAdapter: KSerializer<OUTGOING>,
-    incomingAdapter: KSerializer<INCOMING>
+    incomingAdapter: KSerializer<INCOMING>,
+    decodeOptions: DecodeOptions = DecodeOptions(name = incomingAdapter.descriptor.serialName)
 ): WebSocket<OUTGOING, INCOMING> {
-    return JsonWebSocketDecorator(this, json, outgoingAdapter, incomingAdapter)
+    return JsonWebSocketDecorator(this, json, outgoingAdapter, incomingAdapter, decodeOptions)
 }
 
 inline fun <reified INCOMING : Any> WebSocketReceive<String>.toJsonReceive(
     json: Json,
-    incomingAdapter: KSerializer<INCOMING>
+    incomingAdapter: KSerializer<INCOMING>,
+    decodeOptions: DecodeOptions = DecodeOptions(name = incomingAdapter.descriptor.serialName)
 ): WebSocketReceive<INCOMING> {
-    return JsonWebSocketReceiveDecorator(this, json, incomingAdapter)
+    return JsonWebSocketReceiveDecorator(this, json, incomingAdapter, decodeOptions)
+}
+
+/**
+ * How frames are decoded: on [scheduler], with up to [bufferSize] frames waiting to be decoded. By default no frame is
+ * ever dropped, and frames arriving faster than they can be decoded wait in an unbounded buffer. Streams where only
+ * the latest frames matter, such as prices, can set an [overflowStrategy] to decide which frames are dropped, or
+ * whether the stream fails, once more than [bufferSize] are waiting.
+ */
+class DecodeOptions(
+    val name: String,
+    val scheduler: Scheduler = Schedulers.computation(),
+    val bufferSize: Int = DEFAULT_BUFFER_SIZE,
+    val overflowStrategy: BackpressureOverflowStrategy? = null
+) {
+    companion object {
+        private const val DEFAULT_BUFFER_SIZE = 256
+    }
 }
 
 class JsonWebSocketDecorator<OUTGOING : Any, INCOMING : Any>(
     private val inner: WebSocket<String, String>,
     private val json: Json,
     private val outgoingAdapter: KSerializer<OUTGOING>,
-    private val incomingAdapter: KSerializer<INCOMING>
+    private val incomingAdapter: KSerializer<INCOMING>,
+    private val decodeOptions: DecodeOptions = DecodeOptions(name = incomingAdapter.descriptor.serialName)
 ) : WebSocket<OUTGOING, INCOMING>, WebSocketConnection by inner {
 
     override fun send(message: OUTGOING) {
         inner.send(json.encodeToString(outgoingAdapter, message))
     }
 
-    override val responses: Observable<INCOMING>
-        get() = inner.responses.map { json.decodeFromString(incomingAdapter, it) }
+    override val responses: Observable<INCOMING> by lazy {
+        inner.responses.decodeShared(decodeOptions) { json.decodeFromString(incomingAdapter, it) }
+    }
 }
 
 class JsonWebSocketReceiveDecorator<INCOMING : Any>(
     private val inner: WebSocketReceive<String>,
     private val json: Json,
-    private val incomingAdapter: KSerializer<INCOMING>
+    private val incomingAdapter: KSerializer<INCOMING>,
+    private val decodeOptions: DecodeOptions = DecodeOptions(name = incomingAdapter.descriptor.serialName)
 ) : WebSocketReceive<INCOMING> {
 
-    override val responses: Observable<INCOMING>
-        get() = inner.responses.map { json.decodeFromString(incomingAdapter, it) }
+    override val responses: Observable<INCOMING> by lazy {
+        inner.responses.decodeShared(decodeOptions) { json.decodeFromString(incomingAdapter, it) }
+    }
 }
+
+/**
+ * Decodes every frame once, off the thread it arrived on, and shares the decoded frames between all subscribers.
+ */
+internal fun <T : Any> Observable<String>.decodeShared(
+    options: DecodeOptions,
+    decode: (String) -> T
+): Observable<T> =
+    toFlowable(BackpressureStrategy.MISSING)
+        .let { frames ->
+            if (options.overflowStrategy == null) {
+                frames.onBackpressureBuffer(options.bufferSize, false, true)
+            } else {
+                frames.onBackpressureBuffer(
+                    options.bufferSize.toLong(),
+                    { WebSocketInstrumentation.monitor?.onFrameDropped(options.name) },
+                    options.overflowStrategy
+                )
+            }
+        }
+        .observeOn(options.scheduler, false, options.bufferSize)
+        .map { frame ->
+            val start = System.nanoTime()
+            decode(frame).also {
+                WebSocketInstrumentation.monitor?.onFrameDecoded(options.name, System.nanoTime() - start)
+            }
+        }
+        .toObservable()
+        .share()
@@ -83,6 +83,7 @@ class OkHttpWebSocket(
 
         override fun onMessage(webSocket: okhttp3.WebSocket, text: String) {
             super.onMessage(webSocket, text)
+            WebSocketInstrumentation.monitor?.onFrameReceived(options.name, text.length)
             subject.onNext(text)
             listener?.onMessage(text)
         }
@@ -0,0 +1,60 @@
+package com.blockchain.network.websocket
+
+import kotlin.math.pow
+import kotlin.random.Random
+
+/**
+ * Decides how long a dropped connection waits before reconnecting, and when to stop trying.
+ */
+interface ReconnectPolicy {
+    /**
+     * The delay before reconnect [attempt], counting from 1 after the last successful connection, or null once
+     * there have been too many attempts and the circuit breaker should open.
+     */
+    fun delayMillis(attempt: Int): Long?
+
+    /**
+     * How long the circuit breaker stays open before a single attempt to reconnect, or null to stop reconnecting
+     * altogether.
+     */
+    val circuitBreakerCooldownMillis: Long?
+}
+
+/**
+ * Doubles the delay (by default) after every failed attempt, up to [maxDelayMillis]. With [jitter] above 0 each delay
+ * is shortened by a random fraction of up to [jitter] of itself, so clients which lost their connection together
+ * don't all come back at the same moment.
+ */
+class ExponentialBackoff(
+    private val initialDelayMillis: Long = 1_000,
+    private val maxDelayMillis: Long = 4_000,
+    private val multiplier: Double = 2.0,
+    private val jitter: Double = 0.0,
+    private val maxAttempts: Int = Int.MAX_VALUE,
+    override val circuitBreakerCooldownMillis: Long? = null,
+    private val random: Random = Random.Default
+) : ReconnectPolicy {
+
+    init {
+        require(jitter in 0.0..1.0) { "jitter must be between 0 and 1" }
+    }
+
+    override fun delayMillis(attempt: Int): Long? {
+        if (attempt > maxAttempts) return null
+        val backoff = (initialDelayMillis * multiplier.pow(attempt - 1)).coerceAtMost(maxDelayMillis.toDouble())
+        return (backoff - backoff * jitter * random.nextDouble()).toLong()
+    }
+
+    companion object {
+        /**
+         * For sockets to our own backend, which every client reconnects to after an outage.
+         */
+        fun withJitter() = ExponentialBackoff(
+            initialDelayMillis = 1_000,
+            maxDelayMillis = 30_000,
+            jitter = 0.5,
+            maxAttempts = 10,
+            circuitBreakerCooldownMillis = 120_000
+        )
+    }
+}
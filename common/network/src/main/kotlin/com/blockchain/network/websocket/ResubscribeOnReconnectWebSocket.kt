@@ -0,0 +1,76 @@
+package com.blockchain.network.websocket
+
+import io.reactivex.rxjava3.disposables.CompositeDisposable
+import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.kotlin.plusAssign
+
+class ChannelSubscription(
+    val channel: String,
+    val subscribe: Boolean
+)
+
+/**
+ * The server forgets every subscription when the connection drops, so this remembers the latest subscribe message
+ * sent for each channel and sends them all again when the connection comes back. [subscriptionOf] returns the
+ * channel subscribed to or unsubscribed from by a message, or null for any other message.
+ */
+fun <OUTGOING, INCOMING> WebSocket<OUTGOING, INCOMING>.resubscribeOnReconnect(
+    subscriptionOf: (OUTGOING) -> ChannelSubscription?
+): WebSocket<OUTGOING, INCOMING> =
+    ResubscribeOnReconnect(this, subscriptionOf)
+
+private class ResubscribeOnReconnect<OUTGOING, INCOMING>(
+    private val inner: WebSocket<OUTGOING, INCOMING>,
+    private val subscriptionOf: (OUTGOING) -> ChannelSubscription?
+) : WebSocket<OUTGOING, INCOMING> by inner {
+
+    private val subscriptions = LinkedHashMap<String, OUTGOING>()
+
+    private val connections = CompositeDisposable()
+
+    @Volatile
+    private var dropped = false
+
+    override fun open() {
+        connections.clear()
+        connections += watchEvents()
+        inner.open()
+    }
+
+    private fun watchEvents(): Disposable =
+        connectionEvents
+            .subscribe {
+                when (it) {
+                    ConnectionEvent.Connected -> {
+                        // Subscriptions sent before the first connection are still queued, so only resend on reconnect
+                        if (dropped) {
+                            dropped = false
+                            synchronized(subscriptions) { subscriptions.values.toList() }
+                                .forEach { message -> inner.send(message) }
+                        }
+                    }
+                    is ConnectionEvent.Failure, ConnectionEvent.ClientDisconnect -> dropped = true
+                    ConnectionEvent.Authenticated -> {}
+                }
+            }
+
+    override fun close() {
+        connections.clear()
+        dropped = false
+        synchronized(subscriptions) { subscriptions.clear() }
+        inner.close()
+    }
+
+    override fun send(message: OUTGOING) {
+        subscriptionOf(message)?.let { subscription ->
+            synchronized(subscriptions) {
+                if (subscription.subscribe) {
+                    subscriptions[subscription.channel] = message
+                } else {
+                    subscriptions.remove(subscription.channel)
+                }
+            }
+        }
+        inner.send(message)
+    }
+}
@@ -1,50 +1,119 @@
 package com.blockchain.network.websocket
 
+import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.disposables.CompositeDisposable
 import io.reactivex.rxjava3.disposables.Disposable
 import io.reactivex.rxjava3.kotlin.plusAssign
 import java.util.concurrent.TimeUnit
 
-fun WebSocketConnection.autoRetry(): WebSocketConnection = RetryingConnection(this)
+/**
+ * Reopens the connection whenever it drops, as long as it hasn't been closed, waiting as long as [policy] says first.
+ */
+fun WebSocketConnection.autoRetry(
+    policy: ReconnectPolicy = ExponentialBackoff(),
+    name: String = "Unnamed"
+): WebSocketConnection = RetryingConnection(this, policy, name)
 
-fun <OUTGOING, INCOMING> WebSocket<OUTGOING, INCOMING>.autoRetry(): WebSocket<OUTGOING, INCOMING> =
-    this + (this as WebSocketConnection).autoRetry()
+fun <OUTGOING, INCOMING> WebSocket<OUTGOING, INCOMING>.autoRetry(
+    policy: ReconnectPolicy = ExponentialBackoff(),
+    name: String = "Unnamed"
+): WebSocket<OUTGOING, INCOMING> =
+    this + (this as WebSocketConnection).autoRetry(policy, name)
+
+enum class ConnectionState {
+    CONNECTED,
+
+    /** Waiting to reconnect after the connection dropped */
+    RECONNECTING,
+
+    /** Too many attempts failed, waiting for the circuit breaker to allow another */
+    CIRCUIT_OPEN,
+
+    /** Closed, or no longer trying to reconnect */
+    CLOSED
+}
 
 private class RetryingConnection(
-    private val inner: WebSocketConnection
+    private val inner: WebSocketConnection,
+    private val policy: ReconnectPolicy,
+    private val name: String
 ) : WebSocketConnection by inner {
 
     private val connections = CompositeDisposable()
 
-    private val timeoutTimes = listOf(1000L, 2000L, 4000L)
+    // Failed attempts since the last successful connection
+    @Volatile
+    private var failures = 0
 
-    override fun open() {
-        resetEvents(0)
-        inner.open()
-    }
+    @Volatile
+    private var state = ConnectionState.CLOSED
 
-    private fun resetEvents(timeoutIndex: Int) {
+    override fun open() {
+        failures = 0
         connections.clear()
-        connections += watchEvents(timeoutIndex)
+        connections += watchEvents()
+        inner.open()
     }
 
-    private fun watchEvents(timeoutIndex: Int): Disposable =
+    private fun watchEvents(): Disposable =
         connectionEvents
-            .throttleWithTimeout(timeoutTimes[timeoutIndex], TimeUnit.MILLISECONDS)
-            .subscribe {
+            .filter { it !== ConnectionEvent.Authenticated }
+            // A new event cancels any reconnect still waiting for an earlier one
+            .switchMapCompletable {
                 when (it) {
-                    is ConnectionEvent.Failure -> {
-                        resetEvents(Math.min(timeoutIndex + 1, timeoutTimes.size - 1))
-                        inner.open()
+                    ConnectionEvent.Connected -> Completable.fromAction {
+                        failures = 0
+                        updateState(ConnectionState.CONNECTED)
                     }
-                    ConnectionEvent.ClientDisconnect -> inner.open()
-                    ConnectionEvent.Connected -> resetEvents(0)
-                    ConnectionEvent.Authenticated -> {}
+                    else -> reconnect(countsAsFailure = it is ConnectionEvent.Failure)
                 }
             }
+            .subscribe()
+
+    private fun reconnect(countsAsFailure: Boolean): Completable {
+        val attempt = failures + 1
+        val delay = policy.delayMillis(attempt)
+        val cooldown = policy.circuitBreakerCooldownMillis
+        return when {
+            delay != null -> {
+                updateState(ConnectionState.RECONNECTING)
+                WebSocketInstrumentation.monitor?.onReconnectScheduled(name, attempt, delay)
+                reopenAfter(delay) {
+                    if (countsAsFailure) failures++
+                }
+            }
+            cooldown != null -> {
+                // Half open: the next failure opens the circuit again straight away
+                updateState(ConnectionState.CIRCUIT_OPEN)
+                reopenAfter(cooldown) {
+                    updateState(ConnectionState.RECONNECTING)
+                }
+            }
+            else -> Completable.fromAction {
+                updateState(ConnectionState.CLOSED)
+            }
+        }
+    }
+
+    private fun reopenAfter(delayMillis: Long, beforeReopening: () -> Unit): Completable =
+        Completable.timer(delayMillis, TimeUnit.MILLISECONDS)
+            .andThen(
+                Completable.fromAction {
+                    beforeReopening()
+                    inner.open()
+                }
+            )
+
+    private fun updateState(newState: ConnectionState) {
+        if (state != newState) {
+            state = newState
+            WebSocketInstrumentation.monitor?.onConnectionStateChanged(name, newState)
+        }
+    }
 
     override fun close() {
         connections.clear()
+        updateState(ConnectionState.CLOSED)
         inner.close()
     }
 }
@@ -0,0 +1,135 @@
+package com.blockchain.network.websocket
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Receives what every websocket gets through: frames as they arrive, how long each took to decode, frames dropped
+ * because subscribers couldn't keep up, and how its connection comes and goes. Sockets are identified by the name
+ * they were created with.
+ */
+interface WebSocketMonitor {
+    fun onFrameReceived(socket: String, length: Int)
+    fun onFrameDecoded(socket: String, decodeNanos: Long)
+    fun onFrameDropped(socket: String)
+    fun onConnectionStateChanged(socket: String, state: ConnectionState)
+    fun onReconnectScheduled(socket: String, attempt: Int, delayMillis: Long)
+}
+
+object WebSocketInstrumentation {
+    @Volatile
+    var monitor: WebSocketMonitor? = null
+}
+
+/**
+ * A [WebSocketMonitor] which keeps counts and totals per socket until [reset].
+ */
+class WebSocketMetrics(
+    private val clock: () -> Long = System::nanoTime
+) : WebSocketMonitor {
+
+    private val sockets = ConcurrentHashMap<String, SocketCounters>()
+
+    override fun onFrameReceived(socket: String, length: Int) {
+        counters(socket).run {
+            val now = clock()
+            firstFrameNanos.compareAndSet(NOT_SET, now)
+            lastFrameNanos.set(now)
+            frames.incrementAndGet()
+            bytes.addAndGet(length.toLong())
+        }
+    }
+
+    override fun onFrameDecoded(socket: String, decodeNanos: Long) {
+        counters(socket).run {
+            decoded.incrementAndGet()
+            decodeNanosTotal.addAndGet(decodeNanos)
+            maxDecodeNanos.accumulateAndGet(decodeNanos, ::maxOf)
+        }
+    }
+
+    override fun onFrameDropped(socket: String) {
+        counters(socket).dropped.incrementAndGet()
+    }
+
+    override fun onConnectionStateChanged(socket: String, state: ConnectionState) {
+        counters(socket).run {
+            this.state.set(state)
+            if (state == ConnectionState.CIRCUIT_OPEN) circuitBreakerTrips.incrementAndGet()
+        }
+    }
+
+    override fun onReconnectScheduled(socket: String, attempt: Int, delayMillis: Long) {
+        counters(socket).reconnects.incrementAndGet()
+    }
+
+    fun snapshot(): List<WebSocketStats> =
+        sockets.map { (socket, counters) ->
+            WebSocketStats(
+                socket = socket,
+                frames = counters.frames.get(),
+                bytes = counters.bytes.get(),
+                framesPerSecond = counters.framesPerSecond(),
+                decoded = counters.decoded.get(),
+                meanDecodeMicros = counters.meanDecodeMicros(),
+                maxDecodeMicros = TimeUnit.NANOSECONDS.toMicros(counters.maxDecodeNanos.get()),
+                dropped = counters.dropped.get(),
+                state = counters.state.get(),
+                reconnects = counters.reconnects.get(),
+                circuitBreakerTrips = counters.circuitBreakerTrips.get()
+            )
+        }.sortedBy { it.socket }
+
+    fun reset() {
+        sockets.clear()
+    }
+
+    private fun counters(socket: String) = sockets.getOrPut(socket) { SocketCounters() }
+
+    private class SocketCounters {
+        val frames = AtomicLong()
+        val bytes = AtomicLong()
+        val firstFrameNanos = AtomicLong(NOT_SET)
+        val lastFrameNanos = AtomicLong()
+        val decoded = AtomicLong()
+        val decodeNanosTotal = AtomicLong()
+        val maxDecodeNanos = AtomicLong()
+        val dropped = AtomicLong()
+        val state = AtomicReference<ConnectionState?>()
+        val reconnects = AtomicLong()
+        val circuitBreakerTrips = AtomicLong()
+
+        fun framesPerSecond(): Double {
+            val first = firstFrameNanos.get()
+            val elapsed = lastFrameNanos.get() - first
+            return if (first == NOT_SET || elapsed <= 0) 0.0 else (frames.get() - 1) * NANOS_PER_SECOND / elapsed
+        }
+
+        fun meanDecodeMicros(): Double {
+            val count = decoded.get()
+            return if (count == 0L) 0.0 else decodeNanosTotal.get() / count / NANOS_PER_MICRO
+        }
+    }
+
+    companion object {
+        private const val NOT_SET = Long.MIN_VALUE
+        private const val NANOS_PER_SECOND = 1_000_000_000.0
+        private const val NANOS_PER_MICRO = 1_000.0
+    }
+}
+
+data class WebSocketStats(
+    val socket: String,
+    val frames: Long,
+    val bytes: Long,
+    val framesPerSecond: Double,
+    val decoded: Long,
+    val meanDecodeMicros: Double,
+    val maxDecodeMicros: Long,
+    val dropped: Long,
+    val state: ConnectionState?,
+    val reconnects: Long,
+    val circuitBreakerTrips: Long
+)
@@ -0,0 +1,131 @@
+package com.blockchain.network.metrics
+
+import java.nio.file.Files
+import okhttp3.Cache
+import okhttp3.OkHttpClient
+import okhttp3.Request
+import okhttp3.ResponseBody
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.amshove.kluent.`should be equal to`
+import org.amshove.kluent.`should be`
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import retrofit2.Call
+import retrofit2.Retrofit
+import retrofit2.http.GET
+
+class MetricsEventListenerTest {
+
+    private interface PriceService {
+        @GET("price")
+        fun price(): Call<ResponseBody>
+    }
+
+    private val server = MockWebServer()
+    private val metrics = EndpointMetrics()
+    private val cacheDir = Files.createTempDirectory("http-cache").toFile()
+
+    private val sharedClient = OkHttpClient.Builder()
+        .cache(Cache(cacheDir, 1024 * 1024))
+        .eventListenerFactory(MetricsEventListener.Factory())
+        .build()
+
+    @Before
+    fun setUp() {
+        HttpInstrumentation.monitor = metrics
+    }
+
+    @After
+    fun tearDown() {
+        HttpInstrumentation.monitor = null
+        server.shutdown()
+        cacheDir.deleteRecursively()
+    }
+
+    private fun PriceService.fetch() =
+        price().execute().body()!!.use { it.string() }
+
+    private fun service(client: OkHttpClient) =
+        Retrofit.Builder()
+            .baseUrl(server.url("/"))
+            .client(client)
+            .build()
+            .create(PriceService::class.java)
+
+    @Test
+    fun `calls are recorded against the retrofit method`() {
+        server.enqueue(MockResponse().setBody("12345"))
+
+        service(sharedClient).fetch() `should be equal to` "12345"
+
+        val stats = metrics.snapshot().single()
+        stats.endpoint `should be equal to` "PriceService.price"
+        stats.calls `should be equal to` 1L
+        stats.failures `should be equal to` 0L
+        stats.bytesReceived `should be equal to` 5L
+        stats.newConnections `should be equal to` 1L
+    }
+
+    @Test
+    fun `calls made without retrofit are recorded against the host`() {
+        server.enqueue(MockResponse())
+
+        sharedClient.newCall(Request.Builder().url(server.url("/a/b?c=d")).build()).execute().close()
+
+        metrics.snapshot().single().endpoint `should be equal to` "GET ${server.hostName}"
+    }
+
+    @Test
+    fun `cache hits and misses are counted`() {
+        server.enqueue(MockResponse().setBody("12345").setHeader("Cache-Control", "max-age=60"))
+        val service = service(sharedClient)
+
+        service.fetch()
+        service.fetch() `should be equal to` "12345"
+
+        server.requestCount `should be equal to` 1
+        val stats = metrics.snapshot().single()
+        stats.cacheMisses `should be equal to` 1L
+        stats.cacheHits `should be equal to` 1L
+    }
+
+    @Test
+    fun `clients derived from the shared one reuse its connections and cache`() {
+        server.enqueue(MockResponse().setBody("12345").setHeader("Cache-Control", "max-age=60"))
+        server.enqueue(MockResponse().setBody("67890"))
+        val derived = sharedClient.newBuilder()
+            .addInterceptor { it.proceed(it.request().newBuilder().header("X-Derived", "true").build()) }
+            .build()
+
+        service(sharedClient).fetch()
+        service(derived).fetch() `should be equal to` "12345"
+        derived.newCall(Request.Builder().url(server.url("/other")).build()).execute().close()
+
+        (derived.connectionPool === sharedClient.connectionPool) `should be` true
+        (derived.dispatcher === sharedClient.dispatcher) `should be` true
+        server.requestCount `should be equal to` 2
+        metrics.snapshot().sumOf { it.newConnections } `should be equal to` 1L
+    }
+
+    @Test
+    fun `nothing is recorded without a monitor`() {
+        HttpInstrumentation.monitor = null
+        server.enqueue(MockResponse())
+
+        service(sharedClient).price().execute().body()?.close()
+
+        metrics.snapshot() `should be equal to` emptyList()
+    }
+
+    @Test
+    fun `endpoint stats are cleared by reset`() {
+        server.enqueue(MockResponse())
+        service(sharedClient).price().execute().body()?.close()
+
+        metrics.reset()
+
+        metrics.snapshot() `should be equal to` emptyList()
+    }
+}
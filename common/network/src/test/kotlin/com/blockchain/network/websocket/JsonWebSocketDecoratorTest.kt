@@ -2,11 +2,15 @@ package com.blockchain.network.websocket
 
 import com.nhaarman.mockitokotlin2.mock
 import com.nhaarman.mockitokotlin2.verify
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy
 import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import io.reactivex.rxjava3.subjects.PublishSubject
 import kotlinx.serialization.Serializable
 import kotlinx.serialization.json.Json
 import org.amshove.kluent.`should be`
 import org.amshove.kluent.`should be equal to`
+import org.junit.After
 import org.junit.Test
 
 class JsonWebSocketDecoratorTest {
@@ -19,6 +23,13 @@ class JsonWebSocketDecoratorTest {
 
     private val json = Json {}
 
+    private val metrics = WebSocketMetrics()
+
+    @After
+    fun tearDown() {
+        WebSocketInstrumentation.monitor = null
+    }
+
     @Test
     fun `open delegates to inner open`() {
         val inner = mock<WebSocket<String, String>>()
@@ -66,10 +77,80 @@ class JsonWebSocketDecoratorTest {
         inner.toJsonSocket(json, TypeOut.serializer(), TypeIn.serializer())
             .responses
             .test()
+            .await()
             .values() `should be equal to`
             listOf(
                 TypeIn(fieldC = "Message1", fieldD = 1234),
                 TypeIn(fieldC = "Message2", fieldD = 5678)
             )
     }
+
+    @Test
+    fun `incoming messages are decoded once on the decode scheduler and shared between subscribers`() {
+        WebSocketInstrumentation.monitor = metrics
+        val frames = PublishSubject.create<String>()
+        val scheduler = TestScheduler()
+        val inner = mock<WebSocket<String, String>> {
+            on { responses }.thenReturn(frames)
+        }
+        val socket = inner.toJsonSocket(
+            json, TypeOut.serializer(), TypeIn.serializer(), DecodeOptions(name = "test", scheduler = scheduler)
+        )
+
+        val first = socket.responses.test()
+        val second = socket.responses.test()
+        frames.onNext("{\"fieldC\":\"Message1\",\"fieldD\":1234}")
+        first.assertNoValues()
+        scheduler.triggerActions()
+
+        first.assertValue(TypeIn(fieldC = "Message1", fieldD = 1234))
+        second.assertValue(TypeIn(fieldC = "Message1", fieldD = 1234))
+        metrics.snapshot().single().decoded `should be equal to` 1L
+    }
+
+    @Test
+    fun `no frame is dropped by default`() {
+        WebSocketInstrumentation.monitor = metrics
+        val frames = PublishSubject.create<String>()
+        val scheduler = TestScheduler()
+        val inner = mock<WebSocket<String, String>> {
+            on { responses }.thenReturn(frames)
+        }
+        val options = DecodeOptions(name = "test", scheduler = scheduler, bufferSize = 2)
+        val test = inner.toJsonSocket(json, TypeOut.serializer(), TypeIn.serializer(), options)
+            .responses
+            .test()
+
+        (1..10).forEach { frames.onNext("{\"fieldC\":\"Message$it\",\"fieldD\":$it}") }
+        scheduler.triggerActions()
+
+        test.values().map { it.fieldD } `should be equal to` (1..10).toList()
+        metrics.snapshot().single().dropped `should be equal to` 0L
+    }
+
+    @Test
+    fun `frames beyond the buffer are dropped by the overflow strategy and counted`() {
+        WebSocketInstrumentation.monitor = metrics
+        val frames = PublishSubject.create<String>()
+        val scheduler = TestScheduler()
+        val inner = mock<WebSocket<String, String>> {
+            on { responses }.thenReturn(frames)
+        }
+        val options = DecodeOptions(
+            name = "test",
+            scheduler = scheduler,
+            bufferSize = 2,
+            overflowStrategy = BackpressureOverflowStrategy.DROP_OLDEST
+        )
+        val test = inner.toJsonSocket(json, TypeOut.serializer(), TypeIn.serializer(), options)
+            .responses
+            .test()
+
+        (1..10).forEach { frames.onNext("{\"fieldC\":\"Message$it\",\"fieldD\":$it}") }
+        scheduler.triggerActions()
+
+        // Two frames are waiting in observeOn, two more in the overflow buffer
+        test.values().map { it.fieldD } `should be equal to` listOf(1, 2, 9, 10)
+        metrics.snapshot().single().dropped `should be equal to` 6L
+    }
 }
@@ -30,6 +30,7 @@ class JsonWebSocketReceiveDecoratorTest {
         inner.toJsonReceive(json, TypeIn.serializer())
             .responses
             .test()
+            .await()
             .values() `should be equal to`
             listOf(
                 TypeIn(fieldC = "Message1", fieldD = 1234),
@@ -0,0 +1,58 @@
+package com.blockchain.network.websocket
+
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import okhttp3.OkHttpClient
+import okhttp3.WebSocket
+import okhttp3.WebSocketListener
+import okhttp3.mockwebserver.MockResponse
+import okhttp3.mockwebserver.MockWebServer
+import org.amshove.kluent.`should be equal to`
+import org.junit.After
+import org.junit.Test
+
+/**
+ * Runs a socket with [autoRetry] and [resubscribeOnReconnect] against a local server which drops the first
+ * connection as soon as it has been subscribed to.
+ */
+class ReconnectIntegrationTest {
+
+    private val server = MockWebServer()
+    private val metrics = WebSocketMetrics()
+    private val received = LinkedBlockingQueue<String>()
+
+    @After
+    fun tearDown() {
+        WebSocketInstrumentation.monitor = null
+        server.shutdown()
+    }
+
+    @Test
+    fun `subscriptions are replayed after the server drops the connection`() {
+        WebSocketInstrumentation.monitor = metrics
+        server.enqueue(MockResponse().withWebSocketUpgrade(recordingListener(dropAfterFirstMessage = true)))
+        server.enqueue(MockResponse().withWebSocketUpgrade(recordingListener(dropAfterFirstMessage = false)))
+
+        val socket = OkHttpClient()
+            .newBlockchainWebSocket(Options(url = server.url("/").toString(), name = "test"))
+            .autoRetry(ExponentialBackoff(initialDelayMillis = 10, maxDelayMillis = 10), name = "test")
+            .resubscribeOnReconnect { ChannelSubscription(channel = it, subscribe = true) }
+
+        socket.open()
+        socket.send("prices")
+
+        received.poll(5, TimeUnit.SECONDS) `should be equal to` "prices"
+        received.poll(5, TimeUnit.SECONDS) `should be equal to` "prices"
+        server.requestCount `should be equal to` 2
+        metrics.snapshot().single().reconnects `should be equal to` 1L
+
+        socket.close()
+    }
+
+    private fun recordingListener(dropAfterFirstMessage: Boolean) = object : WebSocketListener() {
+        override fun onMessage(webSocket: WebSocket, text: String) {
+            received.add(text)
+            if (dropAfterFirstMessage) webSocket.cancel()
+        }
+    }
+}
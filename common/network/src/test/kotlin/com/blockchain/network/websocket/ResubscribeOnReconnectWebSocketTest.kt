@@ -0,0 +1,80 @@
+package com.blockchain.network.websocket
+
+import com.nhaarman.mockitokotlin2.inOrder
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
+import io.reactivex.rxjava3.subjects.PublishSubject
+import org.junit.Test
+
+class ResubscribeOnReconnectWebSocketTest {
+
+    private val events = PublishSubject.create<ConnectionEvent>()
+    private val inner = mock<StringWebSocket> {
+        on { connectionEvents }.thenReturn(events)
+    }
+    private val socket = inner.resubscribeOnReconnect { message ->
+        when {
+            message.startsWith("subscribe:") -> ChannelSubscription(message.substringAfter(':'), subscribe = true)
+            message.startsWith("unsubscribe:") -> ChannelSubscription(message.substringAfter(':'), subscribe = false)
+            else -> null
+        }
+    }
+
+    @Test
+    fun `subscriptions are sent again after reconnecting`() {
+        socket.open()
+        events.onNext(ConnectionEvent.Connected)
+        socket.send("subscribe:prices")
+        socket.send("subscribe:activity")
+        socket.send("ping")
+
+        events.onNext(ConnectionEvent.Failure(Exception()))
+        events.onNext(ConnectionEvent.Connected)
+
+        inOrder(inner) {
+            verify(inner).send("subscribe:prices")
+            verify(inner).send("subscribe:activity")
+            verify(inner).send("ping")
+            verify(inner).send("subscribe:prices")
+            verify(inner).send("subscribe:activity")
+        }
+        verify(inner, times(1)).send("ping")
+    }
+
+    @Test
+    fun `subscriptions are not sent again on the first connection`() {
+        socket.open()
+        socket.send("subscribe:prices")
+        events.onNext(ConnectionEvent.Connected)
+
+        verify(inner, times(1)).send("subscribe:prices")
+    }
+
+    @Test
+    fun `channels unsubscribed from are not sent again`() {
+        socket.open()
+        events.onNext(ConnectionEvent.Connected)
+        socket.send("subscribe:prices")
+        socket.send("unsubscribe:prices")
+
+        events.onNext(ConnectionEvent.ClientDisconnect)
+        events.onNext(ConnectionEvent.Connected)
+
+        verify(inner, times(1)).send("subscribe:prices")
+    }
+
+    @Test
+    fun `subscriptions are forgotten when the socket is closed`() {
+        socket.open()
+        events.onNext(ConnectionEvent.Connected)
+        socket.send("subscribe:prices")
+        socket.close()
+
+        socket.open()
+        events.onNext(ConnectionEvent.Failure(Exception()))
+        events.onNext(ConnectionEvent.Connected)
+
+        verify(inner, times(1)).send("subscribe:prices")
+    }
+}
@@ -9,6 +9,11 @@ import io.reactivex.rxjava3.schedulers.TestScheduler
 import io.reactivex.rxjava3.subjects.PublishSubject
 import io.reactivex.rxjava3.subjects.Subject
 import java.util.concurrent.TimeUnit
+import kotlin.random.Random
+import org.amshove.kluent.`should be equal to`
+import org.amshove.kluent.`should be`
+import org.amshove.kluent.`should not be equal to`
+import org.junit.After
 import org.junit.Rule
 import org.junit.Test
 
@@ -213,6 +218,87 @@ class RetryingConnectionFailingConnectionDelayTest {
     }
 }
 
+class RetryingConnectionPolicyTest {
+
+    private val testScheduler = TestScheduler()
+    private val metrics = WebSocketMetrics()
+
+    @get:Rule
+    val rx = rxInit {
+        computation(testScheduler)
+    }
+
+    @After
+    fun tearDown() {
+        WebSocketInstrumentation.monitor = null
+    }
+
+    @Test
+    fun `once the attempts run out, the circuit breaker opens until the cooldown has passed`() {
+        WebSocketInstrumentation.monitor = metrics
+        val connection = MockConnection()
+        connection.autoRetry(
+            ExponentialBackoff(maxAttempts = 2, circuitBreakerCooldownMillis = 60_000),
+            name = "test"
+        ).open()
+
+        connection.simulateFailure()
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+        connection.simulateFailure()
+        testScheduler.advanceTimeBy(2, TimeUnit.SECONDS)
+        verify(connection.mock, times(3)).open()
+
+        connection.simulateFailure()
+        testScheduler.advanceTimeBy(59_999, TimeUnit.MILLISECONDS)
+        verify(connection.mock, times(3)).open()
+        metrics.snapshot().single().state `should be equal to` ConnectionState.CIRCUIT_OPEN
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS)
+        verify(connection.mock, times(4)).open()
+
+        // The attempt after the cooldown failed too, so the circuit opens again straight away
+        connection.simulateFailure()
+        testScheduler.advanceTimeBy(59_999, TimeUnit.MILLISECONDS)
+        verify(connection.mock, times(4)).open()
+        testScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS)
+        verify(connection.mock, times(5)).open()
+
+        connection.simulateSuccess()
+        connection.simulateFailure()
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+        verify(connection.mock, times(6)).open()
+
+        metrics.snapshot().single().run {
+            circuitBreakerTrips `should be equal to` 2L
+            reconnects `should be equal to` 3L
+        }
+    }
+
+    @Test
+    fun `without a cooldown, reconnecting stops once the attempts run out`() {
+        val connection = MockConnection()
+        connection.autoRetry(ExponentialBackoff(maxAttempts = 1)).open()
+
+        connection.simulateFailure()
+        testScheduler.advanceTimeBy(1, TimeUnit.SECONDS)
+        connection.simulateFailure()
+        testScheduler.advanceTimeBy(1, TimeUnit.HOURS)
+
+        verify(connection.mock, times(2)).open()
+    }
+
+    @Test
+    fun `jitter spreads the delays below the backoff`() {
+        val policy = ExponentialBackoff(maxDelayMillis = 30_000, jitter = 0.5, random = Random(42))
+
+        (policy.delayMillis(1)!! in 500L..1_000L) `should be` true
+        (policy.delayMillis(3)!! in 2_000L..4_000L) `should be` true
+        (policy.delayMillis(10)!! in 15_000L..30_000L) `should be` true
+
+        val delays = List(20) { policy.delayMillis(1) }
+        delays.distinct().size `should not be equal to` 1
+    }
+}
+
 class MockConnection(val mock: WebSocketConnection = mock()) : WebSocketConnection by mock {
     private val subject: Subject<ConnectionEvent> = PublishSubject.create()
 
@@ -0,0 +1,75 @@
+package com.blockchain.network.websocket
+
+import java.util.concurrent.TimeUnit
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class WebSocketMetricsTest {
+
+    private var now = 0L
+    private val metrics = WebSocketMetrics(clock = { now })
+
+    @Test
+    fun `frame rate is measured between the first and last frame`() {
+        repeat(11) {
+            now = TimeUnit.MILLISECONDS.toNanos(100L * it)
+            metrics.onFrameReceived("prices", length = 10)
+        }
+
+        metrics.snapshot().single().run {
+            socket `should be equal to` "prices"
+            frames `should be equal to` 11L
+            bytes `should be equal to` 110L
+            framesPerSecond `should be equal to` 10.0
+        }
+    }
+
+    @Test
+    fun `decode times and drops are kept per socket`() {
+        metrics.onFrameDecoded("activity", TimeUnit.MICROSECONDS.toNanos(100))
+        metrics.onFrameDecoded("activity", TimeUnit.MICROSECONDS.toNanos(300))
+        metrics.onFrameDropped("prices")
+
+        metrics.snapshot() `should be equal to` listOf(
+            WebSocketStats(
+                socket = "activity",
+                frames = 0,
+                bytes = 0,
+                framesPerSecond = 0.0,
+                decoded = 2,
+                meanDecodeMicros = 200.0,
+                maxDecodeMicros = 300,
+                dropped = 0,
+                state = null,
+                reconnects = 0,
+                circuitBreakerTrips = 0
+            ),
+            WebSocketStats(
+                socket = "prices",
+                frames = 0,
+                bytes = 0,
+                framesPerSecond = 0.0,
+                decoded = 0,
+                meanDecodeMicros = 0.0,
+                maxDecodeMicros = 0,
+                dropped = 1,
+                state = null,
+                reconnects = 0,
+                circuitBreakerTrips = 0
+            )
+        )
+    }
+
+    @Test
+    fun `connection state and reconnects are kept per socket`() {
+        metrics.onReconnectScheduled("prices", attempt = 1, delayMillis = 1_000)
+        metrics.onConnectionStateChanged("prices", ConnectionState.CIRCUIT_OPEN)
+        metrics.onConnectionStateChanged("prices", ConnectionState.CONNECTED)
+
+        metrics.snapshot().single().run {
+            state `should be equal to` ConnectionState.CONNECTED
+            reconnects `should be equal to` 1L
+            circuitBreakerTrips `should be equal to` 1L
+        }
+    }
+}
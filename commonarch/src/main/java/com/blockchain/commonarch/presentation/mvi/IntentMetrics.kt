@@ -0,0 +1,187 @@
+package com.blockchain.commonarch.presentation.mvi
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+enum class IntentDropReason {
+    /** Filtered out by [MviModel.distinctIntentFilter] */
+    DUPLICATE,
+
+    /** [MviIntent.isValidFor] returned false for the state it arrived in */
+    INVALID,
+
+    /** Coalesced into a later intent, see [MviIntent.isSupersededBy] */
+    SUPERSEDED
+}
+
+/**
+ * Receives how every [MviModel] gets through its intents: how long each one waited to be processed and spent in
+ * [MviModel.performAction] and [MviIntent.reduce], how many are waiting, and which ones never got processed.
+ */
+interface MviModelMonitor {
+    fun onIntentProcessed(
+        model: String,
+        intent: String,
+        queuedNanos: Long,
+        performActionNanos: Long,
+        reduceNanos: Long
+    )
+
+    fun onIntentDropped(model: String, intent: String, reason: IntentDropReason)
+
+    /**
+     * Reported every time an intent is queued, with the number of intents waiting to be processed including it.
+     */
+    fun onQueueDepth(model: String, depth: Int)
+}
+
+object MviModelInstrumentation {
+    @Volatile
+    var monitor: MviModelMonitor? = null
+}
+
+/**
+ * A [MviModelMonitor] which keeps a latency histogram per model and intent type, along with drop counts and the
+ * deepest queue seen per model, until [reset].
+ */
+class MviModelMetrics : MviModelMonitor {
+
+    private val intents = ConcurrentHashMap<String, IntentCounters>()
+    private val maxQueueDepths = ConcurrentHashMap<String, AtomicInteger>()
+
+    override fun onIntentProcessed(
+        model: String,
+        intent: String,
+        queuedNanos: Long,
+        performActionNanos: Long,
+        reduceNanos: Long
+    ) {
+        counters(model, intent).run {
+            queued.record(queuedNanos)
+            processing.record(performActionNanos + reduceNanos)
+        }
+    }
+
+    override fun onIntentDropped(model: String, intent: String, reason: IntentDropReason) {
+        counters(model, intent).dropped[reason.ordinal].incrementAndGet()
+    }
+
+    override fun onQueueDepth(model: String, depth: Int) {
+        maxQueueDepths.getOrPut(model) { AtomicInteger() }.accumulateAndGet(depth, ::maxOf)
+    }
+
+    fun snapshot(): List<IntentStats> =
+        intents.map { (key, counters) ->
+            IntentStats(
+                model = key.substringBefore(KEY_SEPARATOR),
+                intent = key.substringAfter(KEY_SEPARATOR),
+                queued = counters.queued.snapshot(),
+                processing = counters.processing.snapshot(),
+                dropped = IntentDropReason.values().associateWith { counters.dropped[it.ordinal].get() }
+            )
+        }.sortedWith(compareBy(IntentStats::model, IntentStats::intent))
+
+    fun maxQueueDepth(model: String): Int = maxQueueDepths[model]?.get() ?: 0
+
+    fun reset() {
+        intents.clear()
+        maxQueueDepths.clear()
+    }
+
+    private fun counters(model: String, intent: String) =
+        intents.getOrPut("$model$KEY_SEPARATOR$intent") { IntentCounters() }
+
+    private class IntentCounters {
+        val queued = LatencyHistogram()
+        val processing = LatencyHistogram()
+        val dropped = Array(IntentDropReason.values().size) { AtomicLong() }
+    }
+
+    companion object {
+        private const val KEY_SEPARATOR = '#'
+    }
+}
+
+data class IntentStats(
+    val model: String,
+    val intent: String,
+    val queued: Histogram,
+    val processing: Histogram,
+    val dropped: Map<IntentDropReason, Long>
+)
+
+/**
+ * [counts] has one more entry than [upperBoundsMillis], for everything slower than the last bound.
+ */
+data class Histogram(
+    val upperBoundsMillis: List<Long>,
+    val counts: List<Long>,
+    val totalNanos: Long
+) {
+    val count: Long
+        get() = counts.sum()
+
+    val meanMillis: Double
+        get() = if (count == 0L) 0.0 else totalNanos / count / NANOS_PER_MILLI
+}
+
+private const val NANOS_PER_MILLI = 1_000_000.0
+
+internal class LatencyHistogram {
+
+    private val counts = AtomicLongArray(UPPER_BOUNDS_MILLIS.size + 1)
+    private val totalNanos = AtomicLong()
+
+    fun record(nanos: Long) {
+        val millis = TimeUnit.NANOSECONDS.toMillis(nanos)
+        val bucket = UPPER_BOUNDS_MILLIS.indexOfFirst { millis < it }
+            .takeIf { it >= 0 } ?: UPPER_BOUNDS_MILLIS.size
+        counts.incrementAndGet(bucket)
+        totalNanos.addAndGet(nanos)
+    }
+
+    fun snapshot() = Histogram(
+        upperBoundsMillis = UPPER_BOUNDS_MILLIS,
+        counts = List(counts.length()) { counts.get(it) },
+        totalNanos = totalNanos.get()
+    )
+
+    companion object {
+        // A frame, a few frames, and then slow enough to notice
+        private val UPPER_BOUNDS_MILLIS = listOf(1L, 4L, 16L, 32L, 64L, 128L, 256L, 512L, 1024L)
+    }
+}
+
+/**
+ * Keeps the queue depth of one [MviModel] and hands what it sees to [MviModelInstrumentation.monitor], if there is one.
+ */
+internal class IntentMetrics(private val model: String) {
+
+    private val queueDepth = AtomicInteger()
+
+    fun onQueued() {
+        val depth = queueDepth.incrementAndGet()
+        MviModelInstrumentation.monitor?.onQueueDepth(model, depth)
+    }
+
+    fun onDequeued() {
+        queueDepth.decrementAndGet()
+    }
+
+    fun onProcessed(intent: Any, queuedNanos: Long, performActionNanos: Long, reduceNanos: Long) {
+        MviModelInstrumentation.monitor?.onIntentProcessed(
+            model,
+            intent.javaClass.simpleName,
+            queuedNanos,
+            performActionNanos,
+            reduceNanos
+        )
+    }
+
+    fun onDropped(intent: Any, reason: IntentDropReason) {
+        MviModelInstrumentation.monitor?.onIntentDropped(model, intent.javaClass.simpleName, reason)
+    }
+}
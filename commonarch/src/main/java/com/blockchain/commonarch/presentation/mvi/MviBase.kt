@@ -12,6 +12,7 @@ import io.reactivex.rxjava3.kotlin.subscribeBy
 import io.reactivex.rxjava3.schedulers.Schedulers
 import io.reactivex.rxjava3.subjects.PublishSubject
 import io.reactivex.rxjava3.subjects.ReplaySubject
+import java.util.concurrent.atomic.AtomicBoolean
 import timber.log.Timber
 
 interface MviState
@@ -19,13 +20,21 @@ interface MviState
 interface MviIntent<S : MviState> {
     fun reduce(oldState: S): S
     fun isValidFor(oldState: S): Boolean = true
+
+    /**
+     * Whether this intent can be skipped when [nextIntent] is queued right behind it, before this one has been
+     * processed. Only consulted by models that conflate intents.
+     */
+    fun isSupersededBy(nextIntent: MviIntent<S>): Boolean = false
 }
 
 abstract class MviModel<S : MviState, I : MviIntent<S>>(
     initialState: S,
     uiScheduler: Scheduler,
     private val environmentConfig: EnvironmentConfig,
-    private val remoteLogger: RemoteLogger
+    private val remoteLogger: RemoteLogger,
+    // Under bursts of intents, skip any that are superseded by the one queued after them
+    private val conflateIntents: Boolean = false
 ) {
 
     private val _state: BehaviorRelay<S> = BehaviorRelay.createDefault(initialState)
@@ -36,6 +45,11 @@ abstract class MviModel<S : MviState, I : MviIntent<S>>(
 
     protected val disposables = CompositeDisposable()
 
+    private val metrics = IntentMetrics(javaClass.simpleName)
+
+    // Only touched on the ui scheduler, as intents are queued
+    private var lastQueued: QueuedIntent<I>? = null
+
     // In principle, "intents" could - and should - be a PublishSubject.
     // However, we use Koin for DI, which is lazy and doesn't create injected objects until they are first
     // accessed. So, if the UI code issues Intents early in it's lifecycle (ie in, say, onCreate()) then the model may
@@ -44,14 +58,14 @@ abstract class MviModel<S : MviState, I : MviIntent<S>>(
     // When that happens if the intent chain loses, the initial Intent gets dropped and that's that.
     // To mitigate that, we use a ReplaySubject with a small buffer, so that if the init()
     // happens after the process() from the UI, we still see those initial Intents.
-    private val intents = ReplaySubject.create<I>(5)
+    private val intents = ReplaySubject.create<QueuedIntent<I>>(5)
 
     // A consequence of using a ReplaySubject, is that sometimes, when we are processing a lot of Intents rapidly from
     // from multiple threads, it can get confused and miss some. We see this as an IndexOutOfRange exception which can
     // stall, or stop, the intent flow. Leading to a jammed or glitching UI/UX
     // To mitigate this, we use another subject to marshal all the inbound Intents on to the same, known, thread.
     // See: https://github.com/ReactiveX/RxJava/issues/1029 for an (older) explanation.
-    private val threadProxy = PublishSubject.create<I>()
+    private val threadProxy = PublishSubject.create<QueuedIntent<I>>()
         .apply {
             disposables += observeOn(uiScheduler)
                 .subscribe {
@@ -61,15 +75,40 @@ abstract class MviModel<S : MviState, I : MviIntent<S>>(
 
     init {
         disposables +=
-            intents.distinctUntilChanged(::distinctIntentFilter)
+            intents.distinctUntilChanged { previous, next ->
+                distinctIntentFilter(previous.intent, next.intent).also { isDuplicate ->
+                    if (isDuplicate) {
+                        metrics.onDequeued()
+                        metrics.onDropped(next.intent, IntentDropReason.DUPLICATE)
+                    }
+                }
+            }
+                .doOnNext(::onQueued)
                 .observeOn(Schedulers.io())
-                .scan(initialState) { previousState, intent ->
+                .scan(initialState) { previousState, queued ->
+                    val intent = queued.intent
+                    if (!queued.start()) {
+                        // Superseded while it was waiting, and already accounted for
+                        return@scan previousState
+                    }
+                    val startedAt = System.nanoTime()
+                    metrics.onDequeued()
                     Timber.d("***> Model: ProcessIntent: ${intent.javaClass.simpleName}")
                     if (intent.isValidFor(previousState)) {
                         performAction(previousState, intent)?.let { disposables += it }
-                        intent.reduce(previousState)
+                        val reduceStartedAt = System.nanoTime()
+                        intent.reduce(previousState).also {
+                            val finishedAt = System.nanoTime()
+                            metrics.onProcessed(
+                                intent = intent,
+                                queuedNanos = startedAt - queued.queuedAt,
+                                performActionNanos = reduceStartedAt - startedAt,
+                                reduceNanos = finishedAt - reduceStartedAt
+                            )
+                        }
                     } else {
                         Timber.d("***> Model: Dropping invalid Intent: ${intent.javaClass.simpleName}")
+                        metrics.onDropped(intent, IntentDropReason.INVALID)
                         previousState
                     }
                 }
@@ -84,7 +123,22 @@ abstract class MviModel<S : MviState, I : MviIntent<S>>(
                 )
     }
 
-    fun process(intent: I) = threadProxy.onNext(intent)
+    private fun onQueued(next: QueuedIntent<I>) {
+        val previous = lastQueued
+        lastQueued = next
+        if (conflateIntents && previous != null && previous.intent.isSupersededBy(next.intent) &&
+            previous.supersede()
+        ) {
+            Timber.d("***> Model: Superseded Intent: ${previous.intent.javaClass.simpleName}")
+            metrics.onDequeued()
+            metrics.onDropped(previous.intent, IntentDropReason.SUPERSEDED)
+        }
+    }
+
+    fun process(intent: I) {
+        metrics.onQueued()
+        threadProxy.onNext(QueuedIntent(intent, System.nanoTime()))
+    }
 
     fun destroy() {
         disposables.clear()
@@ -98,3 +152,12 @@ abstract class MviModel<S : MviState, I : MviIntent<S>>(
 
     protected abstract fun performAction(previousState: S, intent: I): Disposable?
 }
+
+private class QueuedIntent<I>(val intent: I, val queuedAt: Long) {
+    // Claimed once, either by the model processing it or by a later intent superseding it
+    private val claimed = AtomicBoolean(false)
+
+    fun start(): Boolean = claimed.compareAndSet(false, true)
+
+    fun supersede(): Boolean = claimed.compareAndSet(false, true)
+}
@@ -3,13 +3,18 @@ package com.blockchain.commonarch.presentation.mvi_v2
 import android.os.Parcelable
 import androidx.lifecycle.ViewModel
 import androidx.lifecycle.viewModelScope
+import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
 import timber.log.Timber
 
@@ -47,12 +52,17 @@ sealed interface ModelConfigArgs {
     object NoArgs : ModelConfigArgs
 }
 
+/**
+ * @param reduceDispatcher when set, [MviViewModel.reduce] runs on it rather than on the main thread and only the
+ * latest view state is delivered if the UI falls behind. Meant for screens with expensive reductions.
+ */
 abstract class MviViewModel<TIntent : Intent<TModelState>,
     TViewState : ViewState,
     TModelState : ModelState,
     NavEvent : NavigationEvent,
     TArgs : ModelConfigArgs>(
-    val initialState: TModelState
+    val initialState: TModelState,
+    private val reduceDispatcher: CoroutineDispatcher? = null
 ) : ViewModel() {
 
     /**
@@ -84,10 +94,11 @@ abstract class MviViewModel<TIntent : Intent<TModelState>,
 
     /**
      * Called by the Viewmodel whenever states [modelState] and [viewState] need to get updated.
-     * @param stateUpdate a lambda that generates a new [modelState]
+     * @param stateUpdate a lambda that generates a new [modelState]. It is called again if another update lands while it
+     * runs, so it must only compute the new state from the one it is given, without side effects.
      */
     protected fun updateState(stateUpdate: (state: TModelState) -> TModelState) {
-        _modelState.value = stateUpdate(modelState)
+        _modelState.update(stateUpdate)
     }
 
     /**
@@ -99,17 +110,30 @@ abstract class MviViewModel<TIntent : Intent<TModelState>,
         }
     }
 
+    private val viewStateMetrics = ViewStateMetrics(javaClass.simpleName)
+
     /**
-     * [viewState] flow always has a value
+     * [viewState] flow always has a value. Created once and shared by all collectors, so [reduce] runs once per
+     * state change however many collectors there are.
      */
-    val viewState: StateFlow<TViewState>
-        get() = _modelState.map {
-            reduce(it)
-        }.stateIn(viewModelScope, SharingStarted.Eagerly, reduce(initialState))
+    val viewState: StateFlow<TViewState> by lazy {
+        val reducedStates = _modelState.map { state ->
+            viewStateMetrics.measureReduce { reduce(state) }
+        }
+        val viewStates = if (reduceDispatcher != null) {
+            reducedStates.flowOn(reduceDispatcher).conflate()
+        } else {
+            reducedStates
+        }
+        viewStates
+            .onEach { viewStateMetrics.onEmission() }
+            .stateIn(viewModelScope, SharingStarted.Eagerly, reduce(modelState))
+    }
 
     /**
      * Method that should be override in every Model created. In this method, base on the latest internal
-     * model state, we create a new immutable [viewState]
+     * model state, we create a new immutable [viewState]. It must be a pure function of [state], as it may run off the
+     * main thread and intermediate states may be skipped.
      * @param state model latest internal state
      */
     protected abstract fun reduce(state: TModelState): TViewState
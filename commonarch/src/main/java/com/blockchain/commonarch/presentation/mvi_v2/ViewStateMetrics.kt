@@ -0,0 +1,54 @@
+package com.blockchain.commonarch.presentation.mvi_v2
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Receives how long [MviViewModel.reduce] takes and how often view states are emitted, for every [MviViewModel].
+ * Screens that jank are the ones reducing for longer than a frame, or emitting far more often than they can draw.
+ */
+interface ViewStateMonitor {
+    fun onReduce(viewModel: String, durationNanos: Long)
+
+    /**
+     * Reported at most once a second, while view states are being emitted.
+     */
+    fun onEmissionRate(viewModel: String, emissionsPerSecond: Double)
+}
+
+object ViewStateInstrumentation {
+    @Volatile
+    var monitor: ViewStateMonitor? = null
+}
+
+internal class ViewStateMetrics(private val viewModel: String) {
+
+    // Only touched by the view state pipeline, which runs sequentially
+    private var windowStart = 0L
+    private var emissions = 0
+
+    fun <T> measureReduce(reduce: () -> T): T {
+        val monitor = ViewStateInstrumentation.monitor ?: return reduce()
+        val start = System.nanoTime()
+        return reduce().also {
+            monitor.onReduce(viewModel, System.nanoTime() - start)
+        }
+    }
+
+    fun onEmission() {
+        val monitor = ViewStateInstrumentation.monitor ?: return
+        val now = System.nanoTime()
+        if (emissions == 0) {
+            windowStart = now
+        }
+        emissions++
+        val elapsed = now - windowStart
+        if (elapsed >= WINDOW_NANOS) {
+            monitor.onEmissionRate(viewModel, emissions * TimeUnit.SECONDS.toNanos(1).toDouble() / elapsed)
+            emissions = 0
+        }
+    }
+
+    companion object {
+        private val WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1)
+    }
+}
@@ -0,0 +1,106 @@
+package com.blockchain.commonarch.presentation.mvi_v2
+
+import com.blockchain.testutils.CoroutineTestRule
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.test.StandardTestDispatcher
+import org.amshove.kluent.`should be equal to`
+import org.junit.Rule
+import org.junit.Test
+
+@ExperimentalCoroutinesApi
+class MviViewModelTest {
+
+    @get:Rule
+    val coroutineTestRule = CoroutineTestRule()
+
+    @Test
+    fun `view state is reduced once per state change whatever the number of collectors`() {
+        val viewModel = CounterViewModel()
+        val collectors = CoroutineScope(Dispatchers.Unconfined)
+        repeat(3) {
+            collectors.launch { viewModel.viewState.collect {} }
+        }
+        val reducedBefore = viewModel.reduceCalls.get()
+
+        viewModel.onIntent(CounterIntent.Increment)
+
+        viewModel.reduceCalls.get() - reducedBefore `should be equal to` 1
+        viewModel.viewState.value `should be equal to` CounterViewState(1)
+        collectors.cancel()
+    }
+
+    @Test
+    fun `concurrent state updates are not lost`() {
+        val viewModel = CounterViewModel()
+
+        runBlocking(Dispatchers.Default) {
+            repeat(1_000) {
+                launch { viewModel.increment() }
+            }
+        }
+
+        viewModel.count `should be equal to` 1_000
+        viewModel.viewState.value `should be equal to` CounterViewState(1_000)
+    }
+
+    @Test
+    fun `only the latest state is reduced when reducing off the main thread falls behind`() {
+        val reduceDispatcher = StandardTestDispatcher()
+        val viewModel = CounterViewModel(reduceDispatcher)
+        val emitted = mutableListOf<CounterViewState>()
+        val collector = CoroutineScope(Dispatchers.Unconfined)
+        collector.launch { viewModel.viewState.collect { emitted.add(it) } }
+
+        repeat(100) { viewModel.increment() }
+        reduceDispatcher.scheduler.advanceUntilIdle()
+
+        emitted `should be equal to` listOf(CounterViewState(0), CounterViewState(100))
+        collector.cancel()
+    }
+}
+
+private data class CounterModelState(val count: Int) : ModelState
+
+private data class CounterViewState(val count: Int) : ViewState
+
+private sealed interface CounterIntent : Intent<CounterModelState> {
+    object Increment : CounterIntent
+}
+
+private object NoNavigation : NavigationEvent
+
+private class CounterViewModel(
+    reduceDispatcher: CoroutineDispatcher? = null
+) : MviViewModel<CounterIntent, CounterViewState, CounterModelState, NoNavigation, ModelConfigArgs.NoArgs>(
+    CounterModelState(0),
+    reduceDispatcher
+) {
+    val reduceCalls = AtomicInteger()
+
+    val count: Int
+        get() = modelState.count
+
+    override fun viewCreated(args: ModelConfigArgs.NoArgs) {}
+
+    override fun reduce(state: CounterModelState): CounterViewState {
+        reduceCalls.incrementAndGet()
+        return CounterViewState(state.count)
+    }
+
+    override suspend fun handleIntent(modelState: CounterModelState, intent: CounterIntent) {
+        when (intent) {
+            CounterIntent.Increment -> increment()
+        }
+    }
+
+    fun increment() {
+        updateState { it.copy(count = it.count + 1) }
+    }
+}
@@ -6,6 +6,7 @@ import info.blockchain.wallet.exceptions.TransactionHashApiException
 import info.blockchain.wallet.keys.SigningKey
 import info.blockchain.wallet.payload.data.XPubs
 import info.blockchain.wallet.payload.model.Utxo
+import info.blockchain.wallet.payment.CoinSelectionMode
 import info.blockchain.wallet.payment.OutputType
 import info.blockchain.wallet.payment.Payment
 import info.blockchain.wallet.payment.SpendableUnspentOutputs
@@ -187,6 +188,7 @@ class PaymentService(
      * @param feePerKb The current fee per kB, as a [BigInteger]
      * @param includeReplayProtection Whether or not you intend on adding a dust input for replay protection. This is
      * an extra input and therefore affects the transaction fee.
+     * @param coinSelectionMode How the coins are picked, ignored when adding replay protection
      * @return An [SpendableUnspentOutputs] object, which wraps a list of spendable outputs
      * for the given inputs
      */
@@ -196,7 +198,8 @@ class PaymentService(
         changeOutputType: OutputType,
         paymentAmount: BigInteger,
         feePerKb: BigInteger,
-        includeReplayProtection: Boolean
+        includeReplayProtection: Boolean,
+        coinSelectionMode: CoinSelectionMode = CoinSelectionMode.Accumulative
     ): SpendableUnspentOutputs =
         payment.getSpendableCoins(
             unspentCoins,
@@ -204,7 +207,8 @@ class PaymentService(
             changeOutputType,
             paymentAmount,
             feePerKb,
-            includeReplayProtection
+            includeReplayProtection,
+            coinSelectionMode
         )
 
     /**
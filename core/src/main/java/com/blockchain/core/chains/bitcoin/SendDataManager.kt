@@ -10,6 +10,7 @@ import info.blockchain.wallet.api.dust.data.DustInput
 import info.blockchain.wallet.keys.SigningKey
 import info.blockchain.wallet.payload.data.XPubs
 import info.blockchain.wallet.payload.model.Utxo
+import info.blockchain.wallet.payment.CoinSelectionMode
 import info.blockchain.wallet.payment.OutputType
 import info.blockchain.wallet.payment.SpendableUnspentOutputs
 import info.blockchain.wallet.util.FormatsUtil
@@ -164,6 +165,7 @@ class SendDataManager(
      * @param paymentAmount The amount you wish to send, as a [CryptoValue]
      * @param feePerKb The current fee per kB, as a [BigInteger]
      * an extra input and therefore affects the transaction fee.
+     * @param coinSelectionMode How the coins are picked, BCH always uses [CoinSelectionMode.Accumulative]
      * @return An [SpendableUnspentOutputs] object, which wraps a list of spendable outputs
      * for the given inputs
      */
@@ -172,14 +174,16 @@ class SendDataManager(
         targetOutputType: OutputType,
         changeOutputType: OutputType,
         paymentAmount: Money,
-        feePerKb: Money
+        feePerKb: Money,
+        coinSelectionMode: CoinSelectionMode = CoinSelectionMode.Accumulative
     ): SpendableUnspentOutputs = paymentService.getSpendableCoins(
         unspentCoins,
         targetOutputType,
         changeOutputType,
         paymentAmount.toBigInteger(),
         feePerKb.toBigInteger(),
-        paymentAmount.currency == CryptoCurrency.BCH
+        paymentAmount.currency == CryptoCurrency.BCH,
+        coinSelectionMode
     )
 
     /**
@@ -10,7 +10,8 @@ class StoreWiperImpl(
 ) : StoreWiper {
 
     override suspend fun wipe() {
-        inMemoryCacheWiper.wipe()
+        // Wiping the database first, so that memory tiers can't be loaded back with wiped rows
         persistedJsonSqlDelightCacheWiper.wipe()
+        inMemoryCacheWiper.wipe()
     }
 }
@@ -0,0 +1,128 @@
+package com.blockchain.core.price.historic
+
+import com.blockchain.api.services.AssetPriceService
+import io.reactivex.rxjava3.core.Observable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.kotlin.subscribeBy
+import io.reactivex.rxjava3.schedulers.Schedulers
+import io.reactivex.rxjava3.subjects.PublishSubject
+import io.reactivex.rxjava3.subjects.SingleSubject
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+
+/**
+ * Collects the historic rates requested within [windowMillis] of each other and fetches them with one call per
+ * timestamp and fiat, rather than one call per rate. Rendering an activity list asks for the rate of every
+ * transaction at once, and with timestamps quantized by [HistoricRateFetcher] most of them share a timestamp.
+ *
+ * A batch is fetched once no rate has been requested for [windowMillis], [maxWindowMillis] after its first request
+ * or when it holds [maxBatchSize] rates, whichever comes first. Timers are only armed by requests, so nothing runs
+ * while no rates are wanted.
+ */
+internal class HistoricRateBatcher(
+    private val assetPriceService: AssetPriceService,
+    windowMillis: Long = DEFAULT_WINDOW_MILLIS,
+    maxWindowMillis: Long = MAX_WINDOW_MILLIS,
+    maxBatchSize: Int = MAX_BATCH_SIZE,
+    scheduler: Scheduler = Schedulers.computation()
+) {
+    private class Request(
+        val key: HistoricRateStore.Key,
+        val result: SingleSubject<HistoricRate>
+    ) {
+        // Set once the subscriber is no longer interested, so that the rate isn't fetched for nobody
+        @Volatile
+        var disposed = false
+    }
+
+    private val requests = PublishSubject.create<Request>().toSerialized()
+
+    // Requests not fetched yet. Whoever removes a request from here completes it, so it's only ever completed once
+    private val pending: MutableSet<Request> = ConcurrentHashMap.newKeySet()
+
+    @Volatile
+    private var failure: Throwable? = null
+
+    init {
+        requests
+            .publish { requested ->
+                requested.window(
+                    Observable.merge(
+                        requested.debounce(windowMillis, TimeUnit.MILLISECONDS, scheduler),
+                        requested.throttleFirst(maxWindowMillis, TimeUnit.MILLISECONDS, scheduler)
+                            .delay(maxWindowMillis, TimeUnit.MILLISECONDS, scheduler)
+                    )
+                )
+            }
+            .concatMap { it.buffer(maxBatchSize) }
+            .filter { it.isNotEmpty() }
+            .subscribeBy(
+                onNext = { batch ->
+                    val (disposed, wanted) = batch.partition { it.disposed }
+                    pending.removeAll(disposed.toSet())
+                    wanted.groupBy { it.key.requestedTimestamp to it.key.fiatTicker }
+                        .forEach { (timestampAndFiat, group) ->
+                            val (timestamp, fiatTicker) = timestampAndFiat
+                            fetch(timestamp, fiatTicker, group)
+                        }
+                },
+                onError = { error ->
+                    // Nothing can be batched anymore, fail the rates not fetched yet and any requested from now on
+                    failure = error
+                    pending.forEach { request ->
+                        if (pending.remove(request)) request.result.onError(error)
+                    }
+                }
+            )
+    }
+
+    fun rate(key: HistoricRateStore.Key): Single<HistoricRate> =
+        Single.defer {
+            val request = Request(key, SingleSubject.create())
+            pending += request
+            requests.onNext(request)
+            failure?.let { error ->
+                if (pending.remove(request)) request.result.onError(error)
+            }
+            request.result.doOnDispose { request.disposed = true }
+        }
+
+    private fun fetch(timestamp: Long, fiatTicker: String, group: List<Request>) {
+        assetPriceService.getHistoricPrices(
+            baseTickers = group.mapTo(mutableSetOf()) { it.key.assetTicker },
+            quoteTickers = setOf(fiatTicker),
+            time = timestamp / 1000, // API uses seconds
+        ).subscribeBy(
+            onSuccess = { prices ->
+                val priceByAsset = prices.filter { it.quote == fiatTicker }.associateBy { it.base }
+                group.filter { pending.remove(it) }.forEach { request ->
+                    val price = priceByAsset[request.key.assetTicker]
+                    if (price != null) {
+                        request.result.onSuccess(
+                            HistoricRate(
+                                rate = price.price,
+                                fiatTicker = request.key.fiatTicker,
+                                assetTicker = request.key.assetTicker,
+                                requestedTimestamp = request.key.requestedTimestamp,
+                            )
+                        )
+                    } else {
+                        request.result.onError(NoSuchElementException("No historic rate for ${request.key}"))
+                    }
+                }
+            },
+            onError = { error ->
+                group.filter { pending.remove(it) }.forEach { it.result.onError(error) }
+            }
+        )
+    }
+
+    companion object {
+        private const val DEFAULT_WINDOW_MILLIS = 50L
+        private const val MAX_WINDOW_MILLIS = 250L
+
+        // Keeps the number of pairs, and so the size of the request, bounded
+        private const val MAX_BATCH_SIZE = 100
+    }
+}
@@ -9,10 +9,13 @@ import info.blockchain.balance.ExchangeRate
 import info.blockchain.balance.FiatCurrency
 import info.blockchain.balance.Money
 import io.reactivex.rxjava3.core.Single
+import java.util.concurrent.TimeUnit
 
 // Moved here fromm app. This should be under, rather than over, ExchangeRateDM TODO
 class HistoricRateFetcher internal constructor(
     private val historicRateStore: HistoricRateStore,
+    // Rates are fetched for the start of the bucket a transaction falls in, so nearby transactions share a rate
+    private val timestampBucketMillis: Long = DEFAULT_TIMESTAMP_BUCKET_MILLIS,
 ) {
     fun fetch(asset: AssetInfo, selectedFiat: FiatCurrency, timestampMs: Long, value: Money): Single<Money> =
         rxSingleOutcome {
@@ -21,7 +24,7 @@ class HistoricRateFetcher internal constructor(
                     HistoricRateStore.Key(
                         fiatTicker = selectedFiat.networkTicker,
                         assetTicker = asset.networkTicker,
-                        requestedTimestamp = timestampMs,
+                        requestedTimestamp = timestampMs - timestampMs % timestampBucketMillis,
                     ),
                     false
                 )
@@ -34,4 +37,8 @@ class HistoricRateFetcher internal constructor(
                     ).convert(value)
                 }
         }
+
+    companion object {
+        private val DEFAULT_TIMESTAMP_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(5)
+    }
 }
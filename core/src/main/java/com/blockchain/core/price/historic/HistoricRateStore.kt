@@ -2,39 +2,33 @@ package com.blockchain.core.price.historic
 
 import com.blockchain.api.services.AssetPriceService
 import com.blockchain.store.CachedData
+import com.blockchain.store.EvictionPolicy
 import com.blockchain.store.Fetcher
 import com.blockchain.store.KeyedStore
 import com.blockchain.store.Mediator
 import com.blockchain.store_caches_persistedjsonsqldelight.PersistedJsonSqlDelightStoreBuilder
 import kotlinx.serialization.Serializable
 
-class HistoricRateStore(
-    private val assetPriceService: AssetPriceService,
+class HistoricRateStore internal constructor(
+    private val batcher: HistoricRateBatcher,
 ) : KeyedStore<HistoricRateStore.Key, HistoricRate> by PersistedJsonSqlDelightStoreBuilder()
     .buildKeyed(
         storeId = STORE_ID,
         fetcher = Fetcher.Keyed.ofSingle { key ->
-            assetPriceService.getHistoricPrices(
-                baseTickers = setOf(key.assetTicker),
-                quoteTickers = setOf(key.fiatTicker),
-                time = key.requestedTimestamp / 1000, // API uses seconds
-            ).map {
-                HistoricRate(
-                    rate = it.first().price,
-                    fiatTicker = key.fiatTicker,
-                    assetTicker = key.assetTicker,
-                    requestedTimestamp = key.requestedTimestamp,
-                )
-            }
+            batcher.rate(key)
         },
         keySerializer = Key.serializer(),
         dataSerializer = HistoricRate.serializer(),
         mediator = object : Mediator<Key, HistoricRate> {
             override fun shouldFetch(cachedData: CachedData<Key, HistoricRate>?): Boolean =
                 cachedData == null
-        }
+        },
+        // Every transaction of the activity list has its own rate, keep the most recent ones only
+        evictionPolicy = EvictionPolicy(maxEntries = MAX_CACHED_RATES)
     ) {
 
+    constructor(assetPriceService: AssetPriceService) : this(HistoricRateBatcher(assetPriceService))
+
     @Serializable
     data class Key(
         val fiatTicker: String,
@@ -44,5 +38,6 @@ class HistoricRateStore(
 
     companion object {
         private const val STORE_ID = "HistoricRateStore"
+        private const val MAX_CACHED_RATES = 2_000
     }
 }
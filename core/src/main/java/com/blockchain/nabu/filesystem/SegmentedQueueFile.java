@@ -0,0 +1,681 @@
+package com.blockchain.nabu.filesystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A file-based FIFO queue with the same contract as {@link QueueFile}, stored as a directory of
+ * append-only segment files rather than a single ring buffer.
+ *
+ * <p>Elements are appended to the newest segment, a new segment being started once it reaches
+ * {@code segmentSize} bytes, and a segment is deleted once all of its elements have been removed.
+ * Additions are group committed: {@link #addAll} writes a whole batch with a single sync, and
+ * threads adding elements at the same time share one sync between them. An element is only
+ * visible once it has been synced.
+ *
+ * <p>Reading doesn't wait for elements being written, only removing whole segments waits for
+ * reads in progress to finish.
+ *
+ * <p>Every element is stored with its length and checksum. A crash in the middle of a write
+ * leaves a truncated or corrupt record at the end of a segment, which is dropped when the queue
+ * is opened again.
+ *
+ * <pre>
+ *   Segment (segment-{sequence number}):
+ *     Element*
+ *
+ *   Element:
+ *     Length (4 bytes)
+ *     CRC32  (4 bytes)
+ *     Data   (Length bytes)
+ *
+ *   Head (head), where the first element not yet removed is:
+ *     Segment Sequence Number (8 bytes)
+ *     Position In Segment     (8 bytes)
+ *     CRC32 Of The Above      (4 bytes)
+ * </pre>
+ */
+public class SegmentedQueueFile implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(SegmentedQueueFile.class.getName());
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Size after which a new segment is started. Elements bigger than this get a segment of their own.
+     */
+    static final int DEFAULT_SEGMENT_SIZE = 128 * 1024;
+
+    /**
+     * Length of the length and checksum written before every element.
+     */
+    static final int RECORD_HEADER_LENGTH = 8;
+
+    private static final int HEAD_LENGTH = 20;
+    private static final String HEAD_FILE_NAME = "head";
+    private static final String SEGMENT_PREFIX = "segment-";
+
+    private final File directory;
+    private final int segmentSize;
+    private final FileChannel head;
+
+    /**
+     * Held while appending. Never held by readers.
+     */
+    private final Object appendLock = new Object();
+
+    /**
+     * Held while removing elements and updating the head.
+     */
+    private final Object headLock = new Object();
+
+    /**
+     * Read locked while reading from segments, write locked to close or delete them.
+     */
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+
+    /**
+     * Oldest first, guarded by itself.
+     */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    /**
+     * Elements that have been synced and not removed, eldest first. Guarded by itself.
+     */
+    private final ArrayDeque<Element> elements = new ArrayDeque<>();
+
+    /**
+     * Batches waiting to be written by whichever thread next holds {@link #appendLock}. Guarded by itself.
+     */
+    private final List<Batch> pending = new ArrayList<>();
+
+    /**
+     * Segment being appended to. Guarded by {@link #appendLock}.
+     */
+    private Segment tail;
+
+    public SegmentedQueueFile(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens, or creates, the queue stored in the given directory, recovering from any write that
+     * was interrupted by a crash. Only one instance should access a given directory at a time.
+     */
+    public SegmentedQueueFile(File directory, int segmentSize) throws IOException {
+        if (segmentSize <= RECORD_HEADER_LENGTH) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        if (!(directory.isDirectory() || directory.mkdirs())) {
+            throw new IOException("Could not create directory at " + directory);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.head = new RandomAccessFile(new File(directory, HEAD_FILE_NAME), "rw").getChannel();
+        try {
+            recover();
+        } catch (IOException e) {
+            closeAll();
+            throw e;
+        }
+    }
+
+    private void recover() throws IOException {
+        long headSequence = -1;
+        long headPosition = 0;
+        ByteBuffer headBuffer = ByteBuffer.allocate(HEAD_LENGTH);
+        if (head.size() >= HEAD_LENGTH) {
+            readFully(head, headBuffer, 0);
+            long sequence = headBuffer.getLong(0);
+            long position = headBuffer.getLong(8);
+            if (headBuffer.getInt(16) == checksum(headBuffer.array(), 0, 16)) {
+                headSequence = sequence;
+                headPosition = position;
+            } else {
+                // Elements may be read again, which beats losing them
+                LOGGER.warning("Head is corrupt, reading from the oldest segment");
+            }
+        }
+
+        for (long sequence : listSegments()) {
+            File file = segmentFile(sequence);
+            if (sequence < headSequence) {
+                // Removed, but not deleted before the process died
+                delete(file);
+                continue;
+            }
+            Segment segment = openSegment(sequence);
+            segments.add(segment);
+            long start = sequence == headSequence ? Math.min(headPosition, segment.length) : 0;
+            scan(segment, start);
+        }
+
+        if (segments.isEmpty()) {
+            segments.add(openSegment(Math.max(headSequence, 0)));
+        }
+        tail = segments.peekLast();
+    }
+
+    /**
+     * Indexes the elements of the segment from the given position, truncating it after the last
+     * complete element.
+     */
+    private void scan(Segment segment, long start) throws IOException {
+        long length = segment.length;
+        ByteBuffer buffer = ByteBuffer.allocate((int) (length - start));
+        readFully(segment.channel, buffer, start);
+
+        long position = start;
+        while (position < length) {
+            int offset = (int) (position - start);
+            if (length - position < RECORD_HEADER_LENGTH) {
+                break;
+            }
+            int elementLength = buffer.getInt(offset);
+            int elementChecksum = buffer.getInt(offset + 4);
+            if (elementLength < 0 || length - position - RECORD_HEADER_LENGTH < elementLength) {
+                break;
+            }
+            if (checksum(buffer.array(), offset + RECORD_HEADER_LENGTH, elementLength) != elementChecksum) {
+                break;
+            }
+            elements.add(new Element(segment, position + RECORD_HEADER_LENGTH, elementLength));
+            position += RECORD_HEADER_LENGTH + elementLength;
+        }
+
+        if (position < length) {
+            LOGGER.warning(
+                "Dropping " + (length - position) + " bytes of an incomplete write from " + segment.file.getName()
+            );
+            segment.channel.truncate(position);
+            segment.channel.force(true);
+            segment.length = position;
+        }
+    }
+
+    /**
+     * Adds an element to the end of the queue.
+     */
+    public void add(byte[] data) throws IOException {
+        addAll(Collections.singletonList(data));
+    }
+
+    /**
+     * Adds elements to the end of the queue, syncing them to disk at once. Either all of them are
+     * added, or none are if an {@link IOException} is thrown.
+     */
+    public void addAll(List<byte[]> data) throws IOException {
+        for (byte[] element : data) {
+            if (element == null) {
+                throw new NullPointerException("data == null");
+            }
+        }
+        if (data.isEmpty()) {
+            return;
+        }
+
+        Batch batch = new Batch(data);
+        synchronized (pending) {
+            pending.add(batch);
+        }
+        synchronized (appendLock) {
+            // Another thread may have written this batch along with its own while this one waited
+            if (!batch.committed) {
+                commitPending();
+            }
+        }
+        if (batch.failure != null) {
+            throw new IOException("Failed to add " + data.size() + " elements", batch.failure);
+        }
+    }
+
+    // To be called holding appendLock
+    private void commitPending() {
+        List<Batch> batches;
+        synchronized (pending) {
+            batches = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        Segment tailBefore = tail;
+        long tailLengthBefore = tail.length;
+        try {
+            List<Element> written = new ArrayList<>();
+            Set<Segment> touched = new LinkedHashSet<>();
+            write(batches, written, touched);
+            for (Segment segment : touched) {
+                segment.channel.force(false);
+            }
+            synchronized (elements) {
+                elements.addAll(written);
+            }
+        } catch (IOException e) {
+            for (Batch batch : batches) {
+                batch.failure = e;
+            }
+            rollBack(tailBefore, tailLengthBefore);
+        } finally {
+            for (Batch batch : batches) {
+                batch.committed = true;
+            }
+        }
+    }
+
+    private void write(List<Batch> batches, List<Element> written, Set<Segment> touched) throws IOException {
+        Segment segment = tail;
+        long position = segment.length;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] header = new byte[RECORD_HEADER_LENGTH];
+
+        for (Batch batch : batches) {
+            for (byte[] data : batch.data) {
+                int recordLength = RECORD_HEADER_LENGTH + data.length;
+                if (position > 0 && position + recordLength > segmentSize) {
+                    append(segment, buffer, touched);
+                    segment = newTail();
+                    position = 0;
+                }
+                writeInt(header, 0, data.length);
+                writeInt(header, 4, checksum(data, 0, data.length));
+                buffer.write(header, 0, RECORD_HEADER_LENGTH);
+                buffer.write(data, 0, data.length);
+                written.add(new Element(segment, position + RECORD_HEADER_LENGTH, data.length));
+                position += recordLength;
+            }
+        }
+        append(segment, buffer, touched);
+    }
+
+    private void append(Segment segment, ByteArrayOutputStream buffer, Set<Segment> touched) throws IOException {
+        if (buffer.size() == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        long position = segment.length;
+        while (bytes.hasRemaining()) {
+            position += segment.channel.write(bytes, position);
+        }
+        segment.length = position;
+        touched.add(segment);
+        buffer.reset();
+    }
+
+    private Segment newTail() throws IOException {
+        Segment segment = openSegment(tail.sequence + 1);
+        synchronized (segments) {
+            segments.add(segment);
+        }
+        tail = segment;
+        return segment;
+    }
+
+    /**
+     * Undoes a failed write, none of its elements having been made visible.
+     */
+    private void rollBack(Segment tailBefore, long tailLengthBefore) {
+        synchronized (segments) {
+            while (segments.peekLast() != tailBefore) {
+                Segment segment = segments.pollLast();
+                closeQuietly(segment.channel);
+                delete(segment.file);
+            }
+        }
+        tail = tailBefore;
+        try {
+            tailBefore.channel.truncate(tailLengthBefore);
+            tailBefore.length = tailLengthBefore;
+        } catch (IOException e) {
+            // Anything left behind is dropped as an incomplete write when the queue is next opened
+            LOGGER.log(Level.WARNING, "Failed to roll back " + tailBefore.file.getName(), e);
+        }
+    }
+
+    /**
+     * Returns true if this queue contains no entries.
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of elements in this queue.
+     */
+    public long size() {
+        synchronized (elements) {
+            return elements.size();
+        }
+    }
+
+    /**
+     * Reads the eldest element, or returns null if the queue is empty.
+     */
+    public byte[] peek() throws IOException {
+        segmentsLock.readLock().lock();
+        try {
+            Element first;
+            synchronized (elements) {
+                first = elements.peekFirst();
+            }
+            return first == null ? null : readElement(first);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the eldest {@code n} elements, or all of them if there are fewer.
+     */
+    public List<String> read(long n) throws IOException {
+        segmentsLock.readLock().lock();
+        try {
+            List<Element> toRead = new ArrayList<>();
+            synchronized (elements) {
+                Iterator<Element> iterator = elements.iterator();
+                while (iterator.hasNext() && toRead.size() < n) {
+                    toRead.add(iterator.next());
+                }
+            }
+            List<String> items = new ArrayList<>(toRead.size());
+            for (Element element : toRead) {
+                items.add(new String(readElement(element), UTF_8).trim());
+            }
+            return items;
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    private byte[] readElement(Element element) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(element.length);
+        readFully(element.segment.channel, buffer, element.position);
+        return buffer.array();
+    }
+
+    /**
+     * Removes the eldest element.
+     *
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public void remove() throws IOException {
+        remove(1);
+    }
+
+    /**
+     * Removes the eldest {@code n} elements.
+     *
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public void remove(int n) throws IOException {
+        synchronized (headLock) {
+            Element lastRemoved;
+            Element newFirst;
+            synchronized (elements) {
+                if (elements.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                if (n < 0) {
+                    throw new IllegalArgumentException(
+                        "Cannot remove negative (" + n + ") number of elements.");
+                }
+                if (n == 0) {
+                    return;
+                }
+                if (n > elements.size()) {
+                    throw new IllegalArgumentException(
+                        "Cannot remove more elements ("
+                        + n
+                        + ") than present in queue ("
+                        + elements.size()
+                        + ").");
+                }
+                Iterator<Element> iterator = elements.iterator();
+                Element element = null;
+                for (int i = 0; i < n; i++) {
+                    element = iterator.next();
+                }
+                lastRemoved = element;
+                newFirst = iterator.hasNext() ? iterator.next() : null;
+            }
+
+            // Commit the removal, the elements are then dropped from memory
+            writeHead(lastRemoved.segment.sequence, lastRemoved.position + lastRemoved.length);
+            synchronized (elements) {
+                for (int i = 0; i < n; i++) {
+                    elements.pollFirst();
+                }
+            }
+
+            Segment firstInUse = newFirst != null ? newFirst.segment : lastRemoved.segment;
+            deleteSegmentsBefore(firstInUse.sequence);
+        }
+    }
+
+    private void deleteSegmentsBefore(long sequence) {
+        List<Segment> removed = new ArrayList<>();
+        synchronized (segments) {
+            while (segments.peekFirst().sequence < sequence) {
+                removed.add(segments.pollFirst());
+            }
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+        segmentsLock.writeLock().lock();
+        try {
+            for (Segment segment : removed) {
+                closeQuietly(segment.channel);
+                delete(segment.file);
+            }
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Clears this queue, deleting all of its segments.
+     */
+    public void clear() throws IOException {
+        synchronized (appendLock) {
+            synchronized (headLock) {
+                segmentsLock.writeLock().lock();
+                try {
+                    long sequence = tail.sequence + 1;
+                    writeHead(sequence, 0);
+                    synchronized (elements) {
+                        elements.clear();
+                    }
+                    synchronized (segments) {
+                        for (Segment segment : segments) {
+                            closeQuietly(segment.channel);
+                            delete(segment.file);
+                        }
+                        segments.clear();
+                        tail = openSegment(sequence);
+                        segments.add(tail);
+                    }
+                } finally {
+                    segmentsLock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the underlying files.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            synchronized (headLock) {
+                segmentsLock.writeLock().lock();
+                try {
+                    closeAll();
+                } finally {
+                    segmentsLock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private void closeAll() {
+        synchronized (segments) {
+            for (Segment segment : segments) {
+                closeQuietly(segment.channel);
+            }
+        }
+        closeQuietly(head);
+    }
+
+    private void writeHead(long sequence, long position) throws IOException {
+        byte[] buffer = new byte[HEAD_LENGTH];
+        ByteBuffer headBuffer = ByteBuffer.wrap(buffer);
+        headBuffer.putLong(0, sequence);
+        headBuffer.putLong(8, position);
+        headBuffer.putInt(16, checksum(buffer, 0, 16));
+        long written = 0;
+        while (headBuffer.hasRemaining()) {
+            written += head.write(headBuffer, written);
+        }
+        head.force(false);
+    }
+
+    private List<Long> listSegments() {
+        List<Long> sequences = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return sequences;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX)) {
+                try {
+                    sequences.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    LOGGER.warning("Ignoring unexpected file " + name);
+                }
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, SEGMENT_PREFIX + sequence);
+    }
+
+    private Segment openSegment(long sequence) throws IOException {
+        File file = segmentFile(sequence);
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        return new Segment(sequence, file, channel, channel.size());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static int checksum(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset]     = (byte) (value >> 24);
+        buffer[offset + 1] = (byte) (value >> 16);
+        buffer[offset + 2] = (byte) (value >> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    private static void delete(File file) {
+        if (!file.delete() && file.exists()) {
+            LOGGER.warning("Failed to delete " + file.getName());
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "close error", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName()
+               + "["
+               + "directory = "
+               + directory
+               + ", size = "
+               + size()
+               + "]";
+    }
+
+    private static class Segment {
+        final long sequence;
+        final File file;
+        final FileChannel channel;
+
+        /**
+         * Bytes written. Guarded by the queue's append lock once the queue is open.
+         */
+        long length;
+
+        Segment(long sequence, File file, FileChannel channel, long length) {
+            this.sequence = sequence;
+            this.file = file;
+            this.channel = channel;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A pointer to the data of an element.
+     */
+    private static class Element {
+        final Segment segment;
+        final long position;
+        final int length;
+
+        Element(Segment segment, long position, int length) {
+            this.segment = segment;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private static class Batch {
+        final List<byte[]> data;
+
+        // Guarded by the queue's append lock
+        boolean committed;
+        IOException failure;
+
+        Batch(List<byte[]> data) {
+            this.data = data;
+        }
+    }
+}
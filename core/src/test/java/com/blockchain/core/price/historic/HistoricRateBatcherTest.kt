@@ -0,0 +1,195 @@
+package com.blockchain.core.price.historic
+
+import com.blockchain.api.services.AssetPrice
+import com.blockchain.api.services.AssetPriceService
+import com.blockchain.store_caches_persistedjsonsqldelight.SqlDelightStoreIdScopedPersister
+import com.blockchain.testutils.KoinTestRule
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doAnswer
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.verify
+import com.nhaarman.mockitokotlin2.whenever
+import info.blockchain.balance.CryptoCurrency
+import info.blockchain.balance.CryptoValue
+import info.blockchain.balance.FiatCurrency
+import info.blockchain.balance.FiatValue
+import io.mockk.Runs
+import io.mockk.coEvery
+import io.mockk.every
+import io.mockk.just
+import io.mockk.mockk
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.schedulers.TestScheduler
+import java.math.BigDecimal
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.serialization.json.Json
+import org.amshove.kluent.`should be equal to`
+import org.junit.Rule
+import org.junit.Test
+import org.koin.dsl.module
+
+class HistoricRateBatcherTest {
+
+    @get:Rule
+    val koinTestRule = KoinTestRule.create {
+        modules(
+            module {
+                single { Json { ignoreUnknownKeys = true } }
+                factory<SqlDelightStoreIdScopedPersister> {
+                    mockk<SqlDelightStoreIdScopedPersister> {
+                        every { read(any()) } returns flowOf(null)
+                        coEvery { write(any()) } just Runs
+                    }
+                }
+            }
+        )
+    }
+
+    private val calls = AtomicInteger()
+
+    // Prices every requested asset at its index in the ticker, 1.0 for BTC, 2.0 for ETH...
+    private val assetPriceService: AssetPriceService = mock {
+        on { getHistoricPrices(any(), any(), any()) } doAnswer { invocation ->
+            calls.incrementAndGet()
+            val bases = invocation.getArgument<Set<String>>(0)
+            val quotes = invocation.getArgument<Set<String>>(1)
+            val time = invocation.getArgument<Long>(2)
+            // Like the API, nothing is returned for an asset priced in itself
+            val prices = bases.flatMap { base ->
+                quotes.filterNot { it == base }.map { quote -> assetPrice(base, quote, time) }
+            }
+            Single.just(prices)
+        }
+    }
+
+    @Test
+    fun `rates requested within the window are fetched together`() {
+        val scheduler = TestScheduler()
+        val subject = HistoricRateBatcher(assetPriceService, windowMillis = 50, scheduler = scheduler)
+
+        val btc = subject.rate(key("BTC", TIMESTAMP)).test()
+        val eth = subject.rate(key("ETH", TIMESTAMP)).test()
+        val otherTime = subject.rate(key("BTC", TIMESTAMP + 1_000)).test()
+        calls.get() `should be equal to` 0
+
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS)
+
+        btc.assertValue { it.rate == 1.0 && it.assetTicker == "BTC" && it.requestedTimestamp == TIMESTAMP }
+        eth.assertValue { it.rate == 2.0 }
+        otherTime.assertValue { it.requestedTimestamp == TIMESTAMP + 1_000 }
+        calls.get() `should be equal to` 2
+        verify(assetPriceService).getHistoricPrices(setOf("BTC", "ETH"), setOf("USD"), TIMESTAMP / 1000)
+    }
+
+    @Test
+    fun `rates missing from the response fail`() {
+        val scheduler = TestScheduler()
+        val subject = HistoricRateBatcher(assetPriceService, windowMillis = 50, scheduler = scheduler)
+
+        val missing = subject.rate(key("USD", TIMESTAMP)).test()
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS)
+
+        missing.assertError(NoSuchElementException::class.java)
+    }
+
+    @Test
+    fun `rates no longer wanted are not fetched`() {
+        val scheduler = TestScheduler()
+        val subject = HistoricRateBatcher(assetPriceService, windowMillis = 50, scheduler = scheduler)
+
+        subject.rate(key("BTC", TIMESTAMP)).test().dispose()
+        val eth = subject.rate(key("ETH", TIMESTAMP + 1_000)).test()
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS)
+
+        eth.assertValue { it.rate == 2.0 }
+        calls.get() `should be equal to` 1
+        verify(assetPriceService).getHistoricPrices(setOf("ETH"), setOf("USD"), (TIMESTAMP + 1_000) / 1000)
+    }
+
+    @Test
+    fun `a steady stream of requests is fetched once the longest window is over`() {
+        val scheduler = TestScheduler()
+        val subject = HistoricRateBatcher(
+            assetPriceService, windowMillis = 50, maxWindowMillis = 250, scheduler = scheduler
+        )
+
+        val rates = (0 until 10).map { i ->
+            subject.rate(key("BTC", TIMESTAMP + i * 1_000)).test().also {
+                scheduler.advanceTimeBy(40, TimeUnit.MILLISECONDS)
+            }
+        }
+
+        rates.take(7).forEach { it.assertValueCount(1) }
+        rates.drop(7).forEach { it.assertEmpty() }
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS)
+        rates.forEach { it.assertValueCount(1) }
+    }
+
+    @Test
+    fun `rates waiting when batching fails are failed`() {
+        val scheduler = TestScheduler()
+        val subject = HistoricRateBatcher(assetPriceService, windowMillis = 50, scheduler = scheduler)
+        whenever(assetPriceService.getHistoricPrices(any(), any(), any())).thenThrow(IllegalStateException())
+
+        val waiting = subject.rate(key("BTC", TIMESTAMP)).test()
+        val sameBatch = subject.rate(key("ETH", TIMESTAMP + 1_000)).test()
+        scheduler.advanceTimeBy(50, TimeUnit.MILLISECONDS)
+
+        waiting.assertError(IllegalStateException::class.java)
+        sameBatch.assertError(IllegalStateException::class.java)
+        subject.rate(key("BTC", TIMESTAMP)).test().assertError(IllegalStateException::class.java)
+    }
+
+    /**
+     * A 96 transaction activity list spread over three months, in sessions of four transactions a minute apart
+     * which straddle two five minute buckets, is fetched through the store with one call per bucket rather than one
+     * per transaction.
+     */
+    @Test
+    fun `an activity list spread over months needs one call per timestamp bucket`() {
+        val store = HistoricRateStore(
+            HistoricRateBatcher(assetPriceService, windowMillis = 1_000, maxWindowMillis = 10_000)
+        )
+        val fetcher = HistoricRateFetcher(store)
+        val assets = listOf(CryptoCurrency.BTC, CryptoCurrency.ETHER, CryptoCurrency.XLM)
+        val transactions = (0 until 24).flatMap { session ->
+            val sessionStart = BUCKET_START - session * SESSION_GAP_MILLIS + TimeUnit.MINUTES.toMillis(3)
+            (0 until 4).map { i -> assets[i % assets.size] to sessionStart + TimeUnit.MINUTES.toMillis(i.toLong()) }
+        }
+
+        val values = transactions.map { (asset, timestamp) ->
+            fetcher.fetch(asset, FiatCurrency.Dollars, timestamp, CryptoValue.fromMajor(asset, BigDecimal.ONE)).test()
+        }
+
+        values.forEachIndexed { i, value ->
+            val expectedPrice = (assets.indexOf(transactions[i].first) + 1).toBigDecimal()
+            value.await(10, TimeUnit.SECONDS)
+            value.assertValue(FiatValue.fromMajor(FiatCurrency.Dollars, expectedPrice))
+        }
+        calls.get() `should be equal to` 48
+    }
+
+    private fun key(asset: String, timestamp: Long) = HistoricRateStore.Key(
+        fiatTicker = "USD",
+        assetTicker = asset,
+        requestedTimestamp = timestamp
+    )
+
+    private fun assetPrice(base: String, quote: String, time: Long) = AssetPrice(
+        base = base,
+        quote = quote,
+        price = (ASSETS.indexOf(base) + 1).toDouble(),
+        timestampSeconds = time,
+        marketCap = null,
+        tradingVolume24h = null
+    )
+
+    companion object {
+        private const val TIMESTAMP = 1_660_000_000_000L
+        private const val BUCKET_START = 1_659_999_900_000L
+        private val SESSION_GAP_MILLIS = TimeUnit.HOURS.toMillis(86)
+        private val ASSETS = listOf("BTC", "ETH", "XLM")
+    }
+}
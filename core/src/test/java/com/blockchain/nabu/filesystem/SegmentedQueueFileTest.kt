@@ -0,0 +1,167 @@
+package com.blockchain.nabu.filesystem
+
+import java.io.File
+import java.io.RandomAccessFile
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.amshove.kluent.`should be equal to`
+import org.amshove.kluent.`should be null`
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+class SegmentedQueueFileTest {
+
+    @get:Rule
+    val folder = TemporaryFolder()
+
+    private val directory: File by lazy { folder.newFolder("queue") }
+    private val opened = mutableListOf<SegmentedQueueFile>()
+
+    @After
+    fun tearDown() {
+        opened.forEach { it.close() }
+    }
+
+    @Test
+    fun `elements are read in the order they were added`() {
+        val queue = open()
+
+        queue.add("a".toByteArray())
+        queue.addAll(listOf("b".toByteArray(), "c".toByteArray()))
+
+        queue.size() `should be equal to` 3L
+        queue.read(2) `should be equal to` listOf("a", "b")
+        queue.read(10) `should be equal to` listOf("a", "b", "c")
+        String(queue.peek()!!) `should be equal to` "a"
+    }
+
+    @Test
+    fun `elements spanning segments are read back and segments are deleted once removed`() {
+        val queue = open(segmentSize = 64)
+        val events = (0 until 20).map { "event-$it" }
+
+        queue.addAll(events.map { it.toByteArray() })
+        segments().size `should be equal to` 5
+
+        queue.remove(10)
+
+        queue.read(20) `should be equal to` events.drop(10)
+        segments().size `should be equal to` 3
+    }
+
+    @Test
+    fun `removals survive reopening the queue`() {
+        val queue = open(segmentSize = 64)
+        queue.addAll((0 until 20).map { "event-$it".toByteArray() })
+        queue.remove(5)
+        queue.close()
+
+        val reopened = open(segmentSize = 64)
+
+        reopened.size() `should be equal to` 15L
+        String(reopened.peek()!!) `should be equal to` "event-5"
+    }
+
+    @Test
+    fun `a truncated record at the tail is dropped when reopening`() {
+        val queue = open()
+        queue.addAll(listOf("first".toByteArray(), "second".toByteArray()))
+        queue.close()
+        val tail = segments().last()
+        RandomAccessFile(tail, "rw").use { it.setLength(it.length() - 3) }
+
+        val reopened = open()
+
+        reopened.read(10) `should be equal to` listOf("first")
+        reopened.add("third".toByteArray())
+        reopened.read(10) `should be equal to` listOf("first", "third")
+    }
+
+    @Test
+    fun `a corrupt record at the tail is dropped when reopening`() {
+        val queue = open()
+        queue.addAll(listOf("first".toByteArray(), "second".toByteArray()))
+        queue.close()
+        val tail = segments().last()
+        RandomAccessFile(tail, "rw").use {
+            it.seek(it.length() - 1)
+            it.write('X'.code)
+        }
+
+        open().read(10) `should be equal to` listOf("first")
+    }
+
+    @Test
+    fun `clearing empties the queue`() {
+        val queue = open(segmentSize = 64)
+        queue.addAll((0 until 20).map { "event-$it".toByteArray() })
+
+        queue.clear()
+        queue.add("after".toByteArray())
+        queue.close()
+
+        open(segmentSize = 64).read(10) `should be equal to` listOf("after")
+        segments().size `should be equal to` 1
+    }
+
+    @Test
+    fun `an empty queue has nothing to peek`() {
+        open().peek().`should be null`()
+    }
+
+    @Test
+    fun `concurrent writers and readers`() {
+        val queue = open(segmentSize = 1024)
+        val writers = 4
+        val perWriter = 500
+        val executor = Executors.newFixedThreadPool(writers + 1)
+
+        repeat(writers) { writer ->
+            executor.execute {
+                repeat(perWriter) { queue.add("$writer-$it".toByteArray()) }
+            }
+        }
+        executor.execute {
+            repeat(200) { queue.read(50) }
+        }
+        executor.shutdown()
+        executor.awaitTermination(1, TimeUnit.MINUTES)
+
+        val items = queue.read(Long.MAX_VALUE)
+        items.size `should be equal to` writers * perWriter
+        // Every writer's elements are in the order it added them
+        repeat(writers) { writer ->
+            items.filter { it.startsWith("$writer-") } `should be equal to` (0 until perWriter).map { "$writer-$it" }
+        }
+    }
+
+    @Test
+    fun `bursts added from several threads are kept together`() {
+        val queue = open(segmentSize = 1024)
+        val bursts = 20
+        val burstSize = 50
+        val executor = Executors.newFixedThreadPool(4)
+
+        List(bursts) { burst ->
+            executor.submit { queue.addAll(List(burstSize) { "$burst-$it".toByteArray() }) }
+        }.forEach { it.get() }
+        executor.shutdown()
+
+        val items = queue.read(Long.MAX_VALUE)
+        items.size `should be equal to` bursts * burstSize
+        items.chunked(burstSize).forEach { chunk ->
+            val burst = chunk.first().substringBefore('-')
+            chunk `should be equal to` (0 until burstSize).map { "$burst-$it" }
+        }
+    }
+
+    private fun open(segmentSize: Int = SegmentedQueueFile.DEFAULT_SEGMENT_SIZE) =
+        SegmentedQueueFile(directory, segmentSize).also { opened.add(it) }
+
+    private fun segments(): List<File> =
+        directory.listFiles()!!
+            .filter { it.name.startsWith("segment-") }
+            .sortedBy { it.name.removePrefix("segment-").toLong() }
+}
@@ -1,57 +1,218 @@
 package com.blockchain.store_caches_inmemory
 
 import com.blockchain.store.Cache
+import com.blockchain.store.CacheStats
 import com.blockchain.store.CachedData
+import com.blockchain.store.EvictionPolicy
+import com.blockchain.store.recordLookup
+import com.blockchain.utils.CurrentTimeProvider
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
-import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.sync.Mutex
 import kotlinx.coroutines.sync.withLock
 
-class InMemoryCache<K, T> internal constructor() : Cache<K, T> {
+/**
+ * Cache sharded per key: every key has its own flow, so a write only touches (and wakes up the readers of) the key
+ * being written rather than copying and re-emitting the whole cache.
+ *
+ * Entries are evicted according to [evictionPolicy], least recently used first, with [sizeOf] giving the size of the
+ * data counted against [EvictionPolicy.maxBytes]. Entries that are being read are never evicted.
+ */
+class InMemoryCache<K, T> internal constructor(
+    private val evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+    private val stats: CacheStats = CacheStats(),
+    private val sizeOf: (T) -> Long = { 0L }
+) : Cache<K, T> {
 
-    private val mutex = Mutex()
+    // Guarded by itself, in access order so that iteration starts from the least recently used entry
+    private val entries = LinkedHashMap<K, Entry<K, T>>(16, 0.75f, true)
+    private var storedEntries = 0
+    private var storedBytes = 0L
+    private var nextExpirySweep = 0L
 
-    // Using SharedFlow rather than StateFlow because Store relies on [read] to always emit regardless of the value being distinct or not
-    // So we're essentially creating a StateFlow without the distinct.
-    private val cache = MutableSharedFlow<Map<K, CachedData<K, T>>>(replay = 1).apply {
-        tryEmit(emptyMap())
-    }
+    override fun read(key: K): Flow<CachedData<K, T>?> = flow {
+        val entry = acquire(key, expireIfIdle = true)
+        try {
+            emitAll(entry.data)
+        } finally {
+            release(key, entry)
+        }
+    }.recordLookup(stats)
 
-    override fun read(key: K): Flow<CachedData<K, T>?> = cache.map {
-        it[key]
+    /**
+     * Like [read], but an entry that isn't cached yet is first loaded with [load]. Used when this cache is the memory
+     * tier in front of a persisted one, hits and misses then tell whether [load] was needed.
+     */
+    fun readOrLoad(key: K, load: suspend () -> CachedData<K, T>?): Flow<CachedData<K, T>?> = flow {
+        val entry = acquire(key, expireIfIdle = true)
+        try {
+            if (isStored(entry)) {
+                stats.recordHit()
+            } else {
+                stats.recordMiss()
+                entry.mutex.withLock {
+                    // A write may have landed while waiting for the lock
+                    if (!isStored(entry)) {
+                        load()?.let { store(entry, it) }
+                    }
+                }
+            }
+            emitAll(entry.data)
+        } finally {
+            release(key, entry)
+        }
     }
 
     override suspend fun write(cachedData: CachedData<K, T>) {
-        mutex.withLock {
-            val oldCache = cache.replayCache.first()
-            cache.emit(oldCache.plus(cachedData.key to cachedData))
+        val entry = acquire(cachedData.key, expireIfIdle = false)
+        try {
+            entry.mutex.withLock {
+                store(entry, cachedData)
+            }
+        } finally {
+            release(cachedData.key, entry)
         }
     }
 
     override suspend fun markAsStale(key: K) {
-        mutex.withLock {
-            val oldCache = cache.replayCache.first()
-            val oldEntry = oldCache[key]
+        synchronized(entries) { entries[key] }?.markAsStale()
+    }
 
-            if (oldEntry != null) {
-                val newEntry = oldEntry.copy(lastFetched = 0L)
-                cache.emit(oldCache.plus(key to newEntry))
+    override suspend fun markStoreAsStale() {
+        synchronized(entries) { entries.values.toList() }.forEach { it.markAsStale() }
+    }
+
+    /**
+     * Drops everything cached, readers still attached get a null.
+     */
+    suspend fun clear() {
+        synchronized(entries) { entries.values.toList() }.forEach { entry ->
+            entry.mutex.withLock {
+                entry.data.emit(null)
+                synchronized(entries) { forget(entry) }
             }
         }
+        synchronized(entries) {
+            entries.values.removeAll { it.users == 0 }
+        }
     }
 
-    override suspend fun markStoreAsStale() {
-        mutex.withLock {
-            val newCache = mutableMapOf<K, CachedData<K, T>>()
+    // Pins the entry of [key], creating it if needed, so that it can't be evicted while in use
+    private fun acquire(key: K, expireIfIdle: Boolean): Entry<K, T> = synchronized(entries) {
+        val existing = entries[key]
+        if (existing != null && expireIfIdle && existing.users == 0 && existing.isExpired()) {
+            evict(key, existing)
+        }
+        val entry = entries.getOrPut(key) { Entry() }
+        entry.users++
+        entry
+    }
+
+    private fun release(key: K, entry: Entry<K, T>) = synchronized(entries) {
+        entry.users--
+        if (entry.users == 0 && !entry.isStored && entries[key] === entry) {
+            entries.remove(key)
+        }
+        evictIfNeeded()
+    }
+
+    // To be called holding the entry's mutex
+    private suspend fun store(entry: Entry<K, T>, cachedData: CachedData<K, T>) {
+        entry.data.emit(cachedData)
+        synchronized(entries) {
+            onStored(entry, sizeOf(cachedData.data))
+        }
+    }
+
+    private fun isStored(entry: Entry<K, T>) = synchronized(entries) { entry.isStored }
+
+    private fun onStored(entry: Entry<K, T>, size: Long) {
+        if (!entry.isStored) {
+            entry.isStored = true
+            storedEntries++
+        }
+        storedBytes += size - entry.size
+        entry.size = size
+        entry.writtenAt = CurrentTimeProvider.currentTimeMillis()
+    }
+
+    private fun evictIfNeeded() {
+        if (!evictionPolicy.isBounded) return
+
+        var evicted = 0
+        val iterator = entries.values.iterator()
+        while (evictionPolicy.isOverBudget(storedEntries, storedBytes) && iterator.hasNext()) {
+            val entry = iterator.next()
+            if (entry.users == 0) {
+                iterator.remove()
+                evicted += forget(entry)
+            }
+        }
+        evicted += sweepExpired()
+        stats.recordEvictions(evicted)
+    }
+
+    // Expired entries are dropped anyway when they're next read, this only frees the ones nobody reads again,
+    // so scanning every entry once per time to live is enough
+    private fun sweepExpired(): Int {
+        val timeToLive = evictionPolicy.timeToLive ?: return 0
+        val now = CurrentTimeProvider.currentTimeMillis()
+        if (now < nextExpirySweep) return 0
+        nextExpirySweep = now + evictionPolicy.timeToLiveUnit.toMillis(timeToLive)
+
+        var evicted = 0
+        val iterator = entries.values.iterator()
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (entry.users == 0 && entry.isExpired()) {
+                iterator.remove()
+                evicted += forget(entry)
+            }
+        }
+        return evicted
+    }
+
+    private fun evict(key: K, entry: Entry<K, T>) {
+        entries.remove(key)
+        stats.recordEvictions(forget(entry))
+    }
+
+    private fun forget(entry: Entry<K, T>): Int {
+        if (!entry.isStored) return 0
+        entry.isStored = false
+        storedEntries--
+        storedBytes -= entry.size
+        entry.size = 0L
+        return 1
+    }
+
+    private fun Entry<K, T>.isExpired() =
+        isStored && evictionPolicy.isExpired(writtenAt, CurrentTimeProvider.currentTimeMillis())
+
+    private class Entry<K, T> {
+        val mutex = Mutex()
+
+        // Using SharedFlow rather than StateFlow because Store relies on [read] to always emit regardless of the value being distinct or not
+        // So we're essentially creating a StateFlow without the distinct.
+        val data = MutableSharedFlow<CachedData<K, T>?>(replay = 1).apply {
+            tryEmit(null)
+        }
+
+        // All guarded by the cache's entries
+        var users = 0
+        var isStored = false
+        var size = 0L
+        var writtenAt = 0L
 
-            val oldCache = cache.replayCache.first()
-            oldCache.keys.forEach {
-                oldCache[it]?.let { oldEntry ->
-                    newCache[it] = oldEntry.copy(lastFetched = 0L)
+        suspend fun markAsStale() {
+            mutex.withLock {
+                val oldEntry = data.replayCache.first()
+                if (oldEntry != null) {
+                    data.emit(oldEntry.copy(lastFetched = 0L))
                 }
             }
-            cache.emit(newCache)
         }
     }
 }
@@ -1,5 +1,7 @@
 package com.blockchain.store_caches_inmemory
 
+import com.blockchain.store.CacheMetrics
+import com.blockchain.store.EvictionPolicy
 import com.blockchain.store.StoreId
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.sync.Mutex
@@ -11,20 +13,46 @@ object InMemoryCacheProvider {
 
     private val caches: MutableMap<StoreId, InMemoryCache<*, *>> = mutableMapOf()
 
+    // Memory tiers in front of persisted stores, kept apart so that their ids can't clash with in memory stores
+    private val memoryTiers: MutableMap<StoreId, InMemoryCache<*, *>> = mutableMapOf()
+
+    // Built stores hold on to their cache, so caches are emptied rather than dropped
     suspend fun wipeAll() {
         mutex.withLock {
-            caches.clear()
-        }
+            caches.values + memoryTiers.values
+        }.forEach { it.clear() }
+    }
+
+    fun <K, T> provide(
+        storeId: StoreId,
+        evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+        sizeOf: (T) -> Long = { 0L }
+    ): InMemoryCache<K, T> = provide(caches, storeId) {
+        InMemoryCache(evictionPolicy, CacheMetrics.statsFor(storeId), sizeOf)
+    }
+
+    /**
+     * The memory tier holding the decoded data of the persisted store [storeId]
+     */
+    fun <K, T> provideMemoryTier(
+        storeId: StoreId,
+        evictionPolicy: EvictionPolicy
+    ): InMemoryCache<K, T> = provide(memoryTiers, storeId) {
+        InMemoryCache(evictionPolicy, CacheMetrics.memoryTierStatsFor(storeId))
     }
 
-    fun <K, T> provide(storeId: StoreId): InMemoryCache<K, T> = runBlocking {
+    private fun <K, T> provide(
+        caches: MutableMap<StoreId, InMemoryCache<*, *>>,
+        storeId: StoreId,
+        create: () -> InMemoryCache<K, T>
+    ): InMemoryCache<K, T> = runBlocking {
         mutex.withLock {
             val cache = caches[storeId]
             if (cache != null) {
                 @Suppress("UNCHECKED_CAST")
                 cache as InMemoryCache<K, T>
             } else {
-                InMemoryCache<K, T>().also {
+                create().also {
                     caches[storeId] = it
                 }
             }
@@ -3,6 +3,7 @@ package com.blockchain.store_caches_inmemory
 import com.blockchain.data.DataResource
 import com.blockchain.data.FreshnessStrategy
 import com.blockchain.data.KeyedFreshnessStrategy
+import com.blockchain.store.EvictionPolicy
 import com.blockchain.store.Fetcher
 import com.blockchain.store.KeyedStore
 import com.blockchain.store.Mediator
@@ -15,19 +16,27 @@ import kotlinx.coroutines.DelicateCoroutinesApi
 import kotlinx.coroutines.GlobalScope
 import kotlinx.coroutines.flow.Flow
 
+/**
+ * [evictionPolicy] bounds the entries kept in memory, [sizeOf] gives the size of the data counted against
+ * [EvictionPolicy.maxBytes].
+ */
 class InMemoryCacheStoreBuilder {
     @OptIn(DelicateCoroutinesApi::class)
     fun <T : Any> build(
         storeId: StoreId,
         fetcher: Fetcher<Unit, T>,
         mediator: Mediator<Unit, T>,
-        scope: CoroutineScope = GlobalScope
+        scope: CoroutineScope = GlobalScope,
+        evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+        sizeOf: (T) -> Long = { 0L }
     ): Store<T> = object : Store<T> {
         private val backingStore = buildKeyed(
             storeId = storeId,
             fetcher = fetcher,
             mediator = mediator,
             scope = scope,
+            evictionPolicy = evictionPolicy,
+            sizeOf = sizeOf,
         )
 
         override fun stream(request: FreshnessStrategy): Flow<DataResource<T>> = backingStore.stream(
@@ -45,11 +54,13 @@ class InMemoryCacheStoreBuilder {
         storeId: StoreId,
         fetcher: Fetcher<K, T>,
         mediator: Mediator<K, T>,
-        scope: CoroutineScope = GlobalScope
+        scope: CoroutineScope = GlobalScope,
+        evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+        sizeOf: (T) -> Long = { 0L }
     ): KeyedStore<K, T> = RealStore(
         scope,
         MulticasterFetcher(fetcher, scope),
-        InMemoryCacheProvider.provide(storeId),
+        InMemoryCacheProvider.provide(storeId, evictionPolicy, sizeOf),
         mediator
     )
 }
@@ -0,0 +1,127 @@
+package com.blockchain.store_caches_inmemory
+
+import app.cash.turbine.test
+import com.blockchain.store.CacheStats
+import com.blockchain.store.CachedData
+import com.blockchain.store.EvictionPolicy
+import com.blockchain.utils.CurrentTimeProvider
+import io.mockk.every
+import io.mockk.mockkObject
+import io.mockk.unmockkObject
+import kotlin.test.assertEquals
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class InMemoryCacheEvictionTest {
+
+    private var now = 1_000L
+    private val stats = CacheStats()
+
+    @Before
+    fun setUp() {
+        mockkObject(CurrentTimeProvider)
+        every { CurrentTimeProvider.currentTimeMillis() } answers { now }
+    }
+
+    @After
+    fun tearDown() {
+        unmockkObject(CurrentTimeProvider)
+    }
+
+    private fun cached(key: Key, value: Int) = CachedData(key, Item(value), 1)
+
+    @Test
+    fun `least recently used entries are evicted beyond max entries`() = runTest {
+        val cache = InMemoryCache<Key, Item>(EvictionPolicy(maxEntries = 2), stats)
+        val key3 = Key("3")
+
+        cache.write(cached(KEY, 1))
+        cache.write(cached(KEY2, 2))
+        // Reading KEY makes KEY2 the least recently used
+        assertEquals(cached(KEY, 1), cache.read(KEY).first())
+        cache.write(cached(key3, 3))
+
+        assertEquals(cached(KEY, 1), cache.read(KEY).first())
+        assertEquals(null, cache.read(KEY2).first())
+        assertEquals(cached(key3, 3), cache.read(key3).first())
+        assertEquals(1, stats.snapshot().evictions)
+    }
+
+    @Test
+    fun `entries are evicted beyond max bytes`() = runTest {
+        val cache = InMemoryCache<Key, Item>(EvictionPolicy(maxBytes = 100), stats) { it.value.toLong() }
+
+        cache.write(cached(KEY, 60))
+        cache.write(cached(KEY2, 50))
+
+        assertEquals(null, cache.read(KEY).first())
+        assertEquals(cached(KEY2, 50), cache.read(KEY2).first())
+    }
+
+    @Test
+    fun `expired entries are evicted`() = runTest {
+        val cache = InMemoryCache<Key, Item>(EvictionPolicy(timeToLive = 100), stats)
+
+        cache.write(cached(KEY, 1))
+        now += 50
+        assertEquals(cached(KEY, 1), cache.read(KEY).first())
+        now += 51
+
+        assertEquals(null, cache.read(KEY).first())
+        assertEquals(1, stats.snapshot().evictions)
+    }
+
+    @Test
+    fun `expired entries are swept at most once per time to live`() = runTest {
+        val cache = InMemoryCache<Key, Item>(EvictionPolicy(timeToLive = 100), stats)
+
+        cache.write(cached(KEY, 1))
+        now += 50
+        cache.write(cached(KEY2, 2))
+        now += 51
+        cache.write(cached(Key("3"), 3))
+        assertEquals(1, stats.snapshot().evictions)
+
+        now += 59
+        // KEY2 has expired, but the last sweep was less than a time to live ago
+        cache.write(cached(KEY, 4))
+        assertEquals(1, stats.snapshot().evictions)
+        assertEquals(null, cache.read(KEY2).first())
+        assertEquals(2, stats.snapshot().evictions)
+    }
+
+    @Test
+    fun `entries being read are not evicted`() = runTest {
+        val cache = InMemoryCache<Key, Item>(EvictionPolicy(maxEntries = 1), stats)
+
+        cache.read(KEY).test {
+            assertEquals(null, awaitItem())
+            cache.write(cached(KEY, 1))
+            assertEquals(cached(KEY, 1), awaitItem())
+
+            cache.write(cached(KEY2, 2))
+            cache.write(cached(KEY, 3))
+            assertEquals(cached(KEY, 3), awaitItem())
+            expectNoEvents()
+        }
+        assertEquals(null, cache.read(KEY2).first())
+    }
+
+    @Test
+    fun `reads are counted as hits and misses`() = runTest {
+        val cache = InMemoryCache<Key, Item>(EvictionPolicy.Unbounded, stats)
+
+        cache.read(KEY).first()
+        cache.write(cached(KEY, 1))
+        cache.read(KEY).first()
+        cache.read(KEY).first()
+
+        assertEquals(2, stats.snapshot().hits)
+        assertEquals(1, stats.snapshot().misses)
+    }
+}
@@ -0,0 +1,49 @@
+package com.blockchain.store_caches_inmemory
+
+import com.blockchain.store.CachedData
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.test.UnconfinedTestDispatcher
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+/**
+ * Write/read fan-out with many keys and collectors, checking that a write only wakes up the collectors of the
+ * written key.
+ */
+@OptIn(ExperimentalCoroutinesApi::class)
+class InMemoryCacheFanOutTest {
+
+    @Test
+    fun `writes only wake up the collectors of the written key`() = runTest(UnconfinedTestDispatcher()) {
+        val cache = InMemoryCache<Key, Item>()
+        val wakeups = AtomicInteger()
+
+        // Collectors are spread evenly over the keys
+        val collectors = (0 until COLLECTORS).map { collector ->
+            launch {
+                cache.read(Key("${collector * KEYS / COLLECTORS}")).collect { wakeups.incrementAndGet() }
+            }
+        }
+        // Every collector gets the initial empty value
+        assertEquals(COLLECTORS, wakeups.getAndSet(0))
+
+        repeat(ROUNDS) { round ->
+            (0 until KEYS).forEach { key ->
+                cache.write(CachedData(Key("$key"), Item(round), round.toLong()))
+            }
+        }
+
+        assertEquals(COLLECTORS * ROUNDS, wakeups.get())
+
+        collectors.forEach { it.cancel() }
+    }
+
+    companion object {
+        private const val KEYS = 100
+        private const val COLLECTORS = 20
+        private const val ROUNDS = 3
+    }
+}
@@ -35,13 +35,25 @@ class InMemoryCacheTest {
     }
 
     @Test
-    fun `writing to a different key should emit a the same value in read`() = runTest {
+    fun `writing to a different key should not emit in read`() = runTest {
         cache.read(KEY).test {
             assertEquals(null, awaitItem())
             val cached1 = CachedData(KEY, Item(123), 1)
             cache.write(cached1)
             assertEquals(cached1, awaitItem())
             cache.write(CachedData(KEY2, Item(223), 2))
+            expectNoEvents()
+        }
+    }
+
+    @Test
+    fun `writing the same value should emit it again in read`() = runTest {
+        cache.read(KEY).test {
+            assertEquals(null, awaitItem())
+            val cached1 = CachedData(KEY, Item(123), 1)
+            cache.write(cached1)
+            assertEquals(cached1, awaitItem())
+            cache.write(cached1)
             assertEquals(cached1, awaitItem())
             expectNoEvents()
         }
@@ -59,6 +71,23 @@ class InMemoryCacheTest {
             expectNoEvents()
         }
     }
+
+    @Test
+    fun `marking the store as stale should emit every key with lastFetched zeroed`() = runTest {
+        val cached1 = CachedData(KEY, Item(123), 1)
+        val cached2 = CachedData(KEY2, Item(223), 2)
+        cache.write(cached1)
+        cache.write(cached2)
+
+        cache.markStoreAsStale()
+
+        cache.read(KEY).test {
+            assertEquals(cached1.copy(lastFetched = 0), awaitItem())
+        }
+        cache.read(KEY2).test {
+            assertEquals(cached2.copy(lastFetched = 0), awaitItem())
+        }
+    }
 }
 
 data class Key(val value: String)
@@ -1,10 +1,15 @@
 package com.blockchain.store_caches_persistedjsonsqldelight
 
+import com.blockchain.store.BinaryParser
 import com.blockchain.store.Cache
+import com.blockchain.store.CacheMetrics
+import com.blockchain.store.CacheStats
 import com.blockchain.store.CachedData
+import com.blockchain.store.EvictionPolicy
 import com.blockchain.store.Parser
 import com.blockchain.store.PersisterData
 import com.blockchain.store.StoreId
+import com.blockchain.store.recordLookup
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.map
 import org.koin.core.component.KoinComponent
@@ -14,21 +19,54 @@ import org.koin.core.parameter.parametersOf
 class PersistedJsonSqlDelightCache<K, T> internal constructor(
     private val persister: SqlDelightStoreIdScopedPersister,
     private val keyParser: Parser<K>,
-    private val dataParser: Parser<T>
+    private val dataParser: Parser<T>,
+    private val stats: CacheStats = CacheStats(),
+    private val binaryDataParser: BinaryParser<T>? = null,
+    // Set when keys are looked up by digest, to verify a row was written for the key read
+    private val fullKeyParser: Parser<K>? = null
 ) : Cache<K, T> {
-    override fun read(key: K): Flow<CachedData<K, T>?> =
-        persister.read(keyParser.encode(key)).map { persisterData ->
+    override fun read(key: K): Flow<CachedData<K, T>?> {
+        val fullKey = fullKeyParser?.encode(key)
+        return persister.read(keyParser.encode(key)).map { persisterData ->
             if (persisterData == null) return@map null
-            val parsedData = dataParser.decode(persisterData.data) ?: return@map null
+            if (fullKey != null && persisterData.fullKey != fullKey) return@map null
+            val parsedData = decode(persisterData) ?: return@map null
 
             CachedData(key, parsedData, persisterData.lastFetched)
-        }
+        }.recordLookup(stats)
+    }
 
     override suspend fun write(cachedData: CachedData<K, T>) =
         persister.write(
-            PersisterData(keyParser.encode(cachedData.key), dataParser.encode(cachedData.data), cachedData.lastFetched)
+            if (binaryDataParser != null) {
+                PersisterData(
+                    key = keyParser.encode(cachedData.key),
+                    data = "",
+                    lastFetched = cachedData.lastFetched,
+                    binaryData = binaryDataParser.encode(cachedData.data),
+                    fullKey = fullKeyParser?.encode(cachedData.key)
+                )
+            } else {
+                PersisterData(
+                    key = keyParser.encode(cachedData.key),
+                    data = dataParser.encode(cachedData.data),
+                    lastFetched = cachedData.lastFetched,
+                    fullKey = fullKeyParser?.encode(cachedData.key)
+                )
+            }
         )
 
+    // Rows written before a store switched format are still read with the parser they were written with,
+    // they get replaced by the next successful fetch
+    private fun decode(persisterData: PersisterData): T? {
+        val binaryData = persisterData.binaryData
+        return when {
+            binaryData != null -> binaryDataParser?.decode(binaryData)
+            persisterData.data.isNotEmpty() -> dataParser.decode(persisterData.data)
+            else -> null
+        }
+    }
+
     override suspend fun markAsStale(key: K) = persister.markAsStale(keyParser.encode(key))
 
     override suspend fun markStoreAsStale() = persister.markStoreAsStale()
@@ -36,13 +74,19 @@ class PersistedJsonSqlDelightCache<K, T> internal constructor(
     class Builder<K, T>(
         private val storeId: StoreId,
         private val keyParser: Parser<K>,
-        private val dataParser: Parser<T>
+        private val dataParser: Parser<T>,
+        private val evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+        private val binaryDataParser: BinaryParser<T>? = null,
+        private val fullKeyParser: Parser<K>? = null
     ) : KoinComponent {
         fun build(): PersistedJsonSqlDelightCache<K, T> =
             PersistedJsonSqlDelightCache(
-                get { parametersOf(storeId) },
+                get { parametersOf(storeId, evictionPolicy) },
                 keyParser,
-                dataParser
+                dataParser,
+                CacheMetrics.statsFor(storeId),
+                binaryDataParser,
+                fullKeyParser
             )
     }
 }
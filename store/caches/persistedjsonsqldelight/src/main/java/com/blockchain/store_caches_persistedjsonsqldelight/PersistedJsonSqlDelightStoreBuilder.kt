@@ -3,22 +3,36 @@ package com.blockchain.store_caches_persistedjsonsqldelight
 import com.blockchain.data.DataResource
 import com.blockchain.data.FreshnessStrategy
 import com.blockchain.data.KeyedFreshnessStrategy
+import com.blockchain.store.EvictionPolicy
 import com.blockchain.store.Fetcher
 import com.blockchain.store.Mediator
 import com.blockchain.store.Store
 import com.blockchain.store.StoreId
+import com.blockchain.store.impl.CborParser
+import com.blockchain.store.impl.DigestParser
 import com.blockchain.store.impl.JsonParser
 import com.blockchain.store.impl.MulticasterFetcher
 import com.blockchain.store.impl.RealStore
+import com.blockchain.store_caches_inmemory.InMemoryCacheProvider
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.DelicateCoroutinesApi
 import kotlinx.coroutines.GlobalScope
 import kotlinx.coroutines.flow.Flow
+import kotlinx.serialization.ExperimentalSerializationApi
 import kotlinx.serialization.KSerializer
 import kotlinx.serialization.builtins.serializer
+import kotlinx.serialization.cbor.Cbor
+import kotlinx.serialization.json.Json
 import org.koin.core.component.KoinComponent
 import org.koin.core.component.get
 
+/**
+ * [evictionPolicy] bounds the rows a store keeps in the database, [EvictionPolicy.maxBytes] being measured on the
+ * serialized data. [dataFormat] picks how the data is persisted, stores switching format keep reading the rows they
+ * wrote before until these get replaced. The latest decoded values are also kept in memory, within [memoryTierPolicy].
+ * Keyed stores with large keys can be looked up by a digest of their key instead, see [StoreKeyFormat]. Switching
+ * key format leaves the rows written before unread until they get evicted.
+ */
 class PersistedJsonSqlDelightStoreBuilder : KoinComponent {
 
     @OptIn(DelicateCoroutinesApi::class)
@@ -27,7 +41,10 @@ class PersistedJsonSqlDelightStoreBuilder : KoinComponent {
         fetcher: Fetcher<Unit, T>,
         dataSerializer: KSerializer<T>,
         mediator: Mediator<Unit, T>,
-        scope: CoroutineScope = GlobalScope
+        scope: CoroutineScope = GlobalScope,
+        evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+        dataFormat: StoreDataFormat = StoreDataFormat.JSON,
+        memoryTierPolicy: EvictionPolicy = DEFAULT_MEMORY_TIER_POLICY
     ): Store<T> = object : Store<T> {
         private val backingStore = buildKeyed(
             storeId = storeId,
@@ -36,6 +53,9 @@ class PersistedJsonSqlDelightStoreBuilder : KoinComponent {
             dataSerializer = dataSerializer,
             mediator = mediator,
             scope = scope,
+            evictionPolicy = evictionPolicy,
+            dataFormat = dataFormat,
+            memoryTierPolicy = memoryTierPolicy,
         )
 
         override fun stream(request: FreshnessStrategy): Flow<DataResource<T>> = backingStore.stream(
@@ -55,15 +75,49 @@ class PersistedJsonSqlDelightStoreBuilder : KoinComponent {
         keySerializer: KSerializer<K>,
         dataSerializer: KSerializer<T>,
         mediator: Mediator<K, T>,
-        scope: CoroutineScope = GlobalScope
-    ): RealStore<K, T> = RealStore(
-        scope,
-        MulticasterFetcher(fetcher, scope),
-        PersistedJsonSqlDelightCache.Builder(
-            storeId,
-            JsonParser(get(), keySerializer),
-            JsonParser(get(), dataSerializer)
-        ).build(),
-        mediator
-    )
+        scope: CoroutineScope = GlobalScope,
+        evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+        dataFormat: StoreDataFormat = StoreDataFormat.JSON,
+        memoryTierPolicy: EvictionPolicy = DEFAULT_MEMORY_TIER_POLICY,
+        keyFormat: StoreKeyFormat = StoreKeyFormat.JSON
+    ): RealStore<K, T> {
+        val keyParser = JsonParser(get(), keySerializer)
+        return RealStore(
+            scope,
+            MulticasterFetcher(fetcher, scope),
+            TieredCache(
+                InMemoryCacheProvider.provideMemoryTier(storeId, memoryTierPolicy),
+                PersistedJsonSqlDelightCache.Builder(
+                    storeId,
+                    when (keyFormat) {
+                        StoreKeyFormat.JSON -> keyParser
+                        StoreKeyFormat.DIGEST,
+                        StoreKeyFormat.VERIFIED_DIGEST -> DigestParser(keyParser)
+                    },
+                    JsonParser(get(), dataSerializer),
+                    evictionPolicy,
+                    when (dataFormat) {
+                        StoreDataFormat.JSON -> null
+                        StoreDataFormat.CBOR -> CborParser(cbor, dataSerializer)
+                    },
+                    keyParser.takeIf { keyFormat == StoreKeyFormat.VERIFIED_DIGEST }
+                ).build()
+            ),
+            mediator
+        )
+    }
+
+    // Shares the contextual serializers of the JSON configuration
+    @OptIn(ExperimentalSerializationApi::class)
+    private val cbor: Cbor by lazy {
+        Cbor {
+            ignoreUnknownKeys = true
+            encodeDefaults = true
+            serializersModule = get<Json>().serializersModule
+        }
+    }
+
+    companion object {
+        val DEFAULT_MEMORY_TIER_POLICY = EvictionPolicy(maxEntries = 100)
+    }
 }
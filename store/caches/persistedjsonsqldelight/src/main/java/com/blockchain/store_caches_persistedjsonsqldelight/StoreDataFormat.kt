@@ -0,0 +1,26 @@
+package com.blockchain.store_caches_persistedjsonsqldelight
+
+/**
+ * How a store persists its data. Keys are stored as set by [StoreKeyFormat].
+ */
+enum class StoreDataFormat {
+    // Human readable, stored as TEXT
+    JSON,
+
+    // Compact binary CBOR, stored as a BLOB, faster to decode for large payloads
+    CBOR
+}
+
+/**
+ * How a store persists its keys.
+ */
+enum class StoreKeyFormat {
+    // Stored as JSON and looked up as such
+    JSON,
+
+    // Looked up by a fixed size digest of the JSON key, for stores with large keys
+    DIGEST,
+
+    // As DIGEST, also storing the JSON key so that a row is only read back for the key it was written for
+    VERIFIED_DIGEST
+}
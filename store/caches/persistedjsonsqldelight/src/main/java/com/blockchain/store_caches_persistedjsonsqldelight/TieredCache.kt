@@ -0,0 +1,40 @@
+package com.blockchain.store_caches_persistedjsonsqldelight
+
+import com.blockchain.store.Cache
+import com.blockchain.store.CachedData
+import com.blockchain.store_caches_inmemory.InMemoryCache
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.first
+
+/**
+ * Keeps the decoded data of a persisted cache in a bounded [memory] tier, so that repeated reads of a key are served
+ * without going to the database or decoding the row again.
+ *
+ * Writes and staleness go to the [persisted] cache first and then to the memory tier. Entries missing from memory
+ * are loaded from the database on first read.
+ */
+internal class TieredCache<K, T>(
+    private val memory: InMemoryCache<K, T>,
+    private val persisted: Cache<K, T>
+) : Cache<K, T> {
+
+    override fun read(key: K): Flow<CachedData<K, T>?> =
+        memory.readOrLoad(key) {
+            persisted.read(key).first()
+        }
+
+    override suspend fun write(cachedData: CachedData<K, T>) {
+        persisted.write(cachedData)
+        memory.write(cachedData)
+    }
+
+    override suspend fun markAsStale(key: K) {
+        persisted.markAsStale(key)
+        memory.markAsStale(key)
+    }
+
+    override suspend fun markStoreAsStale() {
+        persisted.markStoreAsStale()
+        memory.markStoreAsStale()
+    }
+}
@@ -69,6 +69,79 @@ class CacheTest {
         coVerify { keyParser.encode(KEY) }
         coVerify { persister.markAsStale("{key}") }
     }
+
+    @Test
+    fun `binary write`() = runTest {
+        val binaryDataParser: BinaryParser<Item> = mockk()
+        val binaryCache = PersistedJsonSqlDelightCache(persister, keyParser, dataParser, CacheStats(), binaryDataParser)
+        val data = Item(300)
+        val bytes = byteArrayOf(1, 2, 3)
+        coEvery { keyParser.encode(KEY) } returns "{key}"
+        coEvery { binaryDataParser.encode(data) } returns bytes
+        coEvery { persister.write(any()) } returns Unit
+
+        binaryCache.write(CachedData(KEY, data, 200L))
+
+        coVerify { persister.write(PersisterData("{key}", "", 200L, byteArrayOf(1, 2, 3))) }
+        coVerify(exactly = 0) { dataParser.encode(any()) }
+    }
+
+    @Test
+    fun `binary read falls back to json for rows written before switching format`() = runTest {
+        val binaryDataParser: BinaryParser<Item> = mockk()
+        val binaryCache = PersistedJsonSqlDelightCache(persister, keyParser, dataParser, CacheStats(), binaryDataParser)
+        val bytes = byteArrayOf(1, 2, 3)
+        val persisterReadStream = MutableStateFlow(PersisterData("{key}", "{data}", 1))
+        coEvery { keyParser.encode(KEY) } returns "{key}"
+        coEvery { persister.read("{key}") } returns persisterReadStream
+        coEvery { dataParser.decode("{data}") } returns Item(123)
+        coEvery { binaryDataParser.decode(bytes) } returns Item(300)
+
+        binaryCache.read(KEY).test {
+            assertEquals(CachedData(KEY, Item(123), 1), awaitItem())
+
+            persisterReadStream.value = PersisterData("{key}", "", 200, bytes)
+
+            assertEquals(CachedData(KEY, Item(300), 200), awaitItem())
+        }
+    }
+
+    @Test
+    fun `verified digest write stores the full key`() = runTest {
+        val fullKeyParser: Parser<Key> = mockk()
+        val digestCache = PersistedJsonSqlDelightCache(
+            persister, keyParser, dataParser, CacheStats(), fullKeyParser = fullKeyParser
+        )
+        coEvery { keyParser.encode(KEY) } returns "sha256:{digest}"
+        coEvery { fullKeyParser.encode(KEY) } returns "{key}"
+        coEvery { dataParser.encode(Item(300)) } returns "{data}"
+        coEvery { persister.write(any()) } returns Unit
+
+        digestCache.write(CachedData(KEY, Item(300), 200L))
+
+        coVerify { persister.write(PersisterData("sha256:{digest}", "{data}", 200L, fullKey = "{key}")) }
+    }
+
+    @Test
+    fun `verified digest read ignores rows written for another key`() = runTest {
+        val fullKeyParser: Parser<Key> = mockk()
+        val digestCache = PersistedJsonSqlDelightCache(
+            persister, keyParser, dataParser, CacheStats(), fullKeyParser = fullKeyParser
+        )
+        val persisterReadStream = MutableStateFlow(PersisterData("sha256:{digest}", "{data}", 1, fullKey = "{other}"))
+        coEvery { keyParser.encode(KEY) } returns "sha256:{digest}"
+        coEvery { fullKeyParser.encode(KEY) } returns "{key}"
+        coEvery { persister.read("sha256:{digest}") } returns persisterReadStream
+        coEvery { dataParser.decode("{data}") } returns Item(123)
+
+        digestCache.read(KEY).test {
+            assertEquals(null, awaitItem())
+
+            persisterReadStream.value = PersisterData("sha256:{digest}", "{data}", 2, fullKey = "{key}")
+
+            assertEquals(CachedData(KEY, Item(123), 2), awaitItem())
+        }
+    }
 }
 
 data class Key(val value: String)
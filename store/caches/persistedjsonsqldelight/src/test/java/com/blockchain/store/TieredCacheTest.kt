@@ -0,0 +1,89 @@
+package com.blockchain.store
+
+import app.cash.turbine.test
+import com.blockchain.store_caches_inmemory.InMemoryCacheProvider
+import com.blockchain.store_caches_persistedjsonsqldelight.TieredCache
+import io.mockk.coEvery
+import io.mockk.coVerify
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.verify
+import java.util.UUID
+import kotlin.test.assertEquals
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.test.runTest
+import org.junit.Test
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class TieredCacheTest {
+
+    private val storeId = "TieredCacheTest-${UUID.randomUUID()}"
+    private val persisted: Cache<Key, Item> = mockk {
+        coEvery { write(any()) } returns Unit
+        coEvery { markAsStale(any()) } returns Unit
+        coEvery { markStoreAsStale() } returns Unit
+    }
+    private val cache = TieredCache(
+        InMemoryCacheProvider.provideMemoryTier(storeId, EvictionPolicy(maxEntries = 10)),
+        persisted
+    )
+
+    @Test
+    fun `repeated reads are served from memory`() = runTest {
+        val cached = CachedData(KEY, Item(123), 1)
+        every { persisted.read(KEY) } returns flowOf(cached)
+
+        assertEquals(cached, cache.read(KEY).first())
+        assertEquals(cached, cache.read(KEY).first())
+
+        verify(exactly = 1) { persisted.read(KEY) }
+        val stats = CacheMetrics.memoryTierSnapshot().getValue(storeId)
+        assertEquals(1, stats.hits)
+        assertEquals(1, stats.misses)
+    }
+
+    @Test
+    fun `writes go through to the persisted cache and are read from memory`() = runTest {
+        every { persisted.read(KEY) } returns flowOf(null)
+        val cached = CachedData(KEY, Item(123), 1)
+
+        cache.read(KEY).test {
+            assertEquals(null, awaitItem())
+            cache.write(cached)
+            assertEquals(cached, awaitItem())
+        }
+        assertEquals(cached, cache.read(KEY).first())
+
+        coVerify { persisted.write(cached) }
+        verify(exactly = 1) { persisted.read(KEY) }
+    }
+
+    @Test
+    fun `marking as stale updates both tiers`() = runTest {
+        val cached = CachedData(KEY, Item(123), 1)
+        every { persisted.read(KEY) } returns flowOf(null)
+        cache.write(cached)
+
+        cache.markAsStale(KEY)
+        assertEquals(cached.copy(lastFetched = 0), cache.read(KEY).first())
+
+        cache.markStoreAsStale()
+
+        coVerify { persisted.markAsStale(KEY) }
+        coVerify { persisted.markStoreAsStale() }
+    }
+
+    @Test
+    fun `wiping empties the memory tier`() = runTest {
+        val cached = CachedData(KEY, Item(123), 1)
+        every { persisted.read(KEY) } returns flowOf(cached)
+        cache.read(KEY).first()
+
+        InMemoryCacheProvider.wipeAll()
+        every { persisted.read(KEY) } returns flowOf(null)
+
+        assertEquals(null, cache.read(KEY).first())
+    }
+}
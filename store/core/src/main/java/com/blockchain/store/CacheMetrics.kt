@@ -0,0 +1,70 @@
+package com.blockchain.store
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+
+/**
+ * Hit, miss and eviction counters of the caches backing every store, by [StoreId].
+ *
+ * Persisted stores also have a memory tier in front of their database, counted apart: a memory tier miss is then
+ * followed by a lookup in the database.
+ */
+object CacheMetrics {
+
+    private val stats = ConcurrentHashMap<StoreId, CacheStats>()
+    private val memoryTierStats = ConcurrentHashMap<StoreId, CacheStats>()
+
+    fun statsFor(storeId: StoreId): CacheStats = stats.getOrPut(storeId) { CacheStats() }
+
+    fun memoryTierStatsFor(storeId: StoreId): CacheStats = memoryTierStats.getOrPut(storeId) { CacheStats() }
+
+    fun snapshot(): Map<StoreId, CacheStatsSnapshot> = stats.mapValues { (_, stats) -> stats.snapshot() }
+
+    fun memoryTierSnapshot(): Map<StoreId, CacheStatsSnapshot> =
+        memoryTierStats.mapValues { (_, stats) -> stats.snapshot() }
+}
+
+class CacheStats {
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val evictions = AtomicLong()
+
+    fun recordHit() {
+        hits.incrementAndGet()
+    }
+
+    fun recordMiss() {
+        misses.incrementAndGet()
+    }
+
+    fun recordEvictions(count: Int) {
+        evictions.addAndGet(count.toLong())
+    }
+
+    fun snapshot() = CacheStatsSnapshot(hits.get(), misses.get(), evictions.get())
+}
+
+data class CacheStatsSnapshot(
+    val hits: Long,
+    val misses: Long,
+    val evictions: Long
+) {
+    val hitRate: Double
+        get() = if (hits + misses == 0L) 0.0 else hits.toDouble() / (hits + misses)
+}
+
+/**
+ * Records whether the first value read from the cache, the one a store decides to fetch upon, was cached or not.
+ */
+fun <K, T> Flow<CachedData<K, T>?>.recordLookup(stats: CacheStats): Flow<CachedData<K, T>?> = flow {
+    var isFirstEmission = true
+    collect { cachedData ->
+        if (isFirstEmission) {
+            isFirstEmission = false
+            if (cachedData != null) stats.recordHit() else stats.recordMiss()
+        }
+        emit(cachedData)
+    }
+}
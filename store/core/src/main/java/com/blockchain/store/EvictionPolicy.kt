@@ -0,0 +1,30 @@
+package com.blockchain.store
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Bounds on what a store keeps in its cache.
+ *
+ * Once a cache holds more than [maxEntries] entries, or more than [maxBytes] bytes of data, the least recently used
+ * entries are evicted until it fits again. Entries written more than [timeToLive] ago are evicted regardless.
+ * A null bound isn't enforced, the default policy keeps everything.
+ */
+data class EvictionPolicy(
+    val maxEntries: Int? = null,
+    val maxBytes: Long? = null,
+    val timeToLive: Long? = null,
+    val timeToLiveUnit: TimeUnit = TimeUnit.MILLISECONDS
+) {
+    val isBounded: Boolean
+        get() = maxEntries != null || maxBytes != null || timeToLive != null
+
+    fun isOverBudget(entries: Int, bytes: Long): Boolean =
+        (maxEntries != null && entries > maxEntries) || (maxBytes != null && bytes > maxBytes)
+
+    fun isExpired(writtenAt: Millis, now: Millis): Boolean =
+        timeToLive != null && now - writtenAt > timeToLiveUnit.toMillis(timeToLive)
+
+    companion object {
+        val Unbounded = EvictionPolicy()
+    }
+}
@@ -4,3 +4,11 @@ interface Parser<T> {
     fun encode(data: T): String
     fun decode(data: String): T?
 }
+
+/**
+ * A [Parser] to a compact binary representation, for data stored as a BLOB.
+ */
+interface BinaryParser<T> {
+    fun encode(data: T): ByteArray
+    fun decode(data: ByteArray): T?
+}
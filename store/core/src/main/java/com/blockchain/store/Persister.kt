@@ -17,8 +17,31 @@ interface Persister {
     suspend fun markStoreAsStale()
 }
 
+/**
+ * [data] holds the JSON representation of the data, unless the store persists it in binary form in [binaryData].
+ * Stores keyed by a digest keep the key the digest was made from in [fullKey].
+ */
 data class PersisterData(
     val key: String?,
     val data: String,
-    val lastFetched: Millis
-)
+    val lastFetched: Millis,
+    val binaryData: ByteArray? = null,
+    val fullKey: String? = null
+) {
+    override fun equals(other: Any?): Boolean =
+        other is PersisterData &&
+            key == other.key &&
+            data == other.data &&
+            lastFetched == other.lastFetched &&
+            binaryData.contentEquals(other.binaryData) &&
+            fullKey == other.fullKey
+
+    override fun hashCode(): Int {
+        var result = key?.hashCode() ?: 0
+        result = 31 * result + data.hashCode()
+        result = 31 * result + lastFetched.hashCode()
+        result = 31 * result + binaryData.contentHashCode()
+        result = 31 * result + (fullKey?.hashCode() ?: 0)
+        return result
+    }
+}
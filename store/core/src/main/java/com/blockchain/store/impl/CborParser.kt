@@ -0,0 +1,21 @@
+package com.blockchain.store.impl
+
+import com.blockchain.store.BinaryParser
+import java.lang.Exception
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.KSerializer
+import kotlinx.serialization.cbor.Cbor
+
+@OptIn(ExperimentalSerializationApi::class)
+class CborParser<T>(
+    private val cbor: Cbor,
+    private val serializer: KSerializer<T>
+) : BinaryParser<T> {
+    override fun encode(data: T): ByteArray = cbor.encodeToByteArray(serializer, data)
+
+    override fun decode(data: ByteArray): T? = try {
+        cbor.decodeFromByteArray(serializer, data)
+    } catch (ex: Exception) {
+        null
+    }
+}
@@ -0,0 +1,34 @@
+package com.blockchain.store.impl
+
+import com.blockchain.store.Parser
+import java.security.MessageDigest
+
+/**
+ * Encodes what [parser] encodes as a fixed size SHA-256 digest, for keys too large to be looked up by. A digest
+ * can't be decoded back.
+ */
+class DigestParser<T>(
+    private val parser: Parser<T>
+) : Parser<T> {
+    override fun encode(data: T): String = digest(parser.encode(data))
+
+    override fun decode(data: String): T? = null
+
+    companion object {
+        // Sets digests apart from any JSON encoded key
+        private const val PREFIX = "sha256:"
+        private val HEX_DIGITS = "0123456789abcdef".toCharArray()
+
+        fun digest(encoded: String): String {
+            // MessageDigest isn't thread safe, and is cheap to get
+            val bytes = MessageDigest.getInstance("SHA-256").digest(encoded.toByteArray(Charsets.UTF_8))
+            val chars = CharArray(bytes.size * 2)
+            bytes.forEachIndexed { i, byte ->
+                val value = byte.toInt() and 0xFF
+                chars[i * 2] = HEX_DIGITS[value ushr 4]
+                chars[i * 2 + 1] = HEX_DIGITS[value and 0x0F]
+            }
+            return PREFIX + String(chars)
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.blockchain.store
+
+import com.blockchain.store.impl.DigestParser
+import com.blockchain.store.impl.JsonParser
+import kotlin.test.assertEquals
+import kotlin.test.assertNotEquals
+import kotlin.test.assertNull
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.builtins.ListSerializer
+import kotlinx.serialization.json.Json
+import org.junit.Test
+
+/**
+ * Checks the digest keys of keys made of 100 pubkeys, the size of the unified balances subscription key.
+ */
+class DigestParserTest {
+
+    @Serializable
+    data class PubKey(val pubKey: String, val style: String, val descriptor: Int)
+
+    @Serializable
+    data class Subscription(val currency: String, val index: Int, val pubKeys: List<PubKey>)
+
+    private val jsonParser = JsonParser(Json, ListSerializer(Subscription.serializer()))
+    private val digestParser = DigestParser(jsonParser)
+
+    @Test
+    fun `digests have a fixed size and only depend on the key`() {
+        val small = key(seed = 0, pubKeys = 1)
+        val large = key(seed = 0, pubKeys = 100)
+
+        assertEquals(digestParser.encode(large), digestParser.encode(key(seed = 0, pubKeys = 100)))
+        assertNotEquals(digestParser.encode(large), digestParser.encode(key(seed = 1, pubKeys = 100)))
+        assertEquals(digestParser.encode(small).length, digestParser.encode(large).length)
+        assertEquals(71, digestParser.encode(large).length)
+        assertNull(digestParser.decode(digestParser.encode(large)))
+    }
+
+    @Test
+    fun `keys of 100 pubkeys differing only in their pubkeys get distinct digests`() {
+        val keys = (0 until 500).map { key(seed = it, pubKeys = 100) }
+
+        assertEquals(keys.size, keys.map { digestParser.encode(it) }.toSet().size)
+    }
+
+    // Keys of different wallets share everything but their pubkeys, as they would in the store
+    private fun key(seed: Int, pubKeys: Int) = listOf(
+        Subscription(
+            currency = "ETH",
+            index = 0,
+            pubKeys = (0 until pubKeys).map {
+                PubKey(
+                    pubKey = "04a1b2c3d4e5f60718293a4b5c6d7e8f90a1b2c3d4e5f60718293a4b5c6d7e8f9${it % 10}" +
+                        "$seed".padStart(8, '0'),
+                    style = "SINGLE",
+                    descriptor = 0
+                )
+            }
+        )
+    )
+}
@@ -0,0 +1,99 @@
+package com.blockchain.store
+
+import com.blockchain.store.impl.CborParser
+import com.blockchain.store.impl.JsonParser
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+import kotlinx.serialization.ExperimentalSerializationApi
+import kotlinx.serialization.KSerializer
+import kotlinx.serialization.Serializable
+import kotlinx.serialization.builtins.ListSerializer
+import kotlinx.serialization.cbor.Cbor
+import kotlinx.serialization.json.Json
+import org.junit.Test
+
+/**
+ * Compares the JSON and CBOR parsers on payloads shaped like the largest persisted stores, checking both round trip
+ * and that CBOR is the smaller encoding.
+ */
+@OptIn(ExperimentalSerializationApi::class)
+class ParserFormatComparisonTest {
+
+    private val json = Json {
+        explicitNulls = false
+        ignoreUnknownKeys = true
+        isLenient = true
+        encodeDefaults = true
+    }
+    private val cbor = Cbor {
+        ignoreUnknownKeys = true
+        encodeDefaults = true
+    }
+
+    @Serializable
+    data class Price(
+        val base: String,
+        val quote: String,
+        val price: Double?,
+        val timestamp: Long,
+        val volume24h: Double?,
+        val marketCap: Double?
+    )
+
+    @Serializable
+    data class ActivityItem(
+        val id: String,
+        val network: String,
+        val pubKey: String,
+        val state: String,
+        val timestamp: Long,
+        val amount: String,
+        val fee: String,
+        val addresses: List<String>
+    )
+
+    private val prices = (0 until 1_000).map {
+        Price(
+            base = "ASSET$it",
+            quote = "USD",
+            price = 1_234.5678 + it,
+            timestamp = 1_665_000_000L + it,
+            volume24h = if (it % 3 == 0) null else 98_765_432.1 * it,
+            marketCap = 1_234_567_890.12 * it
+        )
+    }
+
+    private val activity = (0 until 500).map {
+        ActivityItem(
+            id = "4f1c9d2a-6e1b-4d3c-9a7e-${it.toString().padStart(12, '0')}",
+            network = "ETH",
+            pubKey = "0x8b1c2f5e9a3d7b4c6e0f1a2b3c4d5e6f7a8b9c0d",
+            state = if (it % 10 == 0) "PENDING" else "CONFIRMED",
+            timestamp = 1_665_000_000L + it * 60,
+            amount = "${it}000000000000000",
+            fee = "21000000000000",
+            addresses = listOf(
+                "0x1111111111111111111111111111111111111111",
+                "0x2222222222222222222222222222222222222222"
+            )
+        )
+    }
+
+    @Test
+    fun `price list`() = compare(ListSerializer(Price.serializer()), prices)
+
+    @Test
+    fun `activity list`() = compare(ListSerializer(ActivityItem.serializer()), activity)
+
+    private fun <T> compare(serializer: KSerializer<T>, payload: T) {
+        val jsonParser = JsonParser(json, serializer)
+        val cborParser = CborParser(cbor, serializer)
+
+        val jsonData = jsonParser.encode(payload)
+        val cborData = cborParser.encode(payload)
+
+        assertEquals(payload, jsonParser.decode(jsonData))
+        assertEquals(payload, cborParser.decode(cborData))
+        assertTrue(cborData.size < jsonData.toByteArray().size)
+    }
+}
@@ -1,8 +1,11 @@
 package com.blockchain.store_persisters_persistedjsonsqldelight
 
+import com.blockchain.store.CacheStats
+import com.blockchain.store.EvictionPolicy
 import com.blockchain.store.PersisterData
 import com.blockchain.store.StoreId
 import com.blockchain.store_caches_persistedjsonsqldelight.SqlDelightStoreIdScopedPersister
+import com.blockchain.utils.CurrentTimeProvider
 import com.squareup.sqldelight.runtime.coroutines.asFlow
 import com.squareup.sqldelight.runtime.coroutines.mapToOneOrNull
 import kotlinx.coroutines.flow.Flow
@@ -12,7 +15,9 @@ import store.StorePersisterDataQueries
 
 internal class SqlDelightStoreIdScopedPersisterImpl(
     private val storeId: StoreId,
-    private val storePersisterDataQueries: StorePersisterDataQueries
+    private val storePersisterDataQueries: StorePersisterDataQueries,
+    private val evictionPolicy: EvictionPolicy = EvictionPolicy.Unbounded,
+    private val stats: CacheStats = CacheStats()
 ) : SqlDelightStoreIdScopedPersister {
     override fun read(key: String?): Flow<PersisterData?> =
         storePersisterDataQueries.selectByStoreIdAndKey(storeId, key)
@@ -20,14 +25,65 @@ internal class SqlDelightStoreIdScopedPersisterImpl(
             .mapToOneOrNull()
             .map { data ->
                 if (data == null) return@map null
-                PersisterData(data.key, data.data_, data.last_fetched)
+                PersisterData(data.key, data.data_, data.last_fetched, data.data_binary, data.key_full)
             }
 
-    override suspend fun write(data: PersisterData) = storePersisterDataQueries.insert(
-        StorePersisterData(storeId, data.key, data.data, data.lastFetched)
-    )
+    override suspend fun write(data: PersisterData) = storePersisterDataQueries.transaction {
+        storePersisterDataQueries.insert(
+            StorePersisterData(
+                store_id = storeId,
+                key = data.key,
+                data_ = data.data,
+                last_fetched = data.lastFetched,
+                written_at = CurrentTimeProvider.currentTimeMillis(),
+                data_binary = data.binaryData,
+                key_full = data.fullKey
+            )
+        )
+        evictIfNeeded()
+    }
 
     override suspend fun markAsStale(key: String?) = storePersisterDataQueries.markAsStale(storeId, key)
 
     override suspend fun markStoreAsStale() = storePersisterDataQueries.markStoreAsStale(storeId)
+
+    // Reads aren't tracked, touching rows on every read would wake up every observer of the table, so "least
+    // recently used" here means least recently written. Each bound is checked with an indexed query and rows are
+    // only looked at one by one when the store is over its byte budget.
+    private fun evictIfNeeded() {
+        if (!evictionPolicy.isBounded) return
+
+        var evicted = 0L
+        evictionPolicy.timeToLive?.let { timeToLive ->
+            val timeToLiveMillis = evictionPolicy.timeToLiveUnit.toMillis(timeToLive)
+            val expiredBefore = CurrentTimeProvider.currentTimeMillis() - timeToLiveMillis
+            storePersisterDataQueries.deleteWrittenBefore(storeId, expiredBefore)
+            evicted += storePersisterDataQueries.changes().executeAsOne()
+        }
+        evictionPolicy.maxEntries?.let { maxEntries ->
+            if (storePersisterDataQueries.countByStoreId(storeId).executeAsOne() > maxEntries) {
+                storePersisterDataQueries.deleteAllButNewest(storeId, maxEntries.toLong())
+                evicted += storePersisterDataQueries.changes().executeAsOne()
+            }
+        }
+        evictionPolicy.maxBytes?.let { maxBytes ->
+            var excess = storePersisterDataQueries.totalSizeByStoreId(storeId).executeAsOne() - maxBytes
+            if (excess > 0) {
+                val oldest = mutableListOf<Long>()
+                for (row in storePersisterDataQueries.selectOldestSizes(storeId).executeAsList()) {
+                    if (excess <= 0) break
+                    oldest += row.rowid
+                    excess -= row.size ?: 0L
+                }
+                oldest.chunked(MAX_DELETE_BATCH).forEach { storePersisterDataQueries.deleteByRowIds(it) }
+                evicted += oldest.size
+            }
+        }
+        stats.recordEvictions(evicted.toInt())
+    }
+
+    companion object {
+        // Stay well below SQLite's limit on the number of bound parameters
+        private const val MAX_DELETE_BATCH = 500
+    }
 }
@@ -1,5 +1,8 @@
 package com.blockchain.store_persisters_persistedjsonsqldelight
 
+import com.blockchain.store.CacheMetrics
+import com.blockchain.store.EvictionPolicy
+import com.blockchain.store.StoreId
 import com.blockchain.store_caches_persistedjsonsqldelight.PersistedJsonSqlDelightCacheWiper
 import com.blockchain.store_caches_persistedjsonsqldelight.SqlDelightStoreIdScopedPersister
 import com.squareup.sqldelight.android.AndroidSqliteDriver
@@ -17,10 +20,12 @@ val storePersistersJsonSqlDelightModule = module {
         get<Database>().storePersisterDataQueries
     }
 
-    factory<SqlDelightStoreIdScopedPersister> { params ->
+    factory<SqlDelightStoreIdScopedPersister> { (storeId: StoreId, evictionPolicy: EvictionPolicy) ->
         SqlDelightStoreIdScopedPersisterImpl(
-            storeId = params.get(),
+            storeId = storeId,
             storePersisterDataQueries = get(),
+            evictionPolicy = evictionPolicy,
+            stats = CacheMetrics.statsFor(storeId),
         )
     }
 
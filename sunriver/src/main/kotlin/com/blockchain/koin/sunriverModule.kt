@@ -29,7 +29,7 @@ val sunriverModule = module {
             )
         }
 
-        factory { HorizonProxy { Server(it) } }
+        scoped { HorizonProxy { Server(it) } }
 
         scoped { XlmMetaDataInitializer(get(), get(), get(), get()) }
     }
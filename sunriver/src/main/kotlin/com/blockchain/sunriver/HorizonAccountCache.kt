@@ -0,0 +1,64 @@
+package com.blockchain.sunriver
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+import org.stellar.sdk.responses.AccountResponse
+
+/**
+ * Remembers the [AccountResponse] of every account for [ttlMillis], so that the balance, minimum balance and
+ * existence checks made while showing a single screen are answered by one Horizon request. Accounts which don't
+ * exist are remembered as null. Concurrent requests for the same account wait for the one already in flight.
+ */
+internal class HorizonAccountCache(
+    private val ttlMillis: Long = DEFAULT_TTL_MILLIS,
+    private val currentTimeMillis: () -> Long = System::currentTimeMillis
+) {
+    private class Entry(val account: AccountResponse?, val fetchedAt: Long)
+
+    private val entries = ConcurrentHashMap<String, Entry>()
+    private val locks = ConcurrentHashMap<String, Any>()
+
+    // Bumped by every invalidation of an account, so that a request for it started before can't put back what it
+    // removed. Requests for other accounts are unaffected
+    private val generations = ConcurrentHashMap<String, AtomicLong>()
+
+    // Bumped by invalidateAll, which every request started before it has to respect
+    private val clears = AtomicLong()
+
+    fun get(accountId: String, fetch: (String) -> AccountResponse?): AccountResponse? {
+        fresh(accountId)?.let { return it.account }
+        return synchronized(locks.getOrPut(accountId) { Any() }) {
+            val entry = fresh(accountId)
+            if (entry != null) {
+                entry.account
+            } else {
+                val generation = generations.getOrPut(accountId) { AtomicLong() }
+                val startedAt = generation.get()
+                val clearsAtStart = clears.get()
+                fetch(accountId).also { account ->
+                    if (generation.get() == startedAt && clears.get() == clearsAtStart) {
+                        entries[accountId] = Entry(account, currentTimeMillis())
+                    }
+                }
+            }
+        }
+    }
+
+    fun invalidate(accountId: String) {
+        generations.getOrPut(accountId) { AtomicLong() }.incrementAndGet()
+        entries.remove(accountId)
+    }
+
+    fun invalidateAll() {
+        clears.incrementAndGet()
+        entries.clear()
+    }
+
+    private fun fresh(accountId: String): Entry? =
+        entries[accountId]?.takeIf { currentTimeMillis() - it.fetchedAt < ttlMillis }
+
+    companion object {
+        private val DEFAULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis(10)
+    }
+}
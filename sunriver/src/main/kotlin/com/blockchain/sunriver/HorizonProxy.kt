@@ -2,8 +2,10 @@ package com.blockchain.sunriver
 
 import info.blockchain.balance.CryptoCurrency
 import info.blockchain.balance.CryptoValue
+import io.reactivex.rxjava3.core.Observable
 import java.math.BigDecimal
 import java.math.BigInteger
+import org.stellar.sdk.Account
 import org.stellar.sdk.AssetTypeNative
 import org.stellar.sdk.CreateAccountOperation
 import org.stellar.sdk.KeyPair
@@ -13,15 +15,21 @@ import org.stellar.sdk.Operation
 import org.stellar.sdk.PaymentOperation
 import org.stellar.sdk.Server
 import org.stellar.sdk.Transaction
+import org.stellar.sdk.TransactionBuilderAccount
 import org.stellar.sdk.requests.ErrorResponse
+import org.stellar.sdk.requests.EventListener
 import org.stellar.sdk.requests.RequestBuilder
 import org.stellar.sdk.responses.AccountResponse
 import org.stellar.sdk.responses.TransactionResponse
 import org.stellar.sdk.responses.operations.OperationResponse
+import shadow.com.google.common.base.Optional
 
 private val basePerOperationFee = CryptoValue.fromMinor(CryptoCurrency.XLM, 100.toBigInteger())
 
-internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
+internal class HorizonProxy(
+    private val accountCache: HorizonAccountCache = HorizonAccountCache(),
+    var serverFactory: ((String) -> Server)
+) {
 
     private var server = serverFactory("")
     private lateinit var currentNetwork: Network
@@ -33,6 +41,7 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
             Network.PUBLIC
         }
         server = serverFactory(url)
+        accountCache.invalidateAll()
     }
 
     fun accountExists(accountId: String) = findAccount(accountId) != null
@@ -48,7 +57,40 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
             )
         }
 
-    private fun findAccount(accountId: String): AccountResponse? {
+    /**
+     * Emits the balance of the account straight away, and again every time an operation involving the account
+     * arrives on the Horizon operations stream, without polling. The stream is closed on dispose.
+     */
+    fun balanceUpdates(accountId: String): Observable<BalanceAndMin> =
+        Observable.create<BalanceAndMin> { emitter ->
+            val updates = emitter.serialize()
+            val stream = server.operations()
+                .forAccount(accountId)
+                .cursor("now")
+                .stream(object : EventListener<OperationResponse> {
+                    override fun onEvent(operation: OperationResponse) {
+                        accountCache.invalidate(accountId)
+                        try {
+                            updates.onNext(getBalanceAndMin(accountId))
+                        } catch (e: ErrorResponse) {
+                            updates.tryOnError(e)
+                        }
+                    }
+
+                    override fun onFailure(error: Optional<Throwable>, responseCode: Optional<Int>) {
+                        if (error.isPresent) {
+                            updates.tryOnError(error.get())
+                        }
+                    }
+                })
+            emitter.setCancellable { stream.close() }
+            updates.onNext(getBalanceAndMin(accountId))
+        }
+
+    private fun findAccount(accountId: String): AccountResponse? =
+        accountCache.get(accountId, ::fetchAccount)
+
+    private fun fetchAccount(accountId: String): AccountResponse? {
         val accounts = server.accounts()
         return try {
             accounts.account(accountId)
@@ -96,12 +138,21 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
         timeout: Long,
         perOperationFee: CryptoValue? = null
     ): SendResult {
+        // The transaction is built with the sequence number of the source account, and creates the destination if it
+        // doesn't exist, so both have to be current
+        accountCache.invalidate(source.accountId)
+        accountCache.invalidate(destinationAccountId)
         val result = dryRunTransaction(source, destinationAccountId, amount, memo, perOperationFee, timeout)
         if (!result.success || result.transaction == null) {
             return result
         }
         result.transaction.sign(source)
-        val submitTransactionResponse = server.submitTransaction(result.transaction)
+        val submitTransactionResponse = try {
+            server.submitTransaction(result.transaction)
+        } finally {
+            accountCache.invalidate(source.accountId)
+            accountCache.invalidate(destinationAccountId)
+        }
         return if (submitTransactionResponse.isSuccess) {
             SendResult(
                 true,
@@ -153,10 +204,13 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
                 failureValue = newAccountMinBalance
             )
         }
-        val account = server.accounts().account(source.accountId)
+        // A source account which doesn't exist fails with Horizon's error, as it can't send anything
+        val account = findAccount(source.accountId)
+            ?: server.accounts().account(source.accountId)
         val transaction =
             createUnsignedTransaction(
-                account,
+                // Building a transaction increments the sequence number of its source, leave the cached one alone
+                Account(account.accountId, account.sequenceNumber),
                 KeyPair.fromAccountId(destinationAccountId),
                 destinationAccountExists,
                 amount.toBigDecimal(),
@@ -222,7 +276,7 @@ internal class HorizonProxy(var serverFactory: ((String) -> Server)) {
     }
 
     private fun createUnsignedTransaction(
-        source: AccountResponse,
+        source: TransactionBuilderAccount,
         destination: KeyPair,
         destinationAccountExists: Boolean,
         amount: BigDecimal,
@@ -15,6 +15,7 @@ import info.blockchain.balance.CryptoValue
 import info.blockchain.balance.Money
 import io.reactivex.rxjava3.core.Completable
 import io.reactivex.rxjava3.core.Maybe
+import io.reactivex.rxjava3.core.Observable
 import io.reactivex.rxjava3.core.Single
 import io.reactivex.rxjava3.kotlin.Singles
 import io.reactivex.rxjava3.schedulers.Schedulers
@@ -135,6 +136,14 @@ class XlmDataManager internal constructor(
         Single.fromCallable { horizonProxy.getBalanceAndMin(accountReference.accountId) }.ensureUrlUpdated()
             .subscribeOn(Schedulers.io())
 
+    /**
+     * The balance of the account, updated as Horizon streams the operations involving it.
+     */
+    fun balanceUpdates(accountReference: XlmAccountReference): Observable<BalanceAndMin> =
+        xlmProxyUrl.flatMapObservable {
+            horizonProxy.balanceUpdates(accountReference.accountId)
+        }.subscribeOn(Schedulers.io())
+
     fun getBalance(): Single<CryptoValue> =
         Maybe.concat(
             maybeDefaultAccount().flatMap { getBalance(it).toMaybe() },
@@ -0,0 +1,57 @@
+package com.blockchain.sunriver
+
+import com.nhaarman.mockitokotlin2.mock
+import java.util.concurrent.atomic.AtomicInteger
+import org.amshove.kluent.`should be equal to`
+import org.amshove.kluent.`should be`
+import org.junit.Test
+import org.stellar.sdk.responses.AccountResponse
+
+class HorizonAccountCacheTest {
+
+    private val subject = HorizonAccountCache(ttlMillis = 10_000, currentTimeMillis = { 0L })
+    private val fetches = AtomicInteger()
+    private val account: AccountResponse = mock()
+    private val fetch: (String) -> AccountResponse? = {
+        fetches.incrementAndGet()
+        account
+    }
+
+    @Test
+    fun `an account invalidated while it is fetched is not cached`() {
+        subject.get(ACCOUNT) {
+            subject.invalidate(ACCOUNT)
+            fetch(it)
+        }
+        subject.get(ACCOUNT, fetch)
+
+        fetches.get() `should be equal to` 2
+    }
+
+    @Test
+    fun `invalidating another account does not stop an account being cached`() {
+        subject.get(ACCOUNT) {
+            subject.invalidate(OTHER_ACCOUNT)
+            fetch(it)
+        }
+        subject.get(ACCOUNT, fetch) `should be` account
+
+        fetches.get() `should be equal to` 1
+    }
+
+    @Test
+    fun `an account fetched while all are invalidated is not cached`() {
+        subject.get(ACCOUNT) {
+            subject.invalidateAll()
+            fetch(it)
+        }
+        subject.get(ACCOUNT, fetch)
+
+        fetches.get() `should be equal to` 2
+    }
+
+    companion object {
+        private const val ACCOUNT = "GC7GSOOQCBBWNUOB6DIWNVM7537UKQ353H6LCU3DB54NUTVFR2T6OHF4"
+        private const val OTHER_ACCOUNT = "GCO724H2FOHPBFF4OQ6IB5GB3CVE4W3UGDY4RIHHG6UPQ2YZSSCINMAI"
+    }
+}
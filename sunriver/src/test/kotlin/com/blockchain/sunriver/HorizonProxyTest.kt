@@ -3,9 +3,17 @@ package com.blockchain.sunriver
 import com.blockchain.testutils.bitcoin
 import com.blockchain.testutils.lumens
 import com.blockchain.testutils.stroops
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.argumentCaptor
 import com.nhaarman.mockitokotlin2.internal.createInstance
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.times
+import com.nhaarman.mockitokotlin2.verify
 import com.nhaarman.mockitokotlin2.whenever
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import org.amshove.kluent.`should be`
 import org.amshove.kluent.`should be equal to`
 import org.amshove.kluent.`should be instance of`
@@ -21,8 +29,10 @@ import org.stellar.sdk.Server
 import org.stellar.sdk.Transaction
 import org.stellar.sdk.requests.AccountsRequestBuilder
 import org.stellar.sdk.requests.ErrorResponse
+import org.stellar.sdk.requests.EventListener
 import org.stellar.sdk.requests.OperationsRequestBuilder
 import org.stellar.sdk.requests.RequestBuilder
+import org.stellar.sdk.requests.SSEStream
 import org.stellar.sdk.requests.TransactionsRequestBuilder
 import org.stellar.sdk.responses.AccountResponse
 import org.stellar.sdk.responses.Page
@@ -38,7 +48,8 @@ class HorizonProxyTest : KoinTest {
     }
 
     private val server: Server = mock()
-    private val subject = HorizonProxy { server }
+    private var now = 0L
+    private val subject = HorizonProxy(HorizonAccountCache(ttlMillis = 10_000, currentTimeMillis = { now })) { server }
 
     @Test
     fun `get xlm balance`() {
@@ -348,6 +359,157 @@ class HorizonProxyTest : KoinTest {
         }
     }
 
+    @Test
+    fun `account is fetched once for its balance, minimum balance and existence`() {
+        val accounts = createAccountsWith(
+            accountId,
+            createAccountResponse(createBalanceWith("native", null, "100"))
+        )
+        givenTheServerAccountsAre(accounts)
+
+        subject.getBalance(accountId) `should be equal to` 100.lumens()
+        subject.getBalanceAndMin(accountId).balance `should be equal to` 100.lumens()
+        subject.accountExists(accountId) `should be` true
+
+        verify(accounts).account(accountId)
+    }
+
+    @Test
+    fun `accounts that do not exist are cached too`() {
+        val accounts = createAccountsWith(accountId, null)
+        givenTheServerAccountsAre(accounts)
+
+        subject.accountExists(accountId) `should be` false
+        subject.getBalance(accountId) `should be equal to` 0.lumens()
+
+        verify(accounts).account(accountId)
+    }
+
+    @Test
+    fun `account is fetched again once the cached one expires`() {
+        val accounts = createAccountsWith(
+            accountId,
+            createAccountResponse(createBalanceWith("native", null, "100"))
+        )
+        givenTheServerAccountsAre(accounts)
+
+        subject.getBalance(accountId)
+        now += 9_999
+        subject.getBalance(accountId)
+        now += 1
+        subject.getBalance(accountId)
+
+        verify(accounts, times(2)).account(accountId)
+    }
+
+    @Test
+    fun `changing server forgets cached accounts`() {
+        val accounts = createAccountsWith(
+            accountId,
+            createAccountResponse(createBalanceWith("native", null, "100"))
+        )
+        givenTheServerAccountsAre(accounts)
+
+        subject.getBalance(accountId)
+        subject.update("")
+        subject.getBalance(accountId)
+
+        verify(accounts, times(2)).account(accountId)
+    }
+
+    @Test
+    fun `concurrent requests for an account share one fetch`() {
+        val fetches = AtomicInteger()
+        val accounts: AccountsRequestBuilder = mock()
+        val account = createAccountResponse(createBalanceWith("native", null, "100"))
+        whenever(accounts.account(accountId)).thenAnswer {
+            fetches.incrementAndGet()
+            Thread.sleep(100)
+            account
+        }
+        givenTheServerAccountsAre(accounts)
+
+        val threads = 8
+        val executor = Executors.newFixedThreadPool(threads)
+        val start = CountDownLatch(1)
+        val balances = List(threads) {
+            executor.submit<Any> {
+                start.await()
+                subject.getBalance(accountId)
+            }
+        }
+        start.countDown()
+
+        balances.forEach { it.get(10, TimeUnit.SECONDS) `should be equal to` 100.lumens() }
+        executor.shutdown()
+        fetches.get() `should be equal to` 1
+    }
+
+    @Test
+    fun `sending fetches both accounts and forgets them once sent`() {
+        val source = KeyPair.fromSecretSeed("SAD6LOTFMPIGAPOF2SPQSYD4OIGIE5XVVX3FW3K7QVFUTRSUUHMZQ76I")
+        val destinationAccountId = "GCO724H2FOHPBFF4OQ6IB5GB3CVE4W3UGDY4RIHHG6UPQ2YZSSCINMAI"
+        val accounts = createAccountsWith(
+            Pair(
+                destinationAccountId,
+                createAccountResponse(
+                    createBalanceWith("native", null, "10000"),
+                    accountId = destinationAccountId
+                )
+            ),
+            Pair(
+                accountId,
+                createAccountResponse(
+                    createBalanceWith("native", null, "10000"),
+                    accountId = accountId
+                )
+            )
+        )
+        givenTheServerAccountsAre(accounts)
+        val transactionResponse = givenASuccessfulTransactionResponse()
+        whenever(
+            server.submitTransaction(withAnyTransactionWith(accountId))
+        ).thenReturn(
+            transactionResponse
+        )
+        subject.update("")
+        subject.getBalance(accountId)
+        subject.accountExists(destinationAccountId)
+
+        subject.sendTransaction(source, destinationAccountId, 1.lumens(), 10).success `should be` true
+        subject.getBalance(accountId)
+        subject.getBalance(destinationAccountId)
+
+        verify(accounts, times(3)).account(accountId)
+        verify(accounts, times(3)).account(destinationAccountId)
+    }
+
+    @Test
+    fun `balance updates are streamed as operations arrive`() {
+        val accounts: AccountsRequestBuilder = mock()
+        whenever(accounts.account(accountId)).thenReturn(
+            createAccountResponse(createBalanceWith("native", null, "100")),
+            createAccountResponse(createBalanceWith("native", null, "150"))
+        )
+        givenTheServerAccountsAre(accounts)
+        val stream: SSEStream<OperationResponse> = mock()
+        val listener = argumentCaptor<EventListener<OperationResponse>>()
+        val operations: OperationsRequestBuilder = mock()
+        whenever(server.operations()).thenReturn(operations)
+        whenever(operations.forAccount(accountId)).thenReturn(operations)
+        whenever(operations.cursor("now")).thenReturn(operations)
+        whenever(operations.stream(any<EventListener<OperationResponse>>())).thenReturn(stream)
+
+        val updates = subject.balanceUpdates(accountId).test()
+        verify(operations).stream(listener.capture())
+        listener.firstValue.onEvent(mock())
+
+        updates.assertValueCount(2)
+        updates.values().map { it.balance } `should be equal to` listOf(100.lumens(), 150.lumens())
+        updates.dispose()
+        verify(stream).close()
+    }
+
     private fun givenASuccessfulTransactionResponse(): SubmitTransactionResponse {
         val resultCodes: SubmitTransactionResponse.Extras.ResultCodes = mock()
 
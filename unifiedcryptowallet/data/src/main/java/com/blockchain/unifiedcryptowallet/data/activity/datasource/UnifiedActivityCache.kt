@@ -17,12 +17,13 @@ class UnifiedActivityCache(
 ) : ActivityCacheService {
 
     fun getActivity(): Flow<List<ActivityItem>> {
+        // asFlow emits the same query on every change, compare the results rather than the query
         return activityQueries.selectAllActivity()
             .asFlow()
-            .distinctUntilChanged()
             .map {
                 it.executeAsList()
             }
+            .distinctUntilChanged()
     }
 
     fun getActivity(txId: String): Flow<ActivityItem?> {
@@ -33,13 +34,22 @@ class UnifiedActivityCache(
             }
     }
 
-    override fun addOrUpdateActivityItems(items: ActivityResponse) {
-        items.activityData.activity.map { activityItem ->
+    override fun addOrUpdateActivityItems(items: ActivityResponse) = addOrUpdateActivityItems(listOf(items))
+
+    // A single transaction per batch, so that observers of the table are only notified once
+    override fun addOrUpdateActivityItems(batch: List<ActivityResponse>) {
+        activityQueries.transaction {
+            batch.forEach { insert(it) }
+        }
+    }
+
+    private fun insert(response: ActivityResponse) {
+        response.activityData.activity.forEach { activityItem ->
             activityQueries.insert(
                 ActivityItem(
                     tx_id = activityItem.id,
-                    network = items.activityData.network,
-                    pubkey = items.activityData.pubKey,
+                    network = response.activityData.network,
+                    pubkey = response.activityData.pubKey,
                     external_url = activityItem.externalUrl,
                     summary_view = json.encodeToString(activityItem.summary),
                     status = activityItem.status,
@@ -12,6 +12,7 @@ import com.blockchain.store.KeyedStore
 import com.blockchain.store.Mediator
 import com.blockchain.store.Store
 import com.blockchain.store_caches_persistedjsonsqldelight.PersistedJsonSqlDelightStoreBuilder
+import com.blockchain.store_caches_persistedjsonsqldelight.StoreKeyFormat
 import com.blockchain.storedatasource.FlushableDataSource
 import kotlinx.serialization.builtins.ListSerializer
 
@@ -66,7 +67,9 @@ internal class UnifiedBalancesSubscribeStore(
         override fun shouldFetch(cachedData: CachedData<List<SubscriptionInfo>, CommonResponse>?): Boolean {
             return cachedData == null || cachedData.lastFetched == 0L
         }
-    }
+    },
+    // The key holds every pubkey of every network wallet
+    keyFormat = StoreKeyFormat.VERIFIED_DIGEST
 ) {
     companion object {
         private const val STORE_ID = "UnifiedBalancesSubscribeStore"
@@ -0,0 +1,115 @@
+package info.blockchain.wallet.bip44
+
+import info.blockchain.wallet.payload.data.Derivation
+import io.reactivex.rxjava3.core.Completable
+import io.reactivex.rxjava3.core.Scheduler
+import io.reactivex.rxjava3.schedulers.Schedulers
+import org.bitcoinj.core.LegacyAddress
+import org.bitcoinj.core.NetworkParameters
+import org.bitcoinj.core.SegwitAddress
+import org.bitcoinj.crypto.ChildNumber
+import org.bitcoinj.crypto.DeterministicKey
+import org.bitcoinj.crypto.HDKeyDerivation
+
+/**
+ * Public data of an address derived from a chain, without any private key material.
+ */
+class DerivedAddress(
+    val index: Int,
+    val pubKeyHash: ByteArray,
+    val formattedAddress: String
+)
+
+/**
+ * Bounded, least recently used cache of the addresses derived from a single [HDChain], per purpose.
+ *
+ * Addresses are derived from the public chain key only. Whenever an address is requested the following
+ * [lookAhead] addresses are derived on [scheduler], so that walking the chain (next receive address,
+ * pubkey sync lists) is served from memory.
+ */
+class DerivedAddressCache(
+    private val params: NetworkParameters,
+    chainKey: DeterministicKey,
+    private val capacity: Int = DEFAULT_CAPACITY,
+    private val lookAhead: Int = DEFAULT_LOOK_AHEAD,
+    private val scheduler: Scheduler = Schedulers.computation()
+) {
+    private val publicChainKey: DeterministicKey = chainKey.dropPrivateBytes()
+
+    private val addresses = object : LinkedHashMap<Long, DerivedAddress>(capacity, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Long, DerivedAddress>?): Boolean =
+            size > capacity
+    }
+
+    // The range of indexes, per purpose, for which a look ahead was last requested
+    private val prefetched = mutableMapOf<Int, IntRange>()
+
+    fun get(index: Int, purpose: Int): DerivedAddress {
+        val address = cached(index, purpose) ?: derive(index, purpose).also { put(it, purpose) }
+        prefetch(index + 1, purpose)
+        return address
+    }
+
+    // Derives the [lookAhead] addresses starting at [fromIndex] in the background, skipping the ones already cached
+    private fun prefetch(fromIndex: Int, purpose: Int) {
+        val toIndex = fromIndex + lookAhead
+        if (lookAhead <= 0 || !markPrefetch(fromIndex, toIndex, purpose)) {
+            return
+        }
+        Completable.fromAction {
+            for (index in fromIndex until toIndex) {
+                if (cached(index, purpose) == null) {
+                    put(derive(index, purpose), purpose)
+                }
+            }
+        }.subscribeOn(scheduler)
+            .onErrorComplete()
+            .subscribe()
+    }
+
+    internal fun contains(index: Int, purpose: Int): Boolean = cached(index, purpose) != null
+
+    fun clear() {
+        synchronized(addresses) {
+            addresses.clear()
+            prefetched.clear()
+        }
+    }
+
+    // Only top the window up once at least half of it has been walked through, or when walking somewhere else
+    private fun markPrefetch(fromIndex: Int, toIndex: Int, purpose: Int): Boolean =
+        synchronized(addresses) {
+            val window = prefetched[purpose]
+            if (window != null && fromIndex >= window.first && window.last >= fromIndex + lookAhead / 2) {
+                false
+            } else {
+                prefetched[purpose] = fromIndex until toIndex
+                true
+            }
+        }
+
+    private fun cached(index: Int, purpose: Int): DerivedAddress? =
+        synchronized(addresses) { addresses[key(index, purpose)] }
+
+    private fun put(address: DerivedAddress, purpose: Int) {
+        synchronized(addresses) { addresses[key(address.index, purpose)] = address }
+    }
+
+    private fun derive(index: Int, purpose: Int): DerivedAddress {
+        val key = HDKeyDerivation.deriveChildKey(publicChainKey, ChildNumber(index, false))
+        val pubKeyHash = key.pubKeyHash
+        val formattedAddress = if (purpose == Derivation.SEGWIT_BECH32_PURPOSE) {
+            SegwitAddress.fromHash(params, pubKeyHash).toBech32()
+        } else {
+            LegacyAddress.fromPubKeyHash(params, pubKeyHash).toBase58()
+        }
+        return DerivedAddress(index, pubKeyHash, formattedAddress)
+    }
+
+    private fun key(index: Int, purpose: Int): Long = (purpose.toLong() shl 32) or index.toLong()
+
+    companion object {
+        const val DEFAULT_CAPACITY = 200
+        const val DEFAULT_LOOK_AHEAD = 20
+    }
+}
@@ -10,9 +10,11 @@ import org.bitcoinj.crypto.HDKeyDerivation
 class HDChain private constructor(
     private val params: NetworkParameters,
     isReceiveChain: Boolean,
-    aKey: DeterministicKey
+    aKey: DeterministicKey,
+    addressCacheLookAhead: Int
 ) {
     private val childKey: DeterministicKey
+    private val addressCache: DerivedAddressCache
     // Return BIP44 path for this chain (m / purpose' / coin_type' / account' / chain).
     val path: String
     val xpub: String
@@ -22,21 +24,37 @@ class HDChain private constructor(
         childKey = HDKeyDerivation.deriveChildKey(aKey, chain)
         path = childKey.getPathAsString()
         xpub = childKey.serializePubB58(params)
+        addressCache = DerivedAddressCache(params, childKey, lookAhead = addressCacheLookAhead)
     }
 
+    /**
+     * Derives the full address, including its private key when available. Prefer [getFormattedAddressAt]
+     * when only the address is needed.
+     */
     fun getAddressAt(addressIndex: Int, purpose: Int): HDAddress {
         return HDAddress(params, childKey, addressIndex, purpose)
     }
 
+    fun getFormattedAddressAt(addressIndex: Int, purpose: Int): String =
+        addressCache.get(addressIndex, purpose).formattedAddress
+
     companion object {
         private const val RECEIVE_CHAIN = 0
         private const val CHANGE_CHAIN = 1
         const val RECEIVE_CHAIN_DERIVATION_PREFIX = "M/$RECEIVE_CHAIN/"
 
-        fun receiveChain(params: NetworkParameters, rootKey: DeterministicKey): HDChain =
-            HDChain(params, true, rootKey)
+        @JvmOverloads
+        fun receiveChain(
+            params: NetworkParameters,
+            rootKey: DeterministicKey,
+            addressCacheLookAhead: Int = DerivedAddressCache.DEFAULT_LOOK_AHEAD
+        ): HDChain = HDChain(params, true, rootKey, addressCacheLookAhead)
 
-        fun changeChain(params: NetworkParameters, rootKey: DeterministicKey): HDChain =
-            HDChain(params, false, rootKey)
+        @JvmOverloads
+        fun changeChain(
+            params: NetworkParameters,
+            rootKey: DeterministicKey,
+            addressCacheLookAhead: Int = DerivedAddressCache.DEFAULT_LOOK_AHEAD
+        ): HDChain = HDChain(params, false, rootKey, addressCacheLookAhead)
     }
 }
@@ -151,6 +151,20 @@ public class HDWallet {
         return account;
     }
 
+    /**
+     * Derive the XPUB of the account at the given index, without adding the account to this wallet.
+     * Safe to call from several threads at once.
+     *
+     * @param accountIndex index of the account within this wallet
+     * @return String
+     */
+    public String deriveAccountXpub(int accountIndex) {
+        DeterministicKey accountKey = HDKeyDerivation.deriveChildKey(
+            dkRoot, accountIndex | ChildNumber.HARDENED_BIT
+        );
+        return accountKey.serializePubB58(params);
+    }
+
     /**
      * Return BIP44 path for this wallet (m / purpose').
      *
@@ -5,6 +5,7 @@ import info.blockchain.wallet.exceptions.EncryptionException;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.binary.Base64;
 import org.spongycastle.crypto.BlockCipher;
@@ -39,6 +40,34 @@ public class AESUtil {
     private static final int AESBlockSize = 4;
     private static final int KEY_BIT_LEN = 256;
 
+    private static KeyParameter deriveKey(String password, byte[] salt, int iterations) {
+        byte[] passwordBytes = PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password.toCharArray());
+        try {
+            PBEParametersGenerator generator = new PKCS5S2ParametersGenerator();
+            generator.init(passwordBytes, salt, iterations);
+            return (KeyParameter) generator.generateDerivedParameters(KEY_BIT_LEN);
+        } finally {
+            Arrays.fill(passwordBytes, (byte) 0);
+        }
+    }
+
+    private static BufferedBlockCipher newCipher(int mode, @Nullable BlockCipherPadding padding) {
+        BlockCipher cipherMode;
+        if (mode == MODE_CBC) {
+            cipherMode = new CBCBlockCipher(new AESEngine());
+
+        } else {
+            //mode == MODE_OFB
+            cipherMode = new OFBBlockCipher(new AESEngine(), 128);
+        }
+
+        if (padding != null) {
+            return new PaddedBufferedBlockCipher(cipherMode, padding);
+        } else {
+            return new BufferedBlockCipher(cipherMode);
+        }
+    }
+
     private static byte[] copyOfRange(byte[] source, int from, int to) {
         byte[] range = new byte[to - from];
         System.arraycopy(source, from, range, 0, range.length);
@@ -62,30 +91,13 @@ public class AESUtil {
         byte[] iv = copyOfRange(cipherdata, 0, AESBlockSize * 4);
         byte[] input = copyOfRange(cipherdata, AESBlockSize * 4, cipherdata.length);
 
-        PBEParametersGenerator generator = new PKCS5S2ParametersGenerator();
-        generator.init(PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password.toCharArray()), iv, iterations);
-        KeyParameter keyParam = (KeyParameter) generator.generateDerivedParameters(256);
-
+        KeyParameter keyParam = deriveKey(password, iv, iterations);
         CipherParameters params = new ParametersWithIV(keyParam, iv);
 
-        BlockCipher cipherMode;
-        if (mode == MODE_CBC) {
-            cipherMode = new CBCBlockCipher(new AESEngine());
-
-        } else {
-            //mode == MODE_OFB
-            cipherMode = new OFBBlockCipher(new AESEngine(), 128);
-        }
-
-        BufferedBlockCipher cipher;
-        if (padding != null) {
-            cipher = new PaddedBufferedBlockCipher(cipherMode, padding);
-        } else {
-            cipher = new BufferedBlockCipher(cipherMode);
-        }
-
+        BufferedBlockCipher cipher = newCipher(mode, padding);
         cipher.reset();
         cipher.init(false, params);
+        Arrays.fill(keyParam.getKey(), (byte) 0);
 
         // create a temporary buffer to decode into (includes padding)
         byte[] buf = new byte[cipher.getOutputSize(input.length)];
@@ -132,30 +144,13 @@ public class AESUtil {
 
         byte[] clearbytes = cleartext.getBytes(StandardCharsets.UTF_8);
 
-        PBEParametersGenerator generator = new PKCS5S2ParametersGenerator();
-        generator.init(PBEParametersGenerator.PKCS5PasswordToUTF8Bytes(password.toCharArray()), iv, iterations);
-        KeyParameter keyParam = (KeyParameter) generator.generateDerivedParameters(256);
-
+        KeyParameter keyParam = deriveKey(password, iv, iterations);
         CipherParameters params = new ParametersWithIV(keyParam, iv);
 
-        BlockCipher cipherMode;
-        if (mode == MODE_CBC) {
-            cipherMode = new CBCBlockCipher(new AESEngine());
-
-        } else {
-            //mode == MODE_OFB
-            cipherMode = new OFBBlockCipher(new AESEngine(), 128);
-        }
-
-        BufferedBlockCipher cipher;
-        if (padding != null) {
-            cipher = new PaddedBufferedBlockCipher(cipherMode, padding);
-        } else {
-            cipher = new BufferedBlockCipher(cipherMode);
-        }
-
+        BufferedBlockCipher cipher = newCipher(mode, padding);
         cipher.reset();
         cipher.init(true, params);
+        Arrays.fill(keyParam.getKey(), (byte) 0);
 
         byte[] outBuf = cipherData(cipher, clearbytes);
 
@@ -217,6 +212,7 @@ public class AESUtil {
         BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(cipherMode, new ISO10126d2Padding());
         cipher.reset();
         cipher.init(true, params);
+        Arrays.fill(keyParam.getKey(), (byte) 0);
 
         byte[] outBuf = cipherData(cipher, dataBytes);
 
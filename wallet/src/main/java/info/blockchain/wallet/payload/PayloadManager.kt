@@ -24,6 +24,8 @@ import info.blockchain.wallet.multiaddress.MultiAddressFactory
 import info.blockchain.wallet.multiaddress.TransactionSummary
 import info.blockchain.wallet.pairing.Pairing
 import info.blockchain.wallet.payload.data.Account
+import info.blockchain.wallet.payload.data.AccountDiscoveryListener
+import info.blockchain.wallet.payload.data.AccountDiscoveryPhase
 import info.blockchain.wallet.payload.data.Derivation
 import info.blockchain.wallet.payload.data.ImportedAddress
 import info.blockchain.wallet.payload.data.Wallet
@@ -149,7 +151,8 @@ class PayloadManager(
         val walletBody = recoverFromMnemonic(
             mnemonic,
             defaultAccountName,
-            bitcoinApi
+            bitcoinApi,
+            recoveryTimingLogger
         )
         val wallet = Wallet(walletBody)
         walletBase = WalletBase(wallet)
@@ -781,12 +784,12 @@ class PayloadManager(
             .getHDAccountFromAccountBody(account)[if (derivationType === Derivation.LEGACY_TYPE) 0 else 1]!!
 
         return hdAccount.receive
-            .getAddressAt(
+            .getFormattedAddressAt(
                 position,
                 if (derivationType === Derivation.LEGACY_TYPE)
                     Derivation.LEGACY_PURPOSE else
                     Derivation.SEGWIT_BECH32_PURPOSE
-            ).formattedAddress
+            )
     }
 
     private fun getChangeAddress(account: Account, position: Int, derivationType: String): String? {
@@ -794,14 +797,14 @@ class PayloadManager(
             .walletBody?.getHDAccountFromAccountBody(account)
             ?.get(if (derivationType === Derivation.LEGACY_TYPE) 0 else 1) ?: return null
         return hdAccount.change
-            .getAddressAt(
+            .getFormattedAddressAt(
                 position,
                 if (derivationType === Derivation.LEGACY_TYPE) {
                     Derivation.LEGACY_PURPOSE
                 } else {
                     Derivation.SEGWIT_BECH32_PURPOSE
                 }
-            ).formattedAddress
+            )
     }
 
     /**
@@ -893,3 +896,9 @@ class PayloadManager(
 }
 
 private val log = LoggerFactory.getLogger(PayloadManager::class.java)
+
+private val recoveryTimingLogger = object : AccountDiscoveryListener {
+    override fun onPhaseCompleted(purpose: Int, phase: AccountDiscoveryPhase, durationMillis: Long) {
+        log.debug("Account discovery $phase for purpose $purpose took $durationMillis ms")
+    }
+}
@@ -0,0 +1,175 @@
+package info.blockchain.wallet.payload.data
+
+import com.blockchain.api.services.NonCustodialBitcoinService
+import info.blockchain.wallet.bip44.HDWallet
+import info.blockchain.wallet.payload.model.Balance
+import info.blockchain.wallet.payload.model.toBalanceMap
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+enum class AccountDiscoveryPhase {
+    // Deriving a batch of account xpubs
+    DERIVATION,
+
+    // Looking up the transaction count of a batch of accounts
+    BALANCE_LOOKUP,
+
+    // Discovering every account of a purpose
+    DISCOVERY
+}
+
+/**
+ * Progress of the account discovery run when recovering a wallet from its mnemonic.
+ */
+interface AccountDiscoveryListener {
+    fun onAccountsScanned(purpose: Int, accountsScanned: Int, accountsFound: Int) {}
+
+    fun onPhaseCompleted(purpose: Int, phase: AccountDiscoveryPhase, durationMillis: Long) {}
+
+    companion object {
+        val NONE = object : AccountDiscoveryListener {}
+    }
+}
+
+/**
+ * Finds how many accounts of a recovered wallet have been used, for every purpose.
+ *
+ * Accounts are scanned in batches of doubling size until [gapLimit] consecutive unused accounts are found.
+ * The xpubs of each batch are derived in parallel, and the next batch of every purpose is derived while the
+ * balances of the current one are being looked up. Lookups themselves are issued one at a time, in the order the
+ * wallets are passed in.
+ */
+internal class AccountDiscovery(
+    private val bitcoinApi: NonCustodialBitcoinService,
+    private val listener: AccountDiscoveryListener = AccountDiscoveryListener.NONE,
+    private val derivationThreads: Int = Runtime.getRuntime().availableProcessors(),
+    private val initialBatchSize: Int = INITIAL_BATCH_SIZE,
+    private val gapLimit: Int = GAP_LIMIT
+) {
+    /**
+     * @param wallets the wallet to scan for each purpose, which should only contain their default account
+     * @return the number of accounts to restore, the largest amongst all purposes
+     */
+    fun discoverWalletSize(wallets: List<Pair<Int, HDWallet>>): Int {
+        val executor = Executors.newFixedThreadPool(derivationThreads.coerceAtLeast(1))
+        try {
+            // Creating the scans starts deriving the first batch of every purpose straight away
+            val scans = wallets.map { (purpose, wallet) -> PurposeScan(purpose, wallet, executor) }
+            return scans.fold(0) { walletSize, scan -> walletSize.coerceAtLeast(scan.run()) }
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private inner class PurposeScan(
+        private val purpose: Int,
+        private val wallet: HDWallet,
+        private val executor: ExecutorService
+    ) {
+        private var nextIndex = wallet.accounts.size
+        private var batchSize = initialBatchSize
+        private var pending = deriveBatch()
+
+        fun run(): Int {
+            val start = System.nanoTime()
+            var walletSize = wallet.accounts.size
+            var currentGap = 0
+            var accountsScanned = 0
+
+            try {
+                while (true) {
+                    val batch = pending
+                    val xpubs = batch.await()
+                    listener.onPhaseCompleted(purpose, AccountDiscoveryPhase.DERIVATION, batch.elapsedMillis)
+
+                    nextIndex += batchSize
+                    batchSize *= 2
+                    pending = deriveBatch()
+
+                    val balances = fetchBalances(xpubs)
+                    xpubs.forEach { xpub ->
+                        accountsScanned++
+                        // If account has txs
+                        if (balances[xpub]!!.txCount > 0) {
+                            walletSize += 1
+                            currentGap = 0
+                        } else {
+                            currentGap += 1
+                        }
+                        if (currentGap >= gapLimit) {
+                            listener.onAccountsScanned(purpose, accountsScanned, walletSize)
+                            return walletSize
+                        }
+                    }
+                    listener.onAccountsScanned(purpose, accountsScanned, walletSize)
+                }
+            } finally {
+                pending.cancel()
+                listener.onPhaseCompleted(purpose, AccountDiscoveryPhase.DISCOVERY, millisSince(start))
+            }
+        }
+
+        private fun deriveBatch(): DerivedBatch {
+            val start = System.nanoTime()
+            val end = AtomicLong(start)
+            val xpubs = (nextIndex until nextIndex + batchSize).map { index ->
+                executor.submit(
+                    Callable {
+                        wallet.deriveAccountXpub(index).also {
+                            end.accumulateAndGet(System.nanoTime()) { a, b -> a.coerceAtLeast(b) }
+                        }
+                    }
+                )
+            }
+            return DerivedBatch(xpubs, start, end)
+        }
+
+        private fun fetchBalances(xpubs: List<String>): Map<String, Balance> {
+            val start = System.nanoTime()
+            val exe = bitcoinApi.getBalance(
+                coin = NonCustodialBitcoinService.BITCOIN,
+                addressAndXpubListLegacy = if (purpose == Derivation.LEGACY_PURPOSE) xpubs else emptyList(),
+                xpubListBech32 = if (purpose == Derivation.SEGWIT_BECH32_PURPOSE) xpubs else emptyList(),
+                filter = NonCustodialBitcoinService.BalanceFilter.Confirmed
+            ).execute()
+
+            if (!exe.isSuccessful) {
+                throw Exception("${exe.code()} ${exe.errorBody()}")
+            }
+            listener.onPhaseCompleted(purpose, AccountDiscoveryPhase.BALANCE_LOOKUP, millisSince(start))
+            return exe.body()!!.toBalanceMap()
+        }
+    }
+
+    private class DerivedBatch(
+        private val xpubs: List<Future<String>>,
+        private val startNanos: Long,
+        private val endNanos: AtomicLong
+    ) {
+        val elapsedMillis: Long
+            get() = TimeUnit.NANOSECONDS.toMillis(endNanos.get() - startNanos)
+
+        fun await(): List<String> =
+            try {
+                xpubs.map { it.get() }
+            } catch (e: ExecutionException) {
+                throw e.cause ?: e
+            }
+
+        fun cancel() {
+            xpubs.forEach { it.cancel(true) }
+        }
+    }
+
+    companion object {
+        private const val INITIAL_BATCH_SIZE = 5
+        private const val GAP_LIMIT = 10
+
+        private fun millisSince(startNanos: Long) = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+    }
+}
@@ -6,18 +6,15 @@ import com.blockchain.extensions.replace
 import com.google.common.collect.BiMap
 import com.google.common.collect.HashBiMap
 import info.blockchain.wallet.bip44.HDAccount
-import info.blockchain.wallet.bip44.HDWallet
 import info.blockchain.wallet.bip44.HDWalletFactory
 import info.blockchain.wallet.exceptions.HDWalletException
 import info.blockchain.wallet.keys.MasterKey
 import info.blockchain.wallet.keys.SigningKey
 import info.blockchain.wallet.payload.HDWalletsContainer
 import info.blockchain.wallet.payload.data.Derivation.Companion.SEGWIT_BECH32_TYPE
-import info.blockchain.wallet.payload.model.toBalanceMap
 import info.blockchain.wallet.payment.SpendableUnspentOutputs
 import info.blockchain.wallet.util.DoubleEncryptionFactory
 import info.blockchain.wallet.util.PrivateKeyFactory
-import java.util.LinkedList
 import org.spongycastle.util.encoders.Hex
 
 class WalletBody(
@@ -484,13 +481,15 @@ class WalletBody(
         fun recoverFromMnemonic(
             mnemonic: String,
             defaultAccountName: String,
-            bitcoinApi: NonCustodialBitcoinService
+            bitcoinApi: NonCustodialBitcoinService,
+            discoveryListener: AccountDiscoveryListener = AccountDiscoveryListener.NONE
         ): WalletBody = recoverFromMnemonic(
             mnemonic = mnemonic,
             passphrase = "",
             defaultAccountName = defaultAccountName,
             _walletSize = 0,
-            bitcoinApi = bitcoinApi
+            bitcoinApi = bitcoinApi,
+            discoveryListener = discoveryListener
         )
 
         /**
@@ -500,13 +499,15 @@ class WalletBody(
             mnemonic: String,
             passphrase: String,
             defaultAccountName: String,
-            bitcoinApi: NonCustodialBitcoinService
+            bitcoinApi: NonCustodialBitcoinService,
+            discoveryListener: AccountDiscoveryListener = AccountDiscoveryListener.NONE
         ): WalletBody = recoverFromMnemonic(
             mnemonic = mnemonic,
             passphrase = passphrase,
             defaultAccountName = defaultAccountName,
             _walletSize = 0,
-            bitcoinApi = bitcoinApi
+            bitcoinApi = bitcoinApi,
+            discoveryListener = discoveryListener
         )
 
         private fun recoverFromMnemonic(
@@ -514,7 +515,8 @@ class WalletBody(
             passphrase: String,
             defaultAccountName: String,
             _walletSize: Int,
-            bitcoinApi: NonCustodialBitcoinService
+            bitcoinApi: NonCustodialBitcoinService,
+            discoveryListener: AccountDiscoveryListener
         ): WalletBody {
             val wrapperVersion = WalletWrapper.V4
             val HD = HDWalletsContainer()
@@ -530,26 +532,13 @@ class WalletBody(
             var walletSize = _walletSize
 
             if (walletSize <= 0) {
-                val legacyWalletSize = getDeterminedSize(
-                    _walletSize = 1,
-                    trySize = 5,
-                    _currentGap = 0,
-                    bitcoinApi = bitcoinApi,
-                    bip44Wallet = HD.getHDWallet(Derivation.LEGACY_PURPOSE),
-                    purpose = Derivation.LEGACY_PURPOSE
+                val wallets = mutableListOf(
+                    Derivation.LEGACY_PURPOSE to HD.getHDWallet(Derivation.LEGACY_PURPOSE)!!
                 )
-                var segwitP2SHWalletSize = 0
                 if (wrapperVersion == WalletWrapper.V4) {
-                    segwitP2SHWalletSize = getDeterminedSize(
-                        _walletSize = 1,
-                        trySize = 5,
-                        _currentGap = 0,
-                        bitcoinApi = bitcoinApi,
-                        bip44Wallet = HD.getHDWallet(Derivation.SEGWIT_BECH32_PURPOSE),
-                        purpose = Derivation.SEGWIT_BECH32_PURPOSE
-                    )
+                    wallets += Derivation.SEGWIT_BECH32_PURPOSE to HD.getHDWallet(Derivation.SEGWIT_BECH32_PURPOSE)!!
                 }
-                walletSize = legacyWalletSize.coerceAtLeast(segwitP2SHWalletSize)
+                walletSize = AccountDiscovery(bitcoinApi, discoveryListener).discoverWalletSize(wallets)
             }
             HD.restoreWallets(
                 HDWalletFactory.Language.US,
@@ -588,59 +577,6 @@ class WalletBody(
             )
         }
 
-        private fun getDeterminedSize(
-            _walletSize: Int,
-            trySize: Int,
-            _currentGap: Int,
-            bitcoinApi: NonCustodialBitcoinService,
-            bip44Wallet: HDWallet?,
-            purpose: Int
-        ): Int {
-
-            var walletSize = _walletSize
-            var currentGap = _currentGap
-
-            val xPubs = LinkedList<String>()
-            for (i in 0 until trySize) {
-                val account = bip44Wallet!!.addAccount()
-                xPubs.add(account.xpub)
-            }
-
-            val exe = bitcoinApi.getBalance(
-                coin = NonCustodialBitcoinService.BITCOIN,
-                addressAndXpubListLegacy = if (purpose == Derivation.LEGACY_PURPOSE) xPubs else emptyList(),
-                xpubListBech32 = if (purpose == Derivation.SEGWIT_BECH32_PURPOSE) xPubs else emptyList(),
-                filter = NonCustodialBitcoinService.BalanceFilter.Confirmed
-            ).execute()
-
-            if (!exe.isSuccessful) {
-                throw Exception("${exe.code()} ${exe.errorBody()}")
-            }
-            val map = exe.body()!!.toBalanceMap()
-
-            val lookAheadTotal = 10
-            xPubs.forEach { xpub ->
-                // If account has txs
-                if (map[xpub]!!.txCount > 0) {
-                    walletSize += 1
-                    currentGap = 0
-                } else {
-                    currentGap += 1
-                }
-                if (currentGap >= lookAheadTotal) {
-                    return walletSize
-                }
-            }
-            return getDeterminedSize(
-                _walletSize = walletSize,
-                trySize = trySize * 2,
-                _currentGap = currentGap,
-                bitcoinApi = bitcoinApi,
-                bip44Wallet = bip44Wallet,
-                purpose = purpose
-            )
-        }
-
         const val HD_DEFAULT_WALLET_INDEX = 0
     }
 }
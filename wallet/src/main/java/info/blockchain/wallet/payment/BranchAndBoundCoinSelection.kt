@@ -0,0 +1,148 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.util.concurrent.TimeUnit
+
+// Only look at the clock every 1024 steps
+private const val CLOCK_CHECK_MASK = 0x3FF
+
+/**
+ * Changeless coin selection, based on the branch and bound search used by Bitcoin Core.
+ *
+ * Looks for the set of coins whose effective value (value minus the fee to spend it) covers the payment and
+ * the fee, leaving an excess below the dust threshold of [changeOutputType] so that no change output is needed.
+ * Amongst those, the set with the lowest waste is picked, where waste is the excess given to the miners plus the
+ * difference between spending the inputs now and at [longTermFeePerByte].
+ *
+ * The search is bounded by [maxTries] steps and [maxDurationNanos]; when it does not find a changeless set
+ * [select] falls back to [PrimitiveCoinSelection] with [DescentDraw].
+ */
+internal class BranchAndBoundCoinSelection(
+    private val coins: List<Utxo>,
+    private val feePerByte: Long,
+    private val longTermFeePerByte: Long = feePerByte,
+    private val maxTries: Int = CoinSelectionMode.DEFAULT_MAX_TRIES,
+    private val maxDurationNanos: Long = TimeUnit.MILLISECONDS.toNanos(CoinSelectionMode.DEFAULT_MAX_DURATION_MILLIS),
+    private val nanoClock: () -> Long = System::nanoTime
+) {
+    fun select(
+        outputAmount: Long,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType
+    ): SpendableUnspentOutputs =
+        selectChangeless(outputAmount, targetOutputType, changeOutputType)
+            ?: PrimitiveCoinSelection(coins, feePerByte)
+                .select(outputAmount, targetOutputType, changeOutputType, DescentDraw)
+
+    /**
+     * @return the changeless selection with the lowest waste, or null when none was found within the budget
+     */
+    fun selectChangeless(
+        outputAmount: Long,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType
+    ): SpendableUnspentOutputs? {
+        val effective = EffectiveCoins.from(
+            coins.sortedByDescending { it.value.toLong() - it.inputBytes * feePerByte },
+            feePerByte
+        )
+        // Forced inputs rely on the accumulative ordering, leave those to the greedy selection
+        if (effective.size == 0 || effective.forceInclude.any { it }) {
+            return null
+        }
+
+        val count = effective.size
+        val effectiveValues = LongArray(count) { effective.values[it] - effective.inputBytes[it] * feePerByte }
+        val inputWaste = LongArray(count) { effective.inputBytes[it] * (feePerByte - longTermFeePerByte) }
+        val selectionTarget = outputAmount + (BYTES_BASE + targetOutputType.bytes) * feePerByte
+        val costOfChange = dustThreshold(changeOutputType, feePerByte)
+        val isFeeHigh = feePerByte > longTermFeePerByte
+
+        var availableValue = effectiveValues.sum()
+        if (availableValue < selectionTarget) {
+            return null
+        }
+
+        val selection = IntArray(count)
+        var selectionSize = 0
+        var selectedValue = 0L
+        var selectedWaste = 0L
+        var best: IntArray? = null
+        var bestWaste = Long.MAX_VALUE
+        val deadline = nanoClock() + maxDurationNanos
+
+        var index = 0
+        var tries = 0
+        while (tries < maxTries) {
+            if ((tries and CLOCK_CHECK_MASK) == 0 && nanoClock() > deadline) {
+                break
+            }
+
+            var backtrack = false
+            if (selectedValue + availableValue < selectionTarget ||
+                selectedValue > selectionTarget + costOfChange ||
+                (isFeeHigh && selectedWaste > bestWaste)
+            ) {
+                // Can't reach the target, or would need change, or can only get more wasteful from here
+                backtrack = true
+            } else if (selectedValue >= selectionTarget) {
+                val waste = selectedWaste + selectedValue - selectionTarget
+                if (waste <= bestWaste) {
+                    best = selection.copyOf(selectionSize)
+                    bestWaste = waste
+                }
+                backtrack = true
+            }
+
+            if (backtrack) {
+                if (selectionSize == 0) {
+                    // Whole tree explored
+                    break
+                }
+                // Return the omitted coins to the lookahead, then try the branch omitting the last included coin
+                index--
+                while (index > selection[selectionSize - 1]) {
+                    availableValue += effectiveValues[index]
+                    index--
+                }
+                selectedValue -= effectiveValues[index]
+                selectedWaste -= inputWaste[index]
+                selectionSize--
+            } else {
+                availableValue -= effectiveValues[index]
+                // Skip coins equivalent to a previously omitted one, that branch has already been explored
+                if (selectionSize == 0 ||
+                    index - 1 == selection[selectionSize - 1] ||
+                    effectiveValues[index] != effectiveValues[index - 1] ||
+                    inputWaste[index] != inputWaste[index - 1]
+                ) {
+                    selection[selectionSize++] = index
+                    selectedValue += effectiveValues[index]
+                    selectedWaste += inputWaste[index]
+                }
+            }
+
+            tries++
+            index++
+        }
+
+        return best?.let { indexes ->
+            var totalValue = 0L
+            var inputBytes = 0L
+            indexes.forEach {
+                totalValue += effective.values[it]
+                inputBytes += effective.inputBytes[it]
+            }
+            val requiredFee = (BYTES_BASE + inputBytes + targetOutputType.bytes) * feePerByte
+            val excess = totalValue - outputAmount - requiredFee
+            val selected = effective.coinsAt(indexes, indexes.size)
+
+            SpendableUnspentOutputs(
+                spendableOutputs = selected,
+                absoluteFee = (requiredFee + excess).toBigInteger(),
+                consumedAmount = excess.toBigInteger(),
+                isReplayProtected = selected.first().isReplayable.not()
+            )
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package info.blockchain.wallet.payment
+
+import java.math.BigInteger
+
+/**
+ * How coins are picked once they have been sorted.
+ */
+sealed class CoinSelectionMode {
+
+    /**
+     * Accumulates coins in sort order until the target is met, adding a change output when worthwhile.
+     */
+    object Accumulative : CoinSelectionMode()
+
+    /**
+     * Searches for a set of coins that pays the target without needing a change output, minimising waste.
+     * Falls back to [Accumulative] selection when no such set is found within the search budget.
+     *
+     * @param maxTries upper bound on the number of search steps
+     * @param maxDurationMillis upper bound on the time spent searching
+     * @param longTermFeePerKb fee expected to spend coins in the future, null to use the current fee
+     */
+    data class BranchAndBound(
+        val maxTries: Int = DEFAULT_MAX_TRIES,
+        val maxDurationMillis: Long = DEFAULT_MAX_DURATION_MILLIS,
+        val longTermFeePerKb: BigInteger? = null
+    ) : CoinSelectionMode()
+
+    companion object {
+        const val DEFAULT_MAX_TRIES = 100_000
+        const val DEFAULT_MAX_DURATION_MILLIS = 100L
+    }
+}
@@ -4,6 +4,7 @@ import info.blockchain.wallet.payload.model.Utxo
 import java.math.BigDecimal
 import java.math.BigInteger
 import java.math.RoundingMode
+import java.util.concurrent.TimeUnit
 
 internal object Coins {
 
@@ -38,8 +39,14 @@ internal object Coins {
             coinSortingMethod = ReplayProtection(placeholderDustInput)
         }
 
-        val selection = CoinSelection(utxoList, feePerKbToFeePerByte(feePerKb))
-            .selectAll(targetOutputType, coinSortingMethod)
+        val feePerByte = feePerKbToFeePerByte(feePerKb)
+        val selection = if (PrimitiveCoinSelection.canSelect(utxoList, feePerByte)) {
+            PrimitiveCoinSelection(utxoList, feePerByte.toLong())
+                .selectAll(targetOutputType, coinSortingMethod)
+        } else {
+            CoinSelection(utxoList, feePerByte)
+                .selectAll(targetOutputType, coinSortingMethod)
+        }
 
         return Pair(selection.spendableBalance, selection.absoluteFee)
     }
@@ -53,6 +60,7 @@ internal object Coins {
      * @param paymentAmount the desired amount to send
      * @param feePerKb he fee per KB
      * @param addReplayProtection whether or no replay protection should be considered
+     * @param coinSelectionMode how coins are picked, branch and bound is not used with replay protection
      * @return a list of spendable coins
      */
     fun getMinimumCoinsForPayment(
@@ -61,7 +69,8 @@ internal object Coins {
         changeOutputType: OutputType,
         paymentAmount: BigInteger,
         feePerKb: BigInteger,
-        addReplayProtection: Boolean
+        addReplayProtection: Boolean,
+        coinSelectionMode: CoinSelectionMode = CoinSelectionMode.Accumulative
     ): SpendableUnspentOutputs {
 
         val coinSortingMethod: CoinSortingMethod = if (addReplayProtection) {
@@ -70,8 +79,24 @@ internal object Coins {
             DescentDraw
         }
 
-        return CoinSelection(utxoList, feePerKbToFeePerByte(feePerKb))
-            .select(paymentAmount, targetOutputType, changeOutputType, coinSortingMethod)
+        val feePerByte = feePerKbToFeePerByte(feePerKb)
+        val fitsInLong = PrimitiveCoinSelection.canSelect(utxoList, feePerByte) && paymentAmount.bitLength() < 63
+        return if (fitsInLong && !addReplayProtection && coinSelectionMode is CoinSelectionMode.BranchAndBound) {
+            val longTermFeePerByte = coinSelectionMode.longTermFeePerKb?.let { feePerKbToFeePerByte(it) } ?: feePerByte
+            BranchAndBoundCoinSelection(
+                coins = utxoList,
+                feePerByte = feePerByte.toLong(),
+                longTermFeePerByte = longTermFeePerByte.toLong(),
+                maxTries = coinSelectionMode.maxTries,
+                maxDurationNanos = TimeUnit.MILLISECONDS.toNanos(coinSelectionMode.maxDurationMillis)
+            ).select(paymentAmount.toLong(), targetOutputType, changeOutputType)
+        } else if (fitsInLong) {
+            PrimitiveCoinSelection(utxoList, feePerByte.toLong())
+                .select(paymentAmount.toLong(), targetOutputType, changeOutputType, coinSortingMethod)
+        } else {
+            CoinSelection(utxoList, feePerByte)
+                .select(paymentAmount, targetOutputType, changeOutputType, coinSortingMethod)
+        }
     }
 
     private fun feePerKbToFeePerByte(feePerKb: BigInteger): BigInteger {
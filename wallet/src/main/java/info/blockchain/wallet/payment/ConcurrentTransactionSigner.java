@@ -0,0 +1,249 @@
+package info.blockchain.wallet.payment;
+
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.core.TransactionOutput;
+import org.bitcoinj.core.TransactionWitness;
+import org.bitcoinj.crypto.TransactionSignature;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bitcoinj.script.ScriptException;
+import org.bitcoinj.script.ScriptPattern;
+import org.bitcoinj.wallet.KeyBag;
+import org.bitcoinj.wallet.RedeemData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Signs the inputs of a transaction the same way bitcoinj's LocalTransactionSigner (or BchLocalTransactionSigner when
+ * using the fork id) does, but without any shared state so that any number of transactions can be signed at once.
+ *
+ * Signatures are calculated against the transaction before any of them is written into its inputs, which lets the
+ * inputs of large transactions be signed in parallel.
+ */
+class ConcurrentTransactionSigner {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrentTransactionSigner.class);
+
+    // Below this many inputs handing the work over to other threads costs more than it saves
+    static final int DEFAULT_PARALLEL_THRESHOLD = 8;
+
+    private final KeyBag keyBag;
+    private final boolean useForkId;
+    private final int parallelThreshold;
+
+    ConcurrentTransactionSigner(List<ECKey> keys, boolean useForkId) {
+        this(keys, useForkId, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    ConcurrentTransactionSigner(List<ECKey> keys, boolean useForkId, int parallelThreshold) {
+        this.keyBag = new SigningKeyBag(keys);
+        this.useForkId = useForkId;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    void signInputs(Transaction tx) {
+        int numInputs = tx.getInputs().size();
+        boolean[] toSign = new boolean[numInputs];
+
+        for (int i = 0; i < numInputs; i++) {
+            TransactionInput txIn = tx.getInput(i);
+            if (txIn.getConnectedOutput() == null) {
+                // Missing connected output, assuming already signed.
+                continue;
+            }
+            if (isSigned(tx, i)) {
+                log.warn(
+                        "Input {} already correctly spends output, assuming SIGHASH type used will be safe and "
+                                + "skipping signing.",
+                        i);
+                continue;
+            }
+
+            Script scriptPubKey = txIn.getConnectedOutput().getScriptPubKey();
+            RedeemData redeemData = txIn.getConnectedRedeemData(keyBag);
+            checkNotNull(
+                redeemData,
+                "Transaction exists in wallet that we cannot redeem: %s",
+                txIn.getOutpoint().getHash()
+            );
+            txIn.setScriptSig(
+                scriptPubKey.createEmptyInputScript(
+                    redeemData.keys.get(0),
+                    redeemData.redeemScript)
+            );
+            toSign[i] = true;
+        }
+
+        // Only reads the transaction, signed inputs are written below once every signature has been calculated
+        IntStream indices = IntStream.range(0, numInputs).filter(i -> toSign[i]);
+        if (numInputs >= parallelThreshold) {
+            indices = indices.parallel();
+        }
+        SignedInput[] signedInputs = new SignedInput[numInputs];
+        indices.forEach(i -> signedInputs[i] = sign(tx, i));
+
+        for (int i = 0; i < numInputs; i++) {
+            SignedInput signedInput = signedInputs[i];
+            if (signedInput != null) {
+                TransactionInput txIn = tx.getInput(i);
+                txIn.setScriptSig(signedInput.scriptSig);
+                if (!useForkId) {
+                    txIn.setWitness(signedInput.witness);
+                }
+            }
+        }
+    }
+
+    // We assume if its already signed, its hopefully got a SIGHASH type that will not invalidate when
+    // we sign missing pieces (to check this would require either assuming any signatures are signing
+    // standard output types or a way to get processed signatures out of script execution)
+    private boolean isSigned(Transaction tx, int index) {
+        TransactionInput txIn = tx.getInput(index);
+        if (txIn.getScriptBytes().length == 0 && !txIn.hasWitness()) {
+            // Nothing to verify, which is the case for every input of the transactions we make
+            return false;
+        }
+
+        TransactionOutput connectedOutput = txIn.getConnectedOutput();
+        try {
+            if (useForkId) {
+                txIn.getScriptSig()
+                        .correctlySpends(
+                                tx,
+                                index,
+                                null,
+                                connectedOutput.getValue(),
+                                connectedOutput.getScriptPubKey(),
+                                Script.ALL_VERIFY_FLAGS
+                        );
+            } else {
+                txIn.getScriptSig()
+                        .correctlySpends(
+                                tx,
+                                index,
+                                txIn.getWitness(),
+                                txIn.getValue(),
+                                connectedOutput.getScriptPubKey(),
+                                Script.ALL_VERIFY_FLAGS);
+            }
+            return true;
+        } catch (ScriptException e) {
+            log.debug("Input contained an incorrect signature", e);
+            return false;
+        }
+    }
+
+    @Nullable
+    private SignedInput sign(Transaction tx, int index) {
+        TransactionInput txIn = tx.getInput(index);
+        TransactionOutput connectedOutput = txIn.getConnectedOutput();
+        Script scriptPubKey = connectedOutput.getScriptPubKey();
+        RedeemData redeemData = txIn.getConnectedRedeemData(keyBag);
+
+        ECKey key = redeemData.getFullKey();
+        if (key == null) {
+            log.warn("No local key found for input {}", index);
+            return null;
+        }
+
+        // For pay-to-address and pay-to-key inputs there is only one signature and it always goes first
+        int sigIndex = 0;
+        byte[] script = redeemData.redeemScript.getProgram();
+        try {
+            if (useForkId) {
+                TransactionSignature signature = tx.calculateWitnessSignature(
+                    index,
+                    key,
+                    script,
+                    connectedOutput.getValue(),
+                    Transaction.SigHash.ALL,
+                    false
+                );
+                Script scriptSig = scriptPubKey
+                    .getScriptSigWithSignature(txIn.getScriptSig(), signature.encodeToBitcoin(), sigIndex);
+                return new SignedInput(scriptSig, null);
+            } else if (ScriptPattern.isP2PK(scriptPubKey) || ScriptPattern.isP2PKH(scriptPubKey)
+                    || ScriptPattern.isP2SH(scriptPubKey)) {
+                TransactionSignature signature =
+                    tx.calculateSignature(index, key, script, Transaction.SigHash.ALL, false);
+                Script scriptSig = scriptPubKey
+                    .getScriptSigWithSignature(txIn.getScriptSig(), signature.encodeToBitcoin(), sigIndex);
+                return new SignedInput(scriptSig, null);
+            } else if (ScriptPattern.isP2WPKH(scriptPubKey)) {
+                Script scriptCode = ScriptBuilder.createP2PKHOutputScript(key);
+                TransactionSignature signature = tx.calculateWitnessSignature(
+                    index,
+                    key,
+                    scriptCode,
+                    txIn.getValue(),
+                    Transaction.SigHash.ALL,
+                    false
+                );
+                return new SignedInput(ScriptBuilder.createEmpty(), TransactionWitness.redeemP2WPKH(signature, key));
+            } else {
+                throw new IllegalStateException(scriptPubKey.toString());
+            }
+        } catch (ECKey.KeyIsEncryptedException e) {
+            throw e;
+        } catch (ECKey.MissingPrivateKeyException e) {
+            log.warn("No private key in keypair for input {}", index);
+            return null;
+        }
+    }
+
+    private static class SignedInput {
+        final Script scriptSig;
+        @Nullable final TransactionWitness witness;
+
+        SignedInput(Script scriptSig, @Nullable TransactionWitness witness) {
+            this.scriptSig = scriptSig;
+            this.witness = witness;
+        }
+    }
+
+    /**
+     * Read only key bag, built once per transaction and shared by all of its inputs.
+     */
+    private static class SigningKeyBag implements KeyBag {
+
+        private final Map<ByteBuffer, ECKey> keysByPubKeyHash = new HashMap<>();
+        private final Map<ByteBuffer, ECKey> keysByPubKey = new HashMap<>();
+
+        SigningKeyBag(List<ECKey> keys) {
+            for (ECKey key : keys) {
+                keysByPubKeyHash.put(ByteBuffer.wrap(key.getPubKeyHash()), key);
+                keysByPubKey.put(ByteBuffer.wrap(key.getPubKey()), key);
+            }
+        }
+
+        @Nullable
+        @Override
+        public ECKey findKeyFromPubKeyHash(byte[] pubKeyHash, @Nullable Script.ScriptType scriptType) {
+            return keysByPubKeyHash.get(ByteBuffer.wrap(pubKeyHash));
+        }
+
+        @Nullable
+        @Override
+        public ECKey findKeyFromPubKey(byte[] pubKey) {
+            return keysByPubKey.get(ByteBuffer.wrap(pubKey));
+        }
+
+        @Nullable
+        @Override
+        public RedeemData findRedeemDataFromScriptHash(byte[] scriptHash) {
+            return null;
+        }
+    }
+}
@@ -11,4 +11,7 @@ enum class OutputType(val size: Double) {
 
     val cost: BigInteger
         get() = size.roundToInt().toBigInteger()
+
+    internal val bytes: Long
+        get() = size.roundToInt().toLong()
 }
@@ -15,13 +15,6 @@ import org.bitcoinj.core.TransactionOutPoint;
 import org.bitcoinj.core.TransactionOutput;
 import org.bitcoinj.script.Script;
 import org.bitcoinj.script.ScriptBuilder;
-import org.bitcoinj.script.ScriptException;
-import org.bitcoinj.signers.LocalTransactionSigner;
-import org.bitcoinj.signers.TransactionSigner;
-import org.bitcoinj.wallet.DecryptingKeyBag;
-import org.bitcoinj.wallet.KeyBag;
-import org.bitcoinj.wallet.KeyChainGroup;
-import org.bitcoinj.wallet.RedeemData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spongycastle.util.encoders.Hex;
@@ -36,21 +29,19 @@ import java.util.Set;
 import javax.annotation.Nullable;
 
 import info.blockchain.wallet.api.dust.data.DustInput;
-import info.blockchain.wallet.bch.BchLocalTransactionSigner;
 import info.blockchain.wallet.bch.CashAddress;
 import info.blockchain.wallet.payload.model.Utxo;
 import info.blockchain.wallet.util.FormatsUtil;
 import info.blockchain.wallet.util.Hash;
 import info.blockchain.wallet.util.Tools;
 
-import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 class PaymentTx {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentTx.class);
 
-    public static synchronized Transaction makeSimpleTransaction(
+    public static Transaction makeSimpleTransaction(
             NetworkParameters networkParameters,
             List<Utxo> unspentCoins,
             HashMap<String, BigInteger> receivingAddresses,
@@ -224,91 +215,16 @@ class PaymentTx {
         }
     }
 
-    public static synchronized void signSimpleTransaction(
+    public static void signSimpleTransaction(
         NetworkParameters networkParameters,
         Transaction tx,
         List<ECKey> keys,
         boolean useForkId
     ) {
+        checkState(tx.getInputs().size() > 0);
+        checkState(tx.getOutputs().size() > 0);
 
-        KeyChainGroup keybag = KeyChainGroup.createBasic(networkParameters);
-        keybag.importKeys(keys);
-
-        KeyBag maybeDecryptingKeyBag = new DecryptingKeyBag(keybag, null);
-
-        List<TransactionInput> inputs = tx.getInputs();
-        List<TransactionOutput> outputs = tx.getOutputs();
-        checkState(inputs.size() > 0);
-        checkState(outputs.size() > 0);
-
-        int numInputs = tx.getInputs().size();
-
-        for (int i = 0; i < numInputs; i++) {
-            TransactionInput txIn = tx.getInput(i);
-            if (txIn.getConnectedOutput() == null) {
-                // Missing connected output, assuming already signed.
-                continue;
-            }
-
-            try {
-                // We assume if its already signed, its hopefully got a SIGHASH type that will not invalidate when
-                // we sign missing pieces (to check this would require either assuming any signatures are signing
-                // standard output types or a way to get processed signatures out of script execution)
-                if (useForkId) {
-                    txIn.getScriptSig()
-                            .correctlySpends(
-                                    tx,
-                                    i,
-                                    null,
-                                    txIn.getConnectedOutput().getValue(),
-                                    txIn.getConnectedOutput().getScriptPubKey(),
-                                    Script.ALL_VERIFY_FLAGS
-                            );
-                } else {
-                    txIn.getScriptSig()
-                            .correctlySpends(
-                                    tx,
-                                    i,
-                                    txIn.getWitness(),
-                                    txIn.getValue(),
-                                    txIn.getConnectedOutput().getScriptPubKey(),
-                                    Script.ALL_VERIFY_FLAGS);
-                }
-
-                log.warn(
-                        "Input {} already correctly spends output, assuming SIGHASH type used will be safe and skipping signing.",
-                        i);
-                continue;
-            } catch (ScriptException e) {
-                log.debug("Input contained an incorrect signature", e);
-                // Expected.
-            }
-
-            Script scriptPubKey = txIn.getConnectedOutput().getScriptPubKey();
-            RedeemData redeemData = txIn.getConnectedRedeemData(maybeDecryptingKeyBag);
-            checkNotNull(
-                redeemData,
-                "Transaction exists in wallet that we cannot redeem: %s",
-                txIn.getOutpoint().getHash()
-            );
-            txIn.setScriptSig(
-                scriptPubKey.createEmptyInputScript(
-                    redeemData.keys.get(0),
-                    redeemData.redeemScript)
-            );
-        }
-
-        TransactionSigner.ProposedTransaction proposal = new TransactionSigner.ProposedTransaction(tx);
-        LocalTransactionSigner signer;
-        if (useForkId) {
-            signer = new BchLocalTransactionSigner();
-        } else {
-            signer = new LocalTransactionSigner();
-        }
-
-        if (!signer.signInputs(proposal, maybeDecryptingKeyBag)) {
-            log.info("{} returned false for the tx", signer.getClass().getName());
-        }
+        new ConcurrentTransactionSigner(keys, useForkId).signInputs(tx);
     }
 
     static Transaction makeNonReplayableTransaction(
@@ -0,0 +1,191 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+
+internal const val BYTES_BASE = 10L
+internal const val BYTES_PER_INPUT_LEGACY = 149L
+internal const val BYTES_PER_INPUT_SEGWIT = 68L
+
+// Keeps every intermediate value (sums, byte counts and fees) comfortably inside a Long
+private const val MAX_COINS = 1 shl 24
+private const val MAX_FEE_PER_BYTE_BITS = 31
+private const val MAX_COIN_VALUE_BITS = 62
+private const val MAX_TOTAL_VALUE = 1L shl 62
+
+/**
+ * Satoshi based equivalent of [CoinSelection].
+ *
+ * Coins are sorted once and laid out into parallel primitive arrays (value, per-input size and force-include flag)
+ * so that selection runs in a single pass with running accumulators instead of re-summing and re-measuring the
+ * selected list on every iteration. Results are identical to [CoinSelection], only the [Utxo]s that end up selected
+ * are materialised into the returned [SpendableUnspentOutputs].
+ *
+ * Use [canSelect] to check the inputs fit into Long arithmetic before using this class, [CoinSelection] remains
+ * the fallback for anything larger.
+ */
+internal class PrimitiveCoinSelection(
+    private val coins: List<Utxo>,
+    private val feePerByte: Long
+) {
+    fun select(
+        outputAmount: Long,
+        targetOutputType: OutputType,
+        changeOutputType: OutputType,
+        coinSortingMethod: CoinSortingMethod
+    ): SpendableUnspentOutputs {
+        val effective = EffectiveCoins.from(coinSortingMethod.sort(coins), feePerByte)
+
+        val selected = IntArray(effective.size)
+        var selectedCount = 0
+        var accumulatedValue = 0L
+        var accumulatedInputBytes = 0L
+        var accumulatedFee = 0L
+        val targetOutputBytes = targetOutputType.bytes
+
+        for (i in 0 until effective.size) {
+            if (!effective.forceInclude[i] && accumulatedValue >= outputAmount + accumulatedFee) {
+                continue
+            }
+            selected[selectedCount++] = i
+            accumulatedValue += effective.values[i]
+            accumulatedInputBytes += effective.inputBytes[i]
+            accumulatedFee = (BYTES_BASE + accumulatedInputBytes + targetOutputBytes) * feePerByte
+        }
+
+        val dust = dustThreshold(changeOutputType, feePerByte)
+        val remainingValue = accumulatedValue - (outputAmount + accumulatedFee)
+        val isReplayProtected = selectedCount == 0 || !effective.coins[selected[0]].isReplayable
+
+        return when {
+            // Either there were no effective coins or we were not able to meet the target value
+            selectedCount == 0 || remainingValue < 0 -> {
+                SpendableUnspentOutputs(isReplayProtected = isReplayProtected)
+            }
+            // Remaining value is worth keeping, add change output
+            remainingValue >= dust -> {
+                accumulatedFee = (BYTES_BASE + accumulatedInputBytes + 2 * changeOutputType.bytes) * feePerByte
+                SpendableUnspentOutputs(
+                    effective.coinsAt(selected, selectedCount),
+                    accumulatedFee.toBigInteger(),
+                    isReplayProtected = isReplayProtected
+                )
+            }
+            // Remaining value is not worth keeping, consume it as part of the fee
+            else -> {
+                SpendableUnspentOutputs(
+                    effective.coinsAt(selected, selectedCount),
+                    (accumulatedFee + remainingValue).toBigInteger(),
+                    remainingValue.toBigInteger(),
+                    isReplayProtected
+                )
+            }
+        }
+    }
+
+    fun selectAll(
+        targetOutputType: OutputType,
+        coinSortingMethod: CoinSortingMethod? = null
+    ): SpendableUnspentOutputs {
+        val effective = EffectiveCoins.from(coinSortingMethod?.sort(coins) ?: coins, feePerByte)
+
+        var effectiveValue = 0L
+        var inputBytes = 0L
+        for (i in 0 until effective.size) {
+            effectiveValue += effective.values[i]
+            inputBytes += effective.inputBytes[i]
+        }
+        val fee = (BYTES_BASE + inputBytes + targetOutputType.bytes) * feePerByte
+        val effectiveBalance = (effectiveValue - fee).coerceAtLeast(0L)
+
+        return SpendableUnspentOutputs(
+            spendableOutputs = effective.coins,
+            absoluteFee = (effectiveValue - effectiveBalance).toBigInteger(),
+            isReplayProtected = effective.coins.firstOrNull()?.isReplayable != true
+        )
+    }
+
+    companion object {
+        /**
+         * Whether the provided coins and fee can be handled without overflowing Long arithmetic.
+         */
+        fun canSelect(coins: List<Utxo>, feePerByte: BigInteger): Boolean {
+            if (coins.size > MAX_COINS ||
+                feePerByte.signum() < 0 ||
+                feePerByte.bitLength() > MAX_FEE_PER_BYTE_BITS
+            ) {
+                return false
+            }
+            var total = 0L
+            for (coin in coins) {
+                if (coin.value.signum() < 0 || coin.value.bitLength() > MAX_COIN_VALUE_BITS) {
+                    return false
+                }
+                total += coin.value.toLong()
+                if (total > MAX_TOTAL_VALUE) {
+                    return false
+                }
+            }
+            return true
+        }
+    }
+}
+
+/**
+ * Sorted coins with a positive effective value (or forced inclusion), alongside their primitive properties.
+ */
+internal class EffectiveCoins(
+    val coins: List<Utxo>,
+    val values: LongArray,
+    val inputBytes: LongArray,
+    val forceInclude: BooleanArray
+) {
+    val size: Int
+        get() = values.size
+
+    fun coinsAt(indexes: IntArray, count: Int): List<Utxo> =
+        ArrayList<Utxo>(count).apply {
+            for (i in 0 until count) {
+                add(coins[indexes[i]])
+            }
+        }
+
+    companion object {
+        fun from(sortedCoins: List<Utxo>, feePerByte: Long): EffectiveCoins {
+            val values = LongArray(sortedCoins.size)
+            val inputBytes = LongArray(sortedCoins.size)
+            val forceInclude = BooleanArray(sortedCoins.size)
+            val effectiveCoins = ArrayList<Utxo>(sortedCoins.size)
+
+            for (coin in sortedCoins) {
+                val value = coin.value.toLong()
+                val bytes = coin.inputBytes
+                if (coin.isForceInclude || value > bytes * feePerByte) {
+                    val index = effectiveCoins.size
+                    values[index] = value
+                    inputBytes[index] = bytes
+                    forceInclude[index] = coin.isForceInclude
+                    effectiveCoins.add(coin)
+                }
+            }
+
+            val count = effectiveCoins.size
+            return EffectiveCoins(
+                coins = effectiveCoins,
+                values = values.copyOf(count),
+                inputBytes = inputBytes.copyOf(count),
+                forceInclude = forceInclude.copyOf(count)
+            )
+        }
+    }
+}
+
+internal fun dustThreshold(outputType: OutputType, feePerByte: Long): Long =
+    when (outputType) {
+        OutputType.P2PKH,
+        OutputType.P2SH -> (BYTES_PER_INPUT_LEGACY + outputType.bytes) * feePerByte
+        else -> (BYTES_PER_INPUT_SEGWIT + outputType.bytes) * feePerByte
+    }
+
+internal val Utxo.inputBytes: Long
+    get() = if (isSegwit) BYTES_PER_INPUT_SEGWIT else BYTES_PER_INPUT_LEGACY
@@ -138,7 +138,7 @@ public class Tools {
         List<String> list = new ArrayList<>();
 
         for (int i = startIndex; i < endIndex; i++) {
-            list.add(account.getReceive().getAddressAt(i, derivationType).getFormattedAddress());
+            list.add(account.getReceive().getFormattedAddressAt(i, derivationType));
         }
 
         return list;
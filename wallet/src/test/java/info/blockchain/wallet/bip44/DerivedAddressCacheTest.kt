@@ -0,0 +1,91 @@
+package info.blockchain.wallet.bip44
+
+import info.blockchain.wallet.payload.data.Derivation
+import io.reactivex.rxjava3.schedulers.Schedulers
+import org.bitcoinj.crypto.HDKeyDerivation
+import org.bitcoinj.params.MainNetParams
+import org.junit.Assert
+import org.junit.Test
+
+class DerivedAddressCacheTest {
+    private val seed = "15e23aa73d25994f1921a1256f93f72c"
+    private val key = HDKeyDerivation.createMasterPrivateKey(seed.toByteArray())
+    private val chain = HDChain.receiveChain(MainNetParams.get(), key)
+
+    private fun chainKey() = HDKeyDerivation.deriveChildKey(key, 0)
+
+    @Test
+    fun `derived addresses match full address derivation`() {
+        val cache = DerivedAddressCache(MainNetParams.get(), chainKey(), scheduler = Schedulers.trampoline())
+        (0 until 30).forEach { index ->
+            listOf(Derivation.LEGACY_PURPOSE, Derivation.SEGWIT_BECH32_PURPOSE).forEach { purpose ->
+                val address = chain.getAddressAt(index, purpose)
+                Assert.assertEquals(address.formattedAddress, chain.getFormattedAddressAt(index, purpose))
+                Assert.assertArrayEquals(address.pubKeyHash, cache.get(index, purpose).pubKeyHash)
+            }
+        }
+    }
+
+    @Test
+    fun `addresses are cached per purpose`() {
+        val cache = DerivedAddressCache(MainNetParams.get(), chainKey(), scheduler = Schedulers.trampoline())
+
+        val legacy = cache.get(0, Derivation.LEGACY_PURPOSE)
+        val segwit = cache.get(0, Derivation.SEGWIT_BECH32_PURPOSE)
+
+        Assert.assertSame(legacy, cache.get(0, Derivation.LEGACY_PURPOSE))
+        Assert.assertSame(segwit, cache.get(0, Derivation.SEGWIT_BECH32_PURPOSE))
+        Assert.assertEquals("1HxBEXhu5LPibpTAQ1EoNTJavDSbwajJTg", legacy.formattedAddress)
+        Assert.assertEquals("bc1qh8cka3lk4k74dnr7pqzyct8em57ky43a2x05lq", segwit.formattedAddress)
+    }
+
+    @Test
+    fun `look ahead window is pre derived`() {
+        val cache = DerivedAddressCache(
+            MainNetParams.get(),
+            chainKey(),
+            lookAhead = 5,
+            scheduler = Schedulers.trampoline()
+        )
+        cache.get(0, Derivation.LEGACY_PURPOSE)
+
+        (0..5).forEach { Assert.assertTrue(cache.contains(it, Derivation.LEGACY_PURPOSE)) }
+        Assert.assertFalse(cache.contains(6, Derivation.LEGACY_PURPOSE))
+        Assert.assertFalse(cache.contains(1, Derivation.SEGWIT_BECH32_PURPOSE))
+
+        cache.get(4, Derivation.LEGACY_PURPOSE)
+
+        (6..9).forEach { Assert.assertTrue(cache.contains(it, Derivation.LEGACY_PURPOSE)) }
+    }
+
+    @Test
+    fun `walking a lower range after a higher one is pre derived too`() {
+        val cache = DerivedAddressCache(
+            MainNetParams.get(),
+            chainKey(),
+            lookAhead = 5,
+            scheduler = Schedulers.trampoline()
+        )
+        cache.get(50, Derivation.LEGACY_PURPOSE)
+
+        cache.get(0, Derivation.LEGACY_PURPOSE)
+
+        (1..5).forEach { Assert.assertTrue(cache.contains(it, Derivation.LEGACY_PURPOSE)) }
+    }
+
+    @Test
+    fun `least recently used addresses are evicted`() {
+        val cache = DerivedAddressCache(
+            MainNetParams.get(),
+            chainKey(),
+            capacity = 2,
+            lookAhead = 0,
+            scheduler = Schedulers.trampoline()
+        )
+        val first = cache.get(0, Derivation.LEGACY_PURPOSE)
+        cache.get(1, Derivation.LEGACY_PURPOSE)
+        cache.get(2, Derivation.LEGACY_PURPOSE)
+
+        Assert.assertNotSame(first, cache.get(0, Derivation.LEGACY_PURPOSE))
+    }
+}
@@ -0,0 +1,122 @@
+package info.blockchain.wallet.payload.data
+
+import com.blockchain.api.bitcoin.data.BalanceDto
+import com.blockchain.api.bitcoin.data.BalanceResponseDto
+import com.blockchain.api.services.NonCustodialBitcoinService
+import com.nhaarman.mockitokotlin2.any
+import com.nhaarman.mockitokotlin2.doReturn
+import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.whenever
+import info.blockchain.wallet.bip44.HDWalletFactory
+import info.blockchain.wallet.payload.HDWalletsContainer
+import java.util.Collections
+import org.junit.Assert
+import org.junit.Test
+import retrofit2.Call
+import retrofit2.Response
+
+class AccountDiscoveryTest {
+
+    private val mnemonic = "all all all all all all all all all all all all"
+
+    private fun walletsContainer() = HDWalletsContainer().apply {
+        restoreWallets(HDWalletFactory.Language.US, mnemonic, "", 1)
+    }
+
+    private val lookups = Collections.synchronizedList(mutableListOf<Int>())
+
+    /**
+     * Local stand-in for the balance endpoint, answering from the set of xpubs that have transactions.
+     */
+    private fun bitcoinApi(usedXpubs: Set<String>): NonCustodialBitcoinService {
+        val api = mock<NonCustodialBitcoinService>()
+        whenever(api.getBalance(any(), any(), any(), any())).thenAnswer { invocation ->
+            val legacy = invocation.getArgument<List<String>>(1)
+            val segwit = invocation.getArgument<List<String>>(2)
+            lookups += if (legacy.isNotEmpty()) Derivation.LEGACY_PURPOSE else Derivation.SEGWIT_BECH32_PURPOSE
+            val balances: BalanceResponseDto = (legacy + segwit).associateWith { xpub ->
+                BalanceDto(
+                    finalBalance = "0",
+                    txCount = if (xpub in usedXpubs) 1 else 0,
+                    totalReceived = "0"
+                )
+            }
+            mock<Call<BalanceResponseDto>> {
+                on { execute() } doReturn Response.success(balances)
+            }
+        }
+        return api
+    }
+
+    @Test
+    fun `derived account xpubs match added accounts`() {
+        val wallet = walletsContainer().getHDWallet(Derivation.SEGWIT_BECH32_PURPOSE)!!
+        val derived = (1..5).map { wallet.deriveAccountXpub(it) }
+        val added = (1..5).map { wallet.addAccount().xpub }
+
+        Assert.assertEquals(added, derived)
+    }
+
+    @Test
+    fun `discovers used accounts for every purpose`() {
+        val container = walletsContainer()
+        val legacy = container.getHDWallet(Derivation.LEGACY_PURPOSE)!!
+        val segwit = container.getHDWallet(Derivation.SEGWIT_BECH32_PURPOSE)!!
+        val used = setOf(
+            legacy.deriveAccountXpub(1),
+            legacy.deriveAccountXpub(2),
+            legacy.deriveAccountXpub(7),
+            segwit.deriveAccountXpub(3)
+        )
+        val found = mutableMapOf<Int, Int>()
+        val completedPhases = Collections.synchronizedList(mutableListOf<Pair<Int, AccountDiscoveryPhase>>())
+        val listener = object : AccountDiscoveryListener {
+            override fun onAccountsScanned(purpose: Int, accountsScanned: Int, accountsFound: Int) {
+                found[purpose] = accountsFound
+            }
+
+            override fun onPhaseCompleted(purpose: Int, phase: AccountDiscoveryPhase, durationMillis: Long) {
+                completedPhases += purpose to phase
+            }
+        }
+
+        val walletSize = AccountDiscovery(bitcoinApi(used), listener, derivationThreads = 4).discoverWalletSize(
+            listOf(Derivation.LEGACY_PURPOSE to legacy, Derivation.SEGWIT_BECH32_PURPOSE to segwit)
+        )
+
+        Assert.assertEquals(4, walletSize)
+        Assert.assertEquals(mapOf(Derivation.LEGACY_PURPOSE to 4, Derivation.SEGWIT_BECH32_PURPOSE to 2), found)
+        // Lookups stay in purpose order, legacy batches of 5, 10 and 20 then segwit batches of 5 and 10
+        Assert.assertEquals(
+            listOf(
+                Derivation.LEGACY_PURPOSE,
+                Derivation.LEGACY_PURPOSE,
+                Derivation.LEGACY_PURPOSE,
+                Derivation.SEGWIT_BECH32_PURPOSE,
+                Derivation.SEGWIT_BECH32_PURPOSE
+            ),
+            lookups
+        )
+        Assert.assertTrue(completedPhases.contains(Derivation.LEGACY_PURPOSE to AccountDiscoveryPhase.DISCOVERY))
+        Assert.assertTrue(completedPhases.contains(Derivation.SEGWIT_BECH32_PURPOSE to AccountDiscoveryPhase.DISCOVERY))
+        Assert.assertEquals(
+            5,
+            completedPhases.count { it.second == AccountDiscoveryPhase.BALANCE_LOOKUP }
+        )
+        // Discovering only derives accounts, the wallets keep their default account
+        Assert.assertEquals(1, legacy.accounts.size)
+        Assert.assertEquals(1, segwit.accounts.size)
+    }
+
+    @Test
+    fun `single threaded derivation gives the same result`() {
+        val container = walletsContainer()
+        val legacy = container.getHDWallet(Derivation.LEGACY_PURPOSE)!!
+        val used = (1..12).map { legacy.deriveAccountXpub(it) }.toSet()
+
+        val walletSize = AccountDiscovery(bitcoinApi(used), derivationThreads = 1)
+            .discoverWalletSize(listOf(Derivation.LEGACY_PURPOSE to legacy))
+
+        Assert.assertEquals(13, walletSize)
+    }
+}
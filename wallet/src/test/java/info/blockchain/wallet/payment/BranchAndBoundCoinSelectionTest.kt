@@ -0,0 +1,149 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+import kotlin.random.Random
+import org.amshove.kluent.`should be equal to`
+import org.amshove.kluent.`should be less or equal to`
+import org.amshove.kluent.`should be less than`
+import org.amshove.kluent.shouldBeNull
+import org.junit.Test
+
+class BranchAndBoundCoinSelectionTest {
+
+    private val feePerByte = 10L
+
+    private fun unspents(vararg values: Long) = values.map { Utxo(value = it.toBigInteger()) }
+
+    private fun List<Utxo>.values() = map { it.value }
+
+    @Test
+    fun `finds changeless selection greedy selection misses`() {
+        val coins = unspents(100_000, 50_000, 30_000, 20_000)
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .select(66_580, OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it.spendableOutputs.values() `should be equal to` unspents(50_000, 20_000).values()
+                it.absoluteFee `should be equal to` 3_420.toBigInteger()
+                it.consumedAmount `should be equal to` BigInteger.ZERO
+            }
+
+        PrimitiveCoinSelection(coins, feePerByte)
+            .select(66_580, OutputType.P2PKH, OutputType.P2PKH, DescentDraw)
+            .also {
+                it.spendableOutputs.values() `should be equal to` unspents(100_000).values()
+            }
+    }
+
+    @Test
+    fun `falls back to descent draw when there is no changeless selection`() {
+        val coins = unspents(100_000, 50_000, 30_000, 20_000)
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .selectChangeless(10_000, OutputType.P2PKH, OutputType.P2PKH)
+            .shouldBeNull()
+
+        val expected = PrimitiveCoinSelection(coins, feePerByte)
+            .select(10_000, OutputType.P2PKH, OutputType.P2PKH, DescentDraw)
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .select(10_000, OutputType.P2PKH, OutputType.P2PKH)
+            .also {
+                it.spendableOutputs `should be equal to` expected.spendableOutputs
+                it.absoluteFee `should be equal to` expected.absoluteFee
+                it.consumedAmount `should be equal to` expected.consumedAmount
+            }
+    }
+
+    @Test
+    fun `excess of exactly the cost of change is still changeless`() {
+        // Effective value 12_270 = 10_000 payment + 440 fee + 1_830 cost of change
+        val coins = unspents(13_760)
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .selectChangeless(10_000, OutputType.P2PKH, OutputType.P2PKH)!!
+            .also {
+                it.spendableOutputs.values() `should be equal to` coins.values()
+                it.consumedAmount `should be equal to` 1_830.toBigInteger()
+            }
+    }
+
+    @Test
+    fun `search stops when the budget is exhausted`() {
+        val coins = unspents(100_000, 50_000, 30_000, 20_000)
+
+        BranchAndBoundCoinSelection(coins, feePerByte, maxTries = 1)
+            .selectChangeless(66_580, OutputType.P2PKH, OutputType.P2PKH)
+            .shouldBeNull()
+
+        var now = 0L
+        BranchAndBoundCoinSelection(coins, feePerByte, maxDurationNanos = 10, nanoClock = { now.also { now += 100 } })
+            .selectChangeless(66_580, OutputType.P2PKH, OutputType.P2PKH)
+            .shouldBeNull()
+    }
+
+    @Test
+    fun `forced inputs are left to the greedy selection`() {
+        val coins = unspents(50_000, 20_000) + Utxo(value = Payment.DUST, isForceInclude = true)
+
+        BranchAndBoundCoinSelection(coins, feePerByte)
+            .selectChangeless(66_580, OutputType.P2PKH, OutputType.P2PKH)
+            .shouldBeNull()
+    }
+
+    @Test
+    fun `coin selection mode is applied by coins`() {
+        val coins = unspents(100_000, 50_000, 30_000, 20_000)
+
+        Coins.getMinimumCoinsForPayment(
+            utxoList = coins,
+            targetOutputType = OutputType.P2PKH,
+            changeOutputType = OutputType.P2PKH,
+            paymentAmount = 66_580.toBigInteger(),
+            feePerKb = (feePerByte * 1000).toBigInteger(),
+            addReplayProtection = false,
+            coinSelectionMode = CoinSelectionMode.BranchAndBound()
+        ).spendableOutputs.values() `should be equal to` unspents(50_000, 20_000).values()
+    }
+
+    /**
+     * Compares both strategies over the same deterministic, synthetic UTXO sets. Every branch and bound result
+     * must be a valid payment and never create more change outputs than the accumulative selection.
+     */
+    @Test
+    fun `strategy comparison over synthetic utxo sets`() {
+        listOf(50, 200, 1_000).forEach { size ->
+            val random = Random(size)
+            val coins = List(size) {
+                Utxo(
+                    value = random.nextLong(5_000L, 5_000_000L).toBigInteger(),
+                    txHash = it.toString(),
+                    isSegwit = random.nextBoolean()
+                )
+            }
+            val amounts = List(50) { random.nextLong(10_000L, 20_000_000L) }
+
+            amounts.forEach { amount ->
+                val expected = PrimitiveCoinSelection(coins, feePerByte)
+                    .select(amount, OutputType.P2WPKH, OutputType.P2WPKH, DescentDraw)
+                val actual = BranchAndBoundCoinSelection(coins, feePerByte)
+                    .select(amount, OutputType.P2WPKH, OutputType.P2WPKH)
+
+                if (actual.spendableOutputs.isNotEmpty()) {
+                    val inputBytes = actual.spendableOutputs.sumOf { it.inputBytes }
+                    val requiredFee = (BYTES_BASE + inputBytes + OutputType.P2WPKH.bytes) * feePerByte
+                    (amount + requiredFee).toBigInteger() `should be less or equal to` actual.spendableOutputs.sum()
+                }
+                actual.hasChange(amount) `should be less or equal to` expected.hasChange(amount)
+                if (!actual.hasChange(amount) && actual.spendableOutputs.isNotEmpty()) {
+                    actual.consumedAmount `should be less than`
+                        ((BYTES_PER_INPUT_SEGWIT + OutputType.P2WPKH.bytes) * feePerByte).toBigInteger()
+                }
+            }
+        }
+    }
+}
+
+// Anything left over once the payment and fee are covered goes back to a change output
+private fun SpendableUnspentOutputs.hasChange(amount: Long): Boolean =
+    spendableOutputs.isNotEmpty() && spendableBalance > amount.toBigInteger()
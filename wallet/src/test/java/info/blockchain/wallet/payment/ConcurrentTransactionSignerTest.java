@@ -0,0 +1,185 @@
+package info.blockchain.wallet.payment;
+
+import info.blockchain.wallet.bch.BchLocalTransactionSigner;
+import info.blockchain.wallet.bch.BchMainNetParams;
+import info.blockchain.wallet.payload.model.Utxo;
+import org.bitcoinj.core.ECKey;
+import org.bitcoinj.core.LegacyAddress;
+import org.bitcoinj.core.NetworkParameters;
+import org.bitcoinj.core.Sha256Hash;
+import org.bitcoinj.core.Transaction;
+import org.bitcoinj.core.TransactionInput;
+import org.bitcoinj.params.MainNetParams;
+import org.bitcoinj.script.Script;
+import org.bitcoinj.script.ScriptBuilder;
+import org.bitcoinj.signers.LocalTransactionSigner;
+import org.bitcoinj.signers.TransactionSigner;
+import org.bitcoinj.wallet.DecryptingKeyBag;
+import org.bitcoinj.wallet.KeyBag;
+import org.bitcoinj.wallet.KeyChainGroup;
+import org.bitcoinj.wallet.RedeemData;
+import org.junit.Test;
+import org.spongycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks that {@link ConcurrentTransactionSigner} produces the same transactions as the bitcoinj signers it replaces,
+ * whether inputs are signed in parallel or transactions are signed on several threads at once.
+ */
+public class ConcurrentTransactionSignerTest {
+
+    private static final BigInteger UTXO_VALUE = BigInteger.valueOf(10_000L);
+    private static final BigInteger FEE = BigInteger.valueOf(1_000L);
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    private final ECKey key = ECKey.fromPrivate(
+        Hex.decode("64d3ab1f8c5e7a3d9b2c4e6f8a1b3c5d7e9f0a2b4c6d8e0f1a3b5c7d9e1f3a5b")
+    );
+    private final ECKey otherKey = ECKey.fromPrivate(
+        Hex.decode("1f3a5b7c9d1e3f5a7b9c1d3e5f7a9b1c3d5e7f9a1b3c5d7e9f1a3b5c7d9e1f3a")
+    );
+    private final List<ECKey> keys = Arrays.asList(otherKey, key);
+
+    @Test
+    public void signsLegacyInputsLikeLocalTransactionSigner() throws Exception {
+        for (int inputs : new int[]{1, 50}) {
+            assertSignsLikeBitcoinj(MainNetParams.get(), ScriptBuilder.createP2PKHOutputScript(key), inputs, false);
+        }
+    }
+
+    @Test
+    public void signsSegwitInputsLikeLocalTransactionSigner() throws Exception {
+        for (int inputs : new int[]{1, 50}) {
+            assertSignsLikeBitcoinj(MainNetParams.get(), ScriptBuilder.createP2WPKHOutputScript(key), inputs, false);
+        }
+    }
+
+    @Test
+    public void signsForkIdInputsLikeBchLocalTransactionSigner() throws Exception {
+        for (int inputs : new int[]{1, 50}) {
+            assertSignsLikeBitcoinj(BchMainNetParams.get(), ScriptBuilder.createP2PKHOutputScript(key), inputs, true);
+        }
+    }
+
+    @Test
+    public void signedInputsSpendTheirOutputs() throws Exception {
+        Transaction tx = makeTransaction(MainNetParams.get(), ScriptBuilder.createP2PKHOutputScript(key), 50);
+
+        PaymentTx.signSimpleTransaction(MainNetParams.get(), tx, keys, false);
+
+        for (int i = 0; i < tx.getInputs().size(); i++) {
+            TransactionInput txIn = tx.getInput(i);
+            txIn.getScriptSig().correctlySpends(
+                tx,
+                i,
+                txIn.getWitness(),
+                txIn.getValue(),
+                txIn.getConnectedOutput().getScriptPubKey(),
+                Script.ALL_VERIFY_FLAGS
+            );
+        }
+    }
+
+    @Test
+    public void signsTransactionsConcurrently() throws Exception {
+        Script script = ScriptBuilder.createP2PKHOutputScript(key);
+        Transaction expected = makeTransaction(MainNetParams.get(), script, 50);
+        signWithKeyChainGroup(MainNetParams.get(), expected, false);
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < THREADS * 2; i++) {
+            transactions.add(makeTransaction(MainNetParams.get(), script, 50));
+        }
+        signOnThreads(transactions, THREADS);
+
+        for (Transaction tx : transactions) {
+            assertArrayEquals(expected.bitcoinSerialize(), tx.bitcoinSerialize());
+        }
+    }
+
+    private void assertSignsLikeBitcoinj(
+        NetworkParameters params,
+        Script script,
+        int inputs,
+        boolean useForkId
+    ) throws Exception {
+        Transaction expected = makeTransaction(params, script, inputs);
+        Transaction actual = makeTransaction(params, script, inputs);
+
+        signWithKeyChainGroup(params, expected, useForkId);
+        PaymentTx.signSimpleTransaction(params, actual, keys, useForkId);
+
+        assertArrayEquals(expected.bitcoinSerialize(), actual.bitcoinSerialize());
+    }
+
+    // How transactions used to be signed, before ConcurrentTransactionSigner
+    private void signWithKeyChainGroup(NetworkParameters params, Transaction tx, boolean useForkId) {
+        KeyChainGroup keyChainGroup = KeyChainGroup.createBasic(params);
+        keyChainGroup.importKeys(keys);
+        KeyBag keyBag = new DecryptingKeyBag(keyChainGroup, null);
+
+        for (TransactionInput txIn : tx.getInputs()) {
+            Script scriptPubKey = txIn.getConnectedOutput().getScriptPubKey();
+            RedeemData redeemData = txIn.getConnectedRedeemData(keyBag);
+            txIn.setScriptSig(scriptPubKey.createEmptyInputScript(redeemData.keys.get(0), redeemData.redeemScript));
+        }
+
+        LocalTransactionSigner signer = useForkId ? new BchLocalTransactionSigner() : new LocalTransactionSigner();
+        signer.signInputs(new TransactionSigner.ProposedTransaction(tx), keyBag);
+    }
+
+    private void signOnThreads(List<Transaction> transactions, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Transaction tx : transactions) {
+                futures.add(executor.submit(() ->
+                    PaymentTx.signSimpleTransaction(MainNetParams.get(), tx, keys, false)
+                ));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    // Spends all of the given number of inputs to a single output, without change
+    private Transaction makeTransaction(NetworkParameters params, Script script, int inputs) throws Exception {
+        List<Utxo> utxos = new ArrayList<>();
+        for (int i = 0; i < inputs; i++) {
+            utxos.add(
+                new Utxo(
+                    UTXO_VALUE,
+                    Hex.toHexString(script.getProgram()),
+                    Sha256Hash.of(BigInteger.valueOf(i).toByteArray()).toString(),
+                    i % 3,
+                    true,
+                    null,
+                    false,
+                    false
+                )
+            );
+        }
+
+        HashMap<String, BigInteger> receivers = new HashMap<>();
+        receivers.put(
+            LegacyAddress.fromKey(params, otherKey).toBase58(),
+            UTXO_VALUE.multiply(BigInteger.valueOf(inputs)).subtract(FEE)
+        );
+
+        return PaymentTx.makeSimpleTransaction(params, Collections.unmodifiableList(utxos), receivers, FEE, null);
+    }
+}
@@ -0,0 +1,116 @@
+package info.blockchain.wallet.payment
+
+import info.blockchain.wallet.payload.model.Utxo
+import java.math.BigInteger
+import kotlin.random.Random
+import org.amshove.kluent.`should be equal to`
+import org.junit.Test
+
+class PrimitiveCoinSelectionTest {
+
+    private val feePerByte = 55L
+
+    private fun randomUnspents(count: Int, seed: Int): List<Utxo> {
+        val random = Random(seed)
+        return List(count) {
+            Utxo(
+                value = random.nextLong(1L, 2_000_000L).toBigInteger(),
+                txHash = it.toString(),
+                isReplayable = random.nextBoolean(),
+                isSegwit = random.nextBoolean()
+            )
+        }
+    }
+
+    private fun SpendableUnspentOutputs.assertSameAs(expected: SpendableUnspentOutputs) {
+        spendableOutputs `should be equal to` expected.spendableOutputs
+        absoluteFee `should be equal to` expected.absoluteFee
+        consumedAmount `should be equal to` expected.consumedAmount
+        isReplayProtected `should be equal to` expected.isReplayProtected
+    }
+
+    private fun assertSameSelection(
+        coins: List<Utxo>,
+        outputAmount: Long,
+        coinSortingMethod: CoinSortingMethod
+    ) {
+        OutputType.values().forEach { outputType ->
+            PrimitiveCoinSelection(coins, feePerByte)
+                .select(outputAmount, outputType, outputType, coinSortingMethod)
+                .assertSameAs(
+                    CoinSelection(coins, feePerByte.toBigInteger())
+                        .select(outputAmount.toBigInteger(), outputType, outputType, coinSortingMethod)
+                )
+        }
+    }
+
+    @Test
+    fun `descent draw selection matches big integer selection`() {
+        val coins = randomUnspents(count = 100, seed = 1)
+        listOf(0L, 1_000L, 100_000L, 5_000_000L, 50_000_000L, 500_000_000L).forEach { amount ->
+            assertSameSelection(coins, amount, DescentDraw)
+        }
+    }
+
+    @Test
+    fun `ascent draw selection matches big integer selection`() {
+        val coins = randomUnspents(count = 100, seed = 2)
+        listOf(0L, 1_000L, 100_000L, 5_000_000L, 50_000_000L, 500_000_000L).forEach { amount ->
+            assertSameSelection(coins, amount, AscentDraw)
+        }
+    }
+
+    @Test
+    fun `replay protected selection matches big integer selection`() {
+        val coins = randomUnspents(count = 100, seed = 3)
+        val placeholder = Utxo(value = Payment.DUST, isForceInclude = true)
+        listOf(0L, 1_000L, 100_000L, 5_000_000L).forEach { amount ->
+            assertSameSelection(coins, amount, ReplayProtection(placeholder))
+        }
+    }
+
+    @Test
+    fun `selection over a large number of coins matches big integer selection`() {
+        val coins = randomUnspents(count = 10_000, seed = 4)
+        assertSameSelection(coins, 25_000_000L, DescentDraw)
+    }
+
+    @Test
+    fun `select all matches big integer selection`() {
+        listOf(0, 1, 100, 10_000).forEachIndexed { seed, count ->
+            val coins = randomUnspents(count, seed)
+            OutputType.values().forEach { outputType ->
+                PrimitiveCoinSelection(coins, feePerByte)
+                    .selectAll(outputType, DescentDraw)
+                    .assertSameAs(
+                        CoinSelection(coins, feePerByte.toBigInteger()).selectAll(outputType, DescentDraw)
+                    )
+            }
+        }
+    }
+
+    @Test
+    fun `unaffordable selection is empty`() {
+        val coins = randomUnspents(count = 10, seed = 5)
+        PrimitiveCoinSelection(coins, feePerByte)
+            .select(Long.MAX_VALUE / 4, OutputType.P2PKH, OutputType.P2PKH, DescentDraw)
+            .also {
+                it.spendableOutputs `should be equal to` emptyList()
+                it.absoluteFee `should be equal to` BigInteger.ZERO
+            }
+    }
+
+    @Test
+    fun `values that do not fit in a long are rejected`() {
+        val coins = listOf(Utxo(value = BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1)))
+        PrimitiveCoinSelection.canSelect(coins, feePerByte.toBigInteger()) `should be equal to` false
+        PrimitiveCoinSelection.canSelect(coins.take(0), feePerByte.toBigInteger()) `should be equal to` true
+        PrimitiveCoinSelection.canSelect(
+            listOf(
+                Utxo(value = BigInteger.valueOf(Long.MAX_VALUE / 2)),
+                Utxo(value = BigInteger.valueOf(Long.MAX_VALUE / 2))
+            ),
+            feePerByte.toBigInteger()
+        ) `should be equal to` false
+    }
+}